@@ -0,0 +1,123 @@
+package com.han.rpc;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * RPC调用上下文（线程级别）
+ * 服务提供者处理请求时保存该请求的截止时间，服务方法可以据此查询剩余时间；
+ * 在服务方法中继续发起的RPC调用会自动使用剩余时间作为超时时间，消费者也可以主动设置截止时间来限制本线程后续的调用。
+ * 消费者取消请求后，服务方法可以通过 isCancelled() 及时结束耗时的处理；
+ * 消费者发起广播调用后，可以通过 getBroadcastResults() 获取每个服务节点的返回值或异常
+ */
+public class RpcContext {
+
+    /**
+     * 当前线程的调用截止时间（毫秒时间戳）
+     */
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    /**
+     * 当前线程处理的请求是否已被消费者取消
+     */
+    private static final ThreadLocal<AtomicBoolean> CANCELLED = new ThreadLocal<>();
+
+    /**
+     * 当前线程最近一次广播调用中每个服务节点的返回值
+     */
+    private static final ThreadLocal<Map<String, Object>> BROADCAST_RESULTS = new ThreadLocal<>();
+
+    /**
+     * 获取截止时间
+     * @return 截止时间（毫秒时间戳），未设置时返回 null
+     */
+    public static Long getDeadline() {
+        return DEADLINE.get();
+    }
+
+    /**
+     * 设置截止时间
+     * @param deadline 截止时间（毫秒时间戳）
+     */
+    public static void setDeadline(long deadline) {
+        DEADLINE.set(deadline);
+    }
+
+    /**
+     * 清除截止时间
+     */
+    public static void removeDeadline() {
+        DEADLINE.remove();
+    }
+
+    /**
+     * 获取剩余时间
+     * @return 剩余时间（毫秒），已超时返回 0，未设置截止时间时返回 Long.MAX_VALUE
+     */
+    public static long getRemainingTime() {
+        Long deadline = DEADLINE.get();
+        if (deadline == null) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(deadline - System.currentTimeMillis(), 0);
+    }
+
+    /**
+     * 是否已超过截止时间
+     * @return
+     */
+    public static boolean isExpired() {
+        return getRemainingTime() == 0;
+    }
+
+    /**
+     * 设置当前请求的取消标记（由服务端处理请求时设置）
+     * @param cancelled
+     */
+    public static void setCancelled(AtomicBoolean cancelled) {
+        CANCELLED.set(cancelled);
+    }
+
+    /**
+     * 当前请求是否已被取消或已超过截止时间
+     * @return
+     */
+    public static boolean isCancelled() {
+        AtomicBoolean cancelled = CANCELLED.get();
+        return (cancelled != null && cancelled.get()) || isExpired();
+    }
+
+    /**
+     * 获取当前线程上一次调用（必须是广播调用）中每个服务节点的结果
+     * 广播调用的方法本身返回第一个服务节点（按注册中心发现的顺序）的返回值，需要合并所有节点的结果、或调用失败后判断哪些节点已执行时通过该方法获取
+     * @return 服务节点地址 => 返回值（成功）或异常（失败），按注册中心发现的顺序；
+     * 上一次调用不是广播调用、或广播调用超时未结束时返回 null（每次调用开始时清除）
+     */
+    public static Map<String, Object> getBroadcastResults() {
+        return BROADCAST_RESULTS.get();
+    }
+
+    /**
+     * 清除广播调用的结果（由服务代理在每次调用开始时清除）
+     */
+    public static void removeBroadcastResults() {
+        BROADCAST_RESULTS.remove();
+    }
+
+    /**
+     * 设置广播调用的结果（由服务代理在广播调用结束后设置）
+     * @param broadcastResults
+     */
+    public static void setBroadcastResults(Map<String, Object> broadcastResults) {
+        BROADCAST_RESULTS.set(broadcastResults);
+    }
+
+    /**
+     * 清除当前线程的上下文
+     */
+    public static void clear() {
+        DEADLINE.remove();
+        CANCELLED.remove();
+        BROADCAST_RESULTS.remove();
+    }
+}
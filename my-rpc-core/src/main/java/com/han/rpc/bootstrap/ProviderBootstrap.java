@@ -9,6 +9,7 @@ import com.han.rpc.registry.Registry;
 import com.han.rpc.registry.RegistryFactory;
 import com.han.rpc.server.tcp.VertxTcpServer;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -26,26 +27,35 @@ public class ProviderBootstrap {
         RpcConfig rpcConfig = RpcApplication.getRpcConfig();
         Registry registry = RegistryFactory.getInstance(rpcConfig.getRegistryConfig().getRegistry());
 
-        // 注册服务
+        // 本地注册
+        List<ServiceMetaInfo> registerList = new ArrayList<>();
         for (ServiceRegisterInfo<?> serviceRegisterInfo : serviceMetaInfoList) {
-            // 本地注册
             LocalRegistry.register(serviceRegisterInfo.getServiceName(), serviceRegisterInfo.getImplClass());
 
-            // 注册服务到注册中心
             ServiceMetaInfo serviceMetaInfo = new ServiceMetaInfo();
             serviceMetaInfo.setServiceName(serviceRegisterInfo.getServiceName());
             serviceMetaInfo.setServiceVersion("1.0");
             serviceMetaInfo.setServiceHost(rpcConfig.getServerHost());
             serviceMetaInfo.setServicePort(rpcConfig.getServerPort());
-            try {
-                registry.register(serviceMetaInfo);
-            } catch (Exception e) {
-                throw new RuntimeException(serviceRegisterInfo.getServiceName() + "注册失败", e);
-            }
+            serviceMetaInfo.setWeight(rpcConfig.getWeight());
+            serviceMetaInfo.setWarmup(rpcConfig.getWarmup());
+            serviceMetaInfo.setRegion(rpcConfig.getRegion());
+            serviceMetaInfo.setZone(rpcConfig.getZone());
+            serviceMetaInfo.setHostName(rpcConfig.getHostName());
+            registerList.add(serviceMetaInfo);
         }
 
-        // 启动服务器
+        // 启动服务器，开始监听后再注册，消费者发现节点时一定可以建立连接
         VertxTcpServer tcpServer = new VertxTcpServer();
-        tcpServer.doStart(RpcApplication.getRpcConfig().getServerPort());
+        tcpServer.start(rpcConfig.getServerPort()).join();
+
+        // 批量注册服务到注册中心（预热从开始接收流量时计算）
+        long registerTime = System.currentTimeMillis();
+        registerList.forEach(serviceMetaInfo -> serviceMetaInfo.setRegisterTime(registerTime));
+        try {
+            registry.registerBatch(registerList);
+        } catch (Exception e) {
+            throw new RuntimeException("服务注册失败", e);
+        }
     }
 }
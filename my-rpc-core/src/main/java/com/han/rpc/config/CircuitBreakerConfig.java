@@ -0,0 +1,49 @@
+package com.han.rpc.config;
+
+import lombok.Data;
+
+/**
+ * Rpc框架熔断器配置（消费端，每个服务节点一个熔断器）
+ */
+@Data
+public class CircuitBreakerConfig {
+    /**
+     * 是否开启熔断
+     */
+    private boolean enabled = true;
+
+    /**
+     * 滑动窗口大小（最近多少次调用）
+     */
+    private Integer slidingWindowSize = 20;
+
+    /**
+     * 窗口内至少有多少次调用才计算失败率
+     */
+    private Integer minimumCalls = 10;
+
+    /**
+     * 失败率阈值，达到后熔断
+     */
+    private Double failureRateThreshold = 0.5;
+
+    /**
+     * 慢调用时间阈值（毫秒）
+     */
+    private Long slowCallDurationThreshold = 2000L;
+
+    /**
+     * 慢调用率阈值，达到后熔断
+     */
+    private Double slowCallRateThreshold = 0.8;
+
+    /**
+     * 熔断持续时间（毫秒），之后进入半开状态放行探测请求
+     */
+    private Long openDuration = 10000L;
+
+    /**
+     * 半开状态放行的探测请求数，全部成功后恢复
+     */
+    private Integer halfOpenProbeCalls = 3;
+}
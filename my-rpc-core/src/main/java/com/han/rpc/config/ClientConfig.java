@@ -0,0 +1,34 @@
+package com.han.rpc.config;
+
+import lombok.Data;
+
+/**
+ * Rpc框架客户端配置（服务消费者与服务提供者之间的长连接）
+ */
+@Data
+public class ClientConfig {
+    /**
+     * 心跳间隔（毫秒），连接在该时间内没有收到数据时发送心跳
+     */
+    private Long heartbeatInterval = 5000L;
+
+    /**
+     * 心跳超时时间（毫秒），连接在该时间内没有收到任何数据（包括心跳响应）时认为连接已失效并关闭
+     */
+    private Long heartbeatTimeout = 15000L;
+
+    /**
+     * 空闲时间（毫秒），连接在该时间内没有发起请求时关闭，不再重连
+     */
+    private Long idleTimeout = 120000L;
+
+    /**
+     * 重连初始退避时间（毫秒），连续失败时翻倍
+     */
+    private Long reconnectInitialBackoff = 1000L;
+
+    /**
+     * 重连最大退避时间（毫秒）
+     */
+    private Long reconnectMaxBackoff = 30000L;
+}
@@ -0,0 +1,60 @@
+package com.han.rpc.config;
+
+import lombok.Data;
+
+/**
+ * Rpc框架并发限制配置（服务提供端，按服务和方法分别限制正在处理的请求数，超过限制的请求直接拒绝）
+ */
+@Data
+public class ConcurrencyLimitConfig {
+    /**
+     * 是否开启并发限制
+     */
+    private boolean enabled = false;
+
+    /**
+     * 是否自适应调整限制：根据请求耗时的变化调整（耗时升高说明开始排队，降低限制；耗时稳定则逐步提高限制）
+     * 关闭时使用固定限制
+     */
+    private boolean adaptive = true;
+
+    /**
+     * 每个服务的并发限制（自适应模式下为初始值）
+     */
+    private Integer serviceLimit = 200;
+
+    /**
+     * 每个方法的并发限制（自适应模式下为初始值）
+     */
+    private Integer methodLimit = 100;
+
+    /**
+     * 普通优先级请求最多占用限制的比例，剩余名额留给高优先级请求（高优先级请求可以使用全部名额）
+     */
+    private Double normalPriorityLimitRatio = 0.9;
+
+    /**
+     * 低优先级请求最多占用限制的比例，批量任务占满该比例后，普通和高优先级请求仍有名额
+     */
+    private Double lowPriorityLimitRatio = 0.5;
+
+    /**
+     * 自适应模式下的最小限制
+     */
+    private Integer minLimit = 10;
+
+    /**
+     * 自适应模式下的最大限制
+     */
+    private Integer maxLimit = 1000;
+
+    /**
+     * 耗时容忍倍数，近期耗时不超过长期平均耗时的该倍数时不降低限制
+     */
+    private Double rttTolerance = 1.5;
+
+    /**
+     * 限制调整的平滑系数（0~1），越大调整越快
+     */
+    private Double smoothing = 0.2;
+}
@@ -0,0 +1,39 @@
+package com.han.rpc.config;
+
+import lombok.Data;
+
+/**
+ * Rpc框架对冲请求配置（消费端，仅对开启对冲的方法生效）
+ */
+@Data
+public class HedgingConfig {
+    /**
+     * 对冲延迟取首个节点近期耗时的分位数，例如 0.95 表示 p95
+     */
+    private Double percentile = 0.95;
+
+    /**
+     * 耗时样本不足时使用的对冲延迟（毫秒）
+     */
+    private Long defaultDelay = 100L;
+
+    /**
+     * 最小对冲延迟（毫秒），避免节点很快时几乎每个请求都发出对冲
+     */
+    private Long minDelay = 10L;
+
+    /**
+     * 计算分位数所需的最少样本数
+     */
+    private Integer minSamples = 20;
+
+    /**
+     * 对冲预算比例，每个服务的对冲请求数不能超过近期成功请求数的该比例
+     */
+    private Double budgetRatio = 0.05;
+
+    /**
+     * 对冲预算令牌桶容量，即每个服务允许的最大突发对冲请求数
+     */
+    private Integer budgetMaxTokens = 10;
+}
@@ -0,0 +1,24 @@
+package com.han.rpc.config;
+
+import lombok.Data;
+
+/**
+ * Rpc框架就近路由配置（消费端，需配置 RpcConfig 的 region、zone 或 hostName）
+ */
+@Data
+public class LocalityConfig {
+    /**
+     * 是否开启就近路由
+     */
+    private boolean enabled = true;
+
+    /**
+     * 最小健康比例，同主机（同可用区、同地域）的节点中可用节点的比例低于该值时，流量溢出到更大的范围
+     */
+    private Double minHealthyRatio = 0.7;
+
+    /**
+     * 节点返回过载后，在该时间内（毫秒）按不健康处理
+     */
+    private Long overloadDuration = 1000L;
+}
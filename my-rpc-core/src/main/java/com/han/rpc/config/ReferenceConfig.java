@@ -0,0 +1,56 @@
+package com.han.rpc.config;
+
+import com.han.rpc.model.RpcPriorityEnum;
+import com.han.rpc.ratelimit.RateLimitModeKeys;
+import lombok.Data;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 服务引用配置（消费端，每个服务代理一份，覆盖或补充全局配置）
+ */
+@Data
+public class ReferenceConfig {
+    /**
+     * 开启对冲请求的方法名，只应包含幂等的读方法
+     */
+    private Set<String> hedgingMethods = new HashSet<>();
+
+    /**
+     * 使用并行调用（forking）的方法名，覆盖全局的容错策略，只应包含幂等的读方法
+     */
+    private Set<String> forkingMethods = new HashSet<>();
+
+    /**
+     * 使用广播调用（broadcast）的方法名，覆盖全局的容错策略，每个节点的返回值或异常可通过 RpcContext.getBroadcastResults() 获取
+     */
+    private Set<String> broadcastMethods = new HashSet<>();
+
+    /**
+     * 请求优先级
+     */
+    private RpcPriorityEnum priority = RpcPriorityEnum.NORMAL;
+
+    /**
+     * 服务级别的调用速率限制（每秒请求数），0 表示不限制
+     */
+    private double rateLimit = 0;
+
+    /**
+     * 方法级别的调用速率限制：方法名 => 每秒请求数，与服务级别的限制同时生效
+     */
+    private Map<String, Double> methodRateLimits = new HashMap<>();
+
+    /**
+     * 超过速率限制时的处理方式
+     */
+    private String rateLimitMode = RateLimitModeKeys.FAIL_FAST;
+
+    /**
+     * 排队模式下的最大等待时间（毫秒）
+     */
+    private long rateLimitTimeout = 1000L;
+}
@@ -1,5 +1,6 @@
 package com.han.rpc.config;
 
+import com.han.rpc.registry.RegistryEncodingKeys;
 import lombok.Data;
 
 /**
@@ -28,4 +29,32 @@ public class RegistryConfig {
      * 超时时间（毫秒）
      */
     private Long timeout = 10000L;
+
+    /**
+     * 服务发现快照文件路径（消费端），默认为空，即不保存快照
+     * 需要时显式开启，每个应用使用各自的路径（例如 /var/lib/user-service/registry-snapshot.dat），
+     * 避免同一工作目录下的多个应用共用一个文件；相对路径相对于进程的工作目录
+     */
+    private String snapshotFile;
+
+    /**
+     * 服务发现快照文件的最小写入间隔（毫秒）
+     */
+    private long snapshotWriteInterval = 5000L;
+
+    /**
+     * 服务节点信息的编码方式（服务端写入时使用，读取时自动识别），见 RegistryEncodingKeys；
+     * 默认使用 json 以兼容旧版本的消费者，所有消费者都升级到能识别二进制格式的版本后再切换为 binary
+     */
+    private String encoding = RegistryEncodingKeys.JSON;
+
+    /**
+     * 服务节点子集大小（消费端），服务节点数超过该值时只使用按消费者ID选出的固定子集，0 表示使用全部节点
+     */
+    private int subsetSize = 0;
+
+    /**
+     * 消费者ID（消费端），用于选择服务节点子集，应在消费者集群内唯一且重启后不变（例如实例名）；为空时使用 应用名@主机名:端口（同一主机上运行多个同名消费者时需显式配置）
+     */
+    private String consumerId;
 }
@@ -1,5 +1,6 @@
 package com.han.rpc.config;
 
+import com.han.rpc.constant.RpcConstant;
 import com.han.rpc.fault.retry.RetryStrategyKeys;
 import com.han.rpc.fault.tolerant.TolerantStrategyKeys;
 import com.han.rpc.loadbalancer.LoadBalancerKeys;
@@ -31,6 +32,41 @@ public class RpcConfig {
      */
     private Integer serverPort = 8080;
 
+    /**
+     * 服务权重（服务提供者注册时发布，机器配置越高可设置越大）
+     */
+    private Integer weight = RpcConstant.DEFAULT_SERVICE_WEIGHT;
+
+    /**
+     * 服务预热时长（毫秒），新注册的节点在该时间内逐步承接流量，0表示不预热
+     */
+    private Long warmup = RpcConstant.DEFAULT_SERVICE_WARMUP;
+
+    /**
+     * 所在地域（服务提供者注册时发布，消费者据此就近路由）
+     */
+    private String region;
+
+    /**
+     * 所在可用区（服务提供者注册时发布，消费者据此就近路由）
+     */
+    private String zone;
+
+    /**
+     * 所在主机标识（服务提供者注册时发布，消费者据此优先调用同主机的节点）
+     */
+    private String hostName;
+
+    /**
+     * 服务端配置
+     */
+    private ServerConfig serverConfig = new ServerConfig();
+
+    /**
+     * 客户端配置
+     */
+    private ClientConfig clientConfig = new ClientConfig();
+
     /**
      * 模拟调用
      */
@@ -51,6 +87,21 @@ public class RpcConfig {
      */
     private String retryStrategy = RetryStrategyKeys.NO;
 
+    /**
+     * 重试预算比例，每个服务的重试次数不能超过近期成功请求数的该比例
+     */
+    private Double retryBudgetRatio = 0.1;
+
+    /**
+     * 重试预算令牌桶容量，即每个服务允许的最大突发重试次数
+     */
+    private Integer retryBudgetMaxTokens = 10;
+
+    /**
+     * 调用超时时间（毫秒），包含重试和容错的总耗时
+     */
+    private Long timeout = 5000L;
+
     /**
      * 注册中心配置
      */
@@ -60,4 +111,24 @@ public class RpcConfig {
      * 容错策略
      */
     private String tolerantStrategy = TolerantStrategyKeys.FAIL_FAST;
+
+    /**
+     * 并行调用（forking）同时调用的节点数
+     */
+    private Integer forks = 2;
+
+    /**
+     * 熔断器配置
+     */
+    private CircuitBreakerConfig circuitBreakerConfig = new CircuitBreakerConfig();
+
+    /**
+     * 对冲请求配置
+     */
+    private HedgingConfig hedgingConfig = new HedgingConfig();
+
+    /**
+     * 就近路由配置
+     */
+    private LocalityConfig localityConfig = new LocalityConfig();
 }
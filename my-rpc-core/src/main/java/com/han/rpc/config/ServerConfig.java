@@ -0,0 +1,44 @@
+package com.han.rpc.config;
+
+import lombok.Data;
+
+/**
+ * Rpc框架服务端配置（服务提供者处理请求）
+ */
+@Data
+public class ServerConfig {
+    /**
+     * 执行服务方法的工作线程数（普通优先级），服务方法不在事件循环线程中执行，避免阻塞网络读写
+     */
+    private Integer workerThreads = 200;
+
+    /**
+     * 高优先级请求的工作线程数
+     */
+    private Integer highPriorityWorkerThreads = 50;
+
+    /**
+     * 低优先级请求的工作线程数
+     */
+    private Integer lowPriorityWorkerThreads = 50;
+
+    /**
+     * 等待执行的请求队列容量（每个优先级一个队列），队列满时直接拒绝请求
+     */
+    private Integer queueCapacity = 10000;
+
+    /**
+     * 请求最大排队时间（毫秒），排队超过该时间的请求不再处理，直接返回过载状态；0表示不限制
+     */
+    private Long maxQueueTime = 5000L;
+
+    /**
+     * 连接空闲超时时间（毫秒），在该时间内没有收到任何数据（包括消费者的心跳）时关闭连接，及时清理半开连接
+     */
+    private Long idleTimeout = 30000L;
+
+    /**
+     * 并发限制配置
+     */
+    private ConcurrencyLimitConfig concurrencyLimitConfig = new ConcurrencyLimitConfig();
+}
@@ -0,0 +1,333 @@
+package com.han.rpc.fault.circuitbreaker;
+
+import com.han.rpc.RpcApplication;
+import com.han.rpc.config.CircuitBreakerConfig;
+import com.han.rpc.model.RpcResponse;
+import com.han.rpc.model.ServiceMetaInfo;
+import com.han.rpc.server.limiter.ServerOverloadException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 熔断器（消费端，按服务节点地址区分）
+ * 基于最近 N 次调用的滑动窗口统计失败率和慢调用率，超过阈值后熔断，熔断期间直接拒绝请求；
+ * 熔断持续时间过后进入半开状态，放行少量探测请求，全部成功则恢复，否则重新熔断
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    /**
+     * 每个服务节点的熔断器：服务节点地址 => 熔断器
+     */
+    private static final Map<String, CircuitBreaker> CIRCUIT_BREAKER_MAP = new ConcurrentHashMap<>();
+
+    /**
+     * 滑动窗口中的失败标记
+     */
+    private static final byte FAILURE_FLAG = 1;
+
+    /**
+     * 滑动窗口中的慢调用标记
+     */
+    private static final byte SLOW_FLAG = 2;
+
+    private final String serviceAddress;
+
+    private final CircuitBreakerConfig config;
+
+    /**
+     * 当前状态
+     */
+    private CircuitBreakerStateEnum state = CircuitBreakerStateEnum.CLOSED;
+
+    /**
+     * 滑动窗口（环形数组），每个元素记录一次调用是否失败、是否慢调用
+     */
+    private final byte[] window;
+
+    /**
+     * 下一次写入的下标
+     */
+    private int windowIndex;
+
+    /**
+     * 窗口内的调用数
+     */
+    private int callCount;
+
+    /**
+     * 窗口内的失败数
+     */
+    private int failureCount;
+
+    /**
+     * 窗口内的慢调用数
+     */
+    private int slowCount;
+
+    /**
+     * 熔断结束时间（毫秒时间戳）
+     */
+    private long openUntil;
+
+    /**
+     * 半开状态已放行的探测请求数
+     */
+    private int probeIssuedCount;
+
+    /**
+     * 半开状态成功的探测请求数
+     */
+    private int probeSuccessCount;
+
+    public CircuitBreaker(String serviceAddress, CircuitBreakerConfig config) {
+        this.serviceAddress = serviceAddress;
+        this.config = config;
+        this.window = new byte[config.getSlidingWindowSize()];
+    }
+
+    /**
+     * 获取服务节点的熔断器（使用全局配置创建）
+     * @param serviceAddress 服务节点地址
+     * @return
+     */
+    public static CircuitBreaker getInstance(String serviceAddress) {
+        return CIRCUIT_BREAKER_MAP.computeIfAbsent(serviceAddress, key -> {
+            CircuitBreakerConfig config = RpcApplication.getRpcConfig().getCircuitBreakerConfig();
+            return new CircuitBreaker(key, config == null ? new CircuitBreakerConfig() : config);
+        });
+    }
+
+    /**
+     * 过滤掉已熔断的服务节点（供负载均衡前使用），没有节点被过滤时返回原列表
+     * @param serviceMetaInfoList
+     * @return
+     */
+    public static List<ServiceMetaInfo> filterAvailable(List<ServiceMetaInfo> serviceMetaInfoList) {
+        boolean allAvailable = true;
+        for (ServiceMetaInfo serviceMetaInfo : serviceMetaInfoList) {
+            if (!getInstance(serviceMetaInfo.getServiceAddress()).isAvailable()) {
+                allAvailable = false;
+                break;
+            }
+        }
+        if (allAvailable) {
+            return serviceMetaInfoList;
+        }
+        return serviceMetaInfoList.stream()
+                .filter(serviceMetaInfo -> getInstance(serviceMetaInfo.getServiceAddress()).isAvailable())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 在熔断器保护下执行异步调用：熔断时直接失败，否则记录调用结果和耗时
+     * 返回 supplier 提供的 future 本身（不是派生的阶段），调用方取消时能取消底层请求
+     * @param supplier
+     * @return
+     */
+    public CompletableFuture<RpcResponse> executeAsync(Supplier<CompletableFuture<RpcResponse>> supplier) {
+        if (!tryAcquirePermission()) {
+            return CompletableFuture.failedFuture(new CircuitBreakerOpenException(serviceAddress));
+        }
+        long startTime = System.currentTimeMillis();
+        CompletableFuture<RpcResponse> future;
+        try {
+            future = supplier.get();
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((rpcResponse, throwable) -> {
+            long duration = System.currentTimeMillis() - startTime;
+            // 经过 whenComplete 等阶段传递的异常被包装为 CompletionException，需要取出原始异常再判断
+            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                    ? throwable.getCause() : throwable;
+            // 调用方主动取消（例如对冲请求中较慢的一方）不代表节点故障，只归还探测名额
+            if (cause instanceof CancellationException) {
+                releasePermission();
+                return;
+            }
+            // 服务端过载拒绝说明节点存活，只是繁忙，不计为失败，避免整个集群过载时所有节点都被熔断
+            if (cause == null || cause instanceof ServerOverloadException) {
+                onSuccess(duration);
+            } else {
+                onError(duration);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 是否可以调用（不占用半开状态的探测名额，用于负载均衡前过滤节点）
+     * @return
+     */
+    public synchronized boolean isAvailable() {
+        if (!config.isEnabled()) {
+            return true;
+        }
+        switch (state) {
+            case OPEN:
+                return System.currentTimeMillis() >= openUntil;
+            case HALF_OPEN:
+                return probeIssuedCount < config.getHalfOpenProbeCalls();
+            case CLOSED:
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * 申请调用许可
+     * @return 是否放行
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (!config.isEnabled()) {
+            return true;
+        }
+        if (state == CircuitBreakerStateEnum.OPEN) {
+            if (System.currentTimeMillis() < openUntil) {
+                return false;
+            }
+            // 熔断时间已过，进入半开状态
+            transitionTo(CircuitBreakerStateEnum.HALF_OPEN);
+        }
+        if (state == CircuitBreakerStateEnum.HALF_OPEN) {
+            if (probeIssuedCount >= config.getHalfOpenProbeCalls()) {
+                return false;
+            }
+            probeIssuedCount++;
+        }
+        return true;
+    }
+
+    /**
+     * 归还调用许可（调用被取消、没有结果时调用），半开状态下让出探测名额
+     */
+    public synchronized void releasePermission() {
+        if (state == CircuitBreakerStateEnum.HALF_OPEN && probeIssuedCount > 0) {
+            probeIssuedCount--;
+        }
+    }
+
+    /**
+     * 记录调用成功
+     * @param durationMillis 调用耗时
+     */
+    public synchronized void onSuccess(long durationMillis) {
+        record(false, durationMillis >= config.getSlowCallDurationThreshold());
+    }
+
+    /**
+     * 记录调用失败
+     * @param durationMillis 调用耗时
+     */
+    public synchronized void onError(long durationMillis) {
+        record(true, durationMillis >= config.getSlowCallDurationThreshold());
+    }
+
+    /**
+     * 获取当前状态
+     * @return
+     */
+    public synchronized CircuitBreakerStateEnum getState() {
+        return state;
+    }
+
+    /**
+     * 记录一次调用结果，并判断是否需要切换状态
+     * @param failure
+     * @param slow
+     */
+    private void record(boolean failure, boolean slow) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        switch (state) {
+            case HALF_OPEN:
+                // 探测请求失败（或仍然很慢），重新熔断
+                if (failure || slow) {
+                    transitionTo(CircuitBreakerStateEnum.OPEN);
+                    return;
+                }
+                probeSuccessCount++;
+                if (probeSuccessCount >= config.getHalfOpenProbeCalls()) {
+                    transitionTo(CircuitBreakerStateEnum.CLOSED);
+                }
+                return;
+            case CLOSED:
+                addToWindow(failure, slow);
+                if (callCount >= config.getMinimumCalls()
+                        && (failureCount >= config.getFailureRateThreshold() * callCount
+                        || slowCount >= config.getSlowCallRateThreshold() * callCount)) {
+                    transitionTo(CircuitBreakerStateEnum.OPEN);
+                }
+                return;
+            case OPEN:
+            default:
+                // 熔断前已发出的请求，结果不再统计
+        }
+    }
+
+    /**
+     * 写入滑动窗口，窗口满时覆盖最早的记录
+     * @param failure
+     * @param slow
+     */
+    private void addToWindow(boolean failure, boolean slow) {
+        if (callCount == window.length) {
+            byte oldest = window[windowIndex];
+            if ((oldest & FAILURE_FLAG) != 0) {
+                failureCount--;
+            }
+            if ((oldest & SLOW_FLAG) != 0) {
+                slowCount--;
+            }
+        } else {
+            callCount++;
+        }
+        byte outcome = 0;
+        if (failure) {
+            outcome |= FAILURE_FLAG;
+            failureCount++;
+        }
+        if (slow) {
+            outcome |= SLOW_FLAG;
+            slowCount++;
+        }
+        window[windowIndex] = outcome;
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    /**
+     * 状态切换
+     * @param newState
+     */
+    private void transitionTo(CircuitBreakerStateEnum newState) {
+        log.info("熔断器状态切换 {}: {} -> {}", serviceAddress, state, newState);
+        state = newState;
+        switch (newState) {
+            case OPEN:
+                openUntil = System.currentTimeMillis() + config.getOpenDuration();
+                break;
+            case HALF_OPEN:
+                probeIssuedCount = 0;
+                probeSuccessCount = 0;
+                break;
+            case CLOSED:
+            default:
+                // 恢复后重新统计
+                windowIndex = 0;
+                callCount = 0;
+                failureCount = 0;
+                slowCount = 0;
+                break;
+        }
+    }
+}
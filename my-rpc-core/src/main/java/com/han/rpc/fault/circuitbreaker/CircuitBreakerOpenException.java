@@ -0,0 +1,11 @@
+package com.han.rpc.fault.circuitbreaker;
+
+/**
+ * 熔断异常（服务节点已熔断，请求未发出）
+ */
+public class CircuitBreakerOpenException extends RuntimeException {
+
+    public CircuitBreakerOpenException(String serviceAddress) {
+        super("服务节点已熔断：" + serviceAddress);
+    }
+}
@@ -0,0 +1,19 @@
+package com.han.rpc.fault.circuitbreaker;
+
+/**
+ * 熔断器状态枚举
+ */
+public enum CircuitBreakerStateEnum {
+    /**
+     * 关闭（正常放行）
+     */
+    CLOSED,
+    /**
+     * 打开（熔断，直接拒绝）
+     */
+    OPEN,
+    /**
+     * 半开（放行少量探测请求）
+     */
+    HALF_OPEN
+}
@@ -0,0 +1,138 @@
+package com.han.rpc.fault.hedge;
+
+import cn.hutool.core.collection.CollUtil;
+import com.han.rpc.RpcApplication;
+import com.han.rpc.config.HedgingConfig;
+import com.han.rpc.fault.circuitbreaker.CircuitBreaker;
+import com.han.rpc.fault.retry.RetryBudget;
+import com.han.rpc.loadbalancer.LoadBalancer;
+import com.han.rpc.model.RpcRequest;
+import com.han.rpc.model.RpcResponse;
+import com.han.rpc.model.ServiceMetaInfo;
+import com.han.rpc.proxy.ServiceInvoker;
+import com.han.rpc.server.tcp.VertxTcpClient;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 对冲请求调用器（消费端）
+ * 先向选中的节点发送请求，若在该节点近期耗时的分位数（例如 p95）内没有响应，再向另一个节点发送一份相同的请求，
+ * 采用最先成功的响应并取消另一个请求。单个节点偶发的 GC 停顿等长尾延迟因此不会拖慢整个调用。
+ * 对冲请求数受对冲预算限制，且只应对幂等的读方法开启
+ */
+@Slf4j
+public class HedgingInvoker {
+
+    /**
+     * 每个服务的对冲预算：服务键名 => 对冲预算
+     */
+    private static final Map<String, RetryBudget> HEDGING_BUDGET_MAP = new ConcurrentHashMap<>();
+
+    /**
+     * 获取服务的对冲预算（与重试预算分开计数）
+     * @param serviceKey 服务键名
+     * @return
+     */
+    public static RetryBudget getBudget(String serviceKey) {
+        return HEDGING_BUDGET_MAP.computeIfAbsent(serviceKey, key -> {
+            HedgingConfig hedgingConfig = getHedgingConfig();
+            return new RetryBudget(hedgingConfig.getBudgetRatio(), hedgingConfig.getBudgetMaxTokens());
+        });
+    }
+
+    /**
+     * 计算对冲延迟：节点耗时样本足够时取分位数，否则取默认值，且不小于最小延迟
+     * @param serviceAddress 首个请求的服务节点地址
+     * @return 对冲延迟（毫秒）
+     */
+    public static long getHedgingDelay(String serviceAddress) {
+        HedgingConfig hedgingConfig = getHedgingConfig();
+        LatencyStats latencyStats = LatencyStats.getInstance(serviceAddress);
+        long delay = hedgingConfig.getDefaultDelay();
+        if (latencyStats.getSampleCount() >= hedgingConfig.getMinSamples()) {
+            delay = latencyStats.getPercentile(hedgingConfig.getPercentile());
+        }
+        return Math.max(delay, hedgingConfig.getMinDelay());
+    }
+
+    /**
+     * 发起对冲调用
+     * @param rpcRequest 请求
+     * @param selectedServiceMetaInfo 首个请求的服务节点
+     * @param serviceMetaInfoList 可用的服务节点列表，对冲请求从中选择其他节点
+     * @param loadBalancer 负载均衡器
+     * @param requestParams 负载均衡参数
+     * @param deadline 截止时间（毫秒时间戳）
+     * @return 最先成功的响应，所有已发出的请求都失败时返回最后一个异常
+     */
+    public static CompletableFuture<RpcResponse> invokeAsync(RpcRequest rpcRequest, ServiceMetaInfo selectedServiceMetaInfo,
+                                                             List<ServiceMetaInfo> serviceMetaInfoList, LoadBalancer loadBalancer,
+                                                             Map<String, Object> requestParams, long deadline) {
+        RetryBudget hedgingBudget = getBudget(selectedServiceMetaInfo.getServiceKey());
+        CompletableFuture<RpcResponse> resultFuture = new CompletableFuture<>();
+        // 未结束的请求数，全部失败时整个调用才失败
+        AtomicInteger pendingCount = new AtomicInteger(1);
+
+        CompletableFuture<RpcResponse> primaryFuture = ServiceInvoker.invokeAsync(rpcRequest, selectedServiceMetaInfo, deadline);
+        // 调用结束（成功、失败或被调用方取消）后取消仍未完成的请求，服务提供者会收到取消帧
+        resultFuture.whenComplete((rpcResponse, throwable) -> primaryFuture.cancel(false));
+
+        long delay = getHedgingDelay(selectedServiceMetaInfo.getServiceAddress());
+        if (delay < deadline - System.currentTimeMillis()) {
+            long timerId = VertxTcpClient.getVertx().setTimer(delay, id -> {
+                if (resultFuture.isDone()) {
+                    return;
+                }
+                // 在首个节点之外的可用节点中选择对冲节点
+                List<ServiceMetaInfo> candidateList = CircuitBreaker.filterAvailable(serviceMetaInfoList.stream()
+                        .filter(serviceMetaInfo -> !serviceMetaInfo.getServiceAddress().equals(selectedServiceMetaInfo.getServiceAddress()))
+                        .collect(Collectors.toList()));
+                if (CollUtil.isEmpty(candidateList) || !hedgingBudget.tryWithdraw()) {
+                    return;
+                }
+                ServiceMetaInfo hedgingServiceMetaInfo = loadBalancer.select(requestParams, candidateList);
+                log.info("服务节点 {} 超过 {}ms 未响应，对冲请求发往 {}", selectedServiceMetaInfo.getServiceAddress(),
+                        delay, hedgingServiceMetaInfo.getServiceAddress());
+                pendingCount.incrementAndGet();
+                CompletableFuture<RpcResponse> hedgingFuture = ServiceInvoker.invokeAsync(rpcRequest, hedgingServiceMetaInfo, deadline);
+                resultFuture.whenComplete((rpcResponse, throwable) -> hedgingFuture.cancel(false));
+                hedgingFuture.whenComplete((rpcResponse, throwable) -> complete(resultFuture, pendingCount, rpcResponse, throwable));
+            });
+            resultFuture.whenComplete((rpcResponse, throwable) -> VertxTcpClient.getVertx().cancelTimer(timerId));
+        }
+        primaryFuture.whenComplete((rpcResponse, throwable) -> {
+            if (throwable == null) {
+                hedgingBudget.deposit();
+            }
+            complete(resultFuture, pendingCount, rpcResponse, throwable);
+        });
+        return resultFuture;
+    }
+
+    /**
+     * 处理单个请求的结果：成功则结束调用，失败则等待其他请求，所有请求都失败时结束调用
+     * @param resultFuture
+     * @param pendingCount
+     * @param rpcResponse
+     * @param throwable
+     */
+    private static void complete(CompletableFuture<RpcResponse> resultFuture, AtomicInteger pendingCount,
+                                 RpcResponse rpcResponse, Throwable throwable) {
+        if (throwable == null) {
+            resultFuture.complete(rpcResponse);
+        } else if (pendingCount.decrementAndGet() == 0) {
+            resultFuture.completeExceptionally(throwable);
+        }
+    }
+
+    private static HedgingConfig getHedgingConfig() {
+        HedgingConfig hedgingConfig = RpcApplication.getRpcConfig().getHedgingConfig();
+        return hedgingConfig == null ? new HedgingConfig() : hedgingConfig;
+    }
+}
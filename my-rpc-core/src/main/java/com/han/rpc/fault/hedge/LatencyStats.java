@@ -0,0 +1,83 @@
+package com.han.rpc.fault.hedge;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 服务节点调用耗时统计（消费端，保留最近 N 次成功调用的耗时，用于计算分位数）
+ */
+public class LatencyStats {
+
+    /**
+     * 每个服务节点的耗时统计：服务节点地址 => 耗时统计
+     */
+    private static final Map<String, LatencyStats> LATENCY_STATS_MAP = new ConcurrentHashMap<>();
+
+    /**
+     * 保留的样本数
+     */
+    private static final int SAMPLE_SIZE = 128;
+
+    /**
+     * 耗时样本（环形数组，毫秒）
+     */
+    private final long[] samples = new long[SAMPLE_SIZE];
+
+    /**
+     * 下一次写入的下标
+     */
+    private int sampleIndex;
+
+    /**
+     * 样本数
+     */
+    private int sampleCount;
+
+    /**
+     * 获取服务节点的耗时统计
+     * @param serviceAddress 服务节点地址
+     * @return
+     */
+    public static LatencyStats getInstance(String serviceAddress) {
+        return LATENCY_STATS_MAP.computeIfAbsent(serviceAddress, key -> new LatencyStats());
+    }
+
+    /**
+     * 记录一次调用耗时
+     * @param latencyMillis
+     */
+    public synchronized void record(long latencyMillis) {
+        samples[sampleIndex] = latencyMillis;
+        sampleIndex = (sampleIndex + 1) % SAMPLE_SIZE;
+        if (sampleCount < SAMPLE_SIZE) {
+            sampleCount++;
+        }
+    }
+
+    /**
+     * 获取样本数
+     * @return
+     */
+    public synchronized int getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * 计算耗时分位数
+     * @param percentile 分位，例如 0.95
+     * @return 分位数耗时（毫秒），没有样本时返回 -1
+     */
+    public long getPercentile(double percentile) {
+        long[] sortedSamples;
+        synchronized (this) {
+            if (sampleCount == 0) {
+                return -1;
+            }
+            sortedSamples = Arrays.copyOf(samples, sampleCount);
+        }
+        Arrays.sort(sortedSamples);
+        int index = (int) Math.ceil(percentile * sortedSamples.length) - 1;
+        return sortedSamples[Math.min(Math.max(index, 0), sortedSamples.length - 1)];
+    }
+}
@@ -0,0 +1,119 @@
+package com.han.rpc.fault.retry;
+
+import com.han.rpc.model.RpcResponse;
+import com.han.rpc.server.tcp.VertxTcpClient;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntToLongFunction;
+import java.util.function.Supplier;
+
+/**
+ * 异步重试器
+ * 重试间隔通过事件循环的定时器调度，不会让调用线程 sleep；创建后可被多次调用共享
+ */
+@Slf4j
+public class AsyncRetryer {
+
+    /**
+     * 最大尝试次数（包含首次调用）
+     */
+    private final int maxAttempts;
+
+    /**
+     * 第 n 次失败后的基础等待时间（毫秒）
+     */
+    private final IntToLongFunction backoff;
+
+    /**
+     * 抖动比例，实际等待时间在 [基础时间 * (1 - jitter), 基础时间 * (1 + jitter)] 内随机，避免大量调用方同时重试
+     */
+    private final double jitter;
+
+    public AsyncRetryer(int maxAttempts, IntToLongFunction backoff, double jitter) {
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        this.jitter = jitter;
+    }
+
+    /**
+     * 执行异步调用，失败后按退避时间重试
+     * @param supplier 每次尝试时发起的异步调用
+     * @return
+     */
+    public CompletableFuture<RpcResponse> call(Supplier<CompletableFuture<RpcResponse>> supplier) {
+        return call(supplier, null);
+    }
+
+    /**
+     * 执行异步调用，失败后在重试预算内按退避时间重试
+     * @param supplier 每次尝试时发起的异步调用
+     * @param retryBudget 重试预算，为 null 时不限制
+     * @return
+     */
+    public CompletableFuture<RpcResponse> call(Supplier<CompletableFuture<RpcResponse>> supplier, RetryBudget retryBudget) {
+        CompletableFuture<RpcResponse> resultFuture = new CompletableFuture<>();
+        attempt(supplier, retryBudget, 1, resultFuture);
+        return resultFuture;
+    }
+
+    /**
+     * 第 attemptNumber 次尝试
+     * @param supplier
+     * @param retryBudget
+     * @param attemptNumber
+     * @param resultFuture
+     */
+    private void attempt(Supplier<CompletableFuture<RpcResponse>> supplier, RetryBudget retryBudget, int attemptNumber,
+                         CompletableFuture<RpcResponse> resultFuture) {
+        CompletableFuture<RpcResponse> future;
+        try {
+            future = supplier.get();
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        // 调用方取消或超时后，取消正在进行的这次尝试
+        CompletableFuture<RpcResponse> attemptFuture = future;
+        resultFuture.whenComplete((response, throwable) -> attemptFuture.cancel(false));
+        future.whenComplete((response, throwable) -> {
+            if (throwable == null) {
+                if (retryBudget != null) {
+                    retryBudget.deposit();
+                }
+                resultFuture.complete(response);
+                return;
+            }
+            // 调用方已放弃（超时或取消），或已达到最大尝试次数，不再重试
+            if (resultFuture.isDone() || attemptNumber >= maxAttempts) {
+                resultFuture.completeExceptionally(throwable);
+                return;
+            }
+            // 重试预算不足，不再重试
+            if (retryBudget != null && !retryBudget.tryWithdraw()) {
+                log.warn("重试预算不足，放弃重试");
+                resultFuture.completeExceptionally(new RetryBudgetExhaustedException(throwable));
+                return;
+            }
+            long delay = nextDelay(attemptNumber);
+            log.info("重试次数 {}，{} 毫秒后重试", attemptNumber, delay);
+            VertxTcpClient.getVertx().setTimer(delay, id -> {
+                if (!resultFuture.isDone()) {
+                    attempt(supplier, retryBudget, attemptNumber + 1, resultFuture);
+                }
+            });
+        });
+    }
+
+    /**
+     * 计算带抖动的等待时间
+     * @param attemptNumber
+     * @return
+     */
+    private long nextDelay(int attemptNumber) {
+        long baseDelay = backoff.applyAsLong(attemptNumber);
+        double factor = 1 - jitter + 2 * jitter * ThreadLocalRandom.current().nextDouble();
+        // Vert.x 定时器的最小间隔为1毫秒
+        return Math.max(1L, (long) (baseDelay * factor));
+    }
+}
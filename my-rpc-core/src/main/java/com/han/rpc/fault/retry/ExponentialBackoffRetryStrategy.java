@@ -10,30 +10,80 @@ import com.han.rpc.model.RpcResponse;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * 指数退避 - 重试策略
  */
 @Slf4j
 public class ExponentialBackoffRetryStrategy implements RetryStrategy {
+
+    /**
+     * 异步重试的初始等待时间（毫秒）
+     */
+    private static final long INITIAL_INTERVAL_MILLIS = 2000L;
+
+    /**
+     * 异步重试的最大等待时间（毫秒）
+     */
+    private static final long MAX_INTERVAL_MILLIS = 12000L;
+
+    /**
+     * 最大尝试次数
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * 异步重试的抖动比例
+     */
+    private static final double JITTER = 0.5;
+
+    /**
+     * 同步重试器（只构建一次，所有调用共享）
+     */
+    private final Retryer<RpcResponse> retryer = RetryerBuilder.<RpcResponse>newBuilder()
+            // 重试预算不足时不再重试
+            .retryIfException(throwable -> throwable instanceof Exception
+                    && !(throwable instanceof RetryBudgetExhaustedException))
+            .withWaitStrategy(WaitStrategies.exponentialWait(2, 12, TimeUnit.SECONDS))
+            .withStopStrategy(StopStrategies.stopAfterAttempt(MAX_ATTEMPTS))
+            .withRetryListener(new RetryListener() {
+                @Override
+                public <V> void onRetry(Attempt<V> attempt) {
+                    if (attempt.getAttemptNumber() != 1) {
+                        log.info("重试次数 {}", attempt.getAttemptNumber() - 1);
+                    }
+                }
+            })
+            .build();
+
+    /**
+     * 异步重试器（只构建一次，所有调用共享）
+     */
+    private final AsyncRetryer asyncRetryer = new AsyncRetryer(MAX_ATTEMPTS,
+            attemptNumber -> Math.min(INITIAL_INTERVAL_MILLIS << (attemptNumber - 1), MAX_INTERVAL_MILLIS), JITTER);
+
     @Override
     public RpcResponse doRetry(Callable<RpcResponse> callable) throws Exception {
         // 初始重试等待2s，之后每次间隔时间乘2，达到12s后间隔时间保持不变
-        Retryer<RpcResponse> retryer = RetryerBuilder.<RpcResponse>newBuilder()
-                .retryIfExceptionOfType(Exception.class)
-                .retryIfRuntimeException()
-                .withWaitStrategy(WaitStrategies.exponentialWait(2, 12, TimeUnit.SECONDS))
-                .withStopStrategy(StopStrategies.stopAfterAttempt(3))
-                .withRetryListener(new RetryListener() {
-                    @Override
-                    public <V> void onRetry(Attempt<V> attempt) {
-                        if (attempt.getAttemptNumber() != 1) {
-                            log.info("重试次数 {}", attempt.getAttemptNumber() - 1);
-                        }
-                    }
-                })
-                .build();
         return retryer.call(callable);
     }
+
+    @Override
+    public CompletableFuture<RpcResponse> doRetryAsync(Supplier<CompletableFuture<RpcResponse>> supplier) {
+        // 初始重试等待2s，之后每次间隔时间乘2，最多12s，并加入随机抖动，等待期间不占用调用线程
+        return asyncRetryer.call(supplier);
+    }
+
+    @Override
+    public RpcResponse doRetry(Callable<RpcResponse> callable, RetryBudget retryBudget) throws Exception {
+        return retryer.call(retryBudget == null ? callable : retryBudget.wrap(callable));
+    }
+
+    @Override
+    public CompletableFuture<RpcResponse> doRetryAsync(Supplier<CompletableFuture<RpcResponse>> supplier, RetryBudget retryBudget) {
+        return asyncRetryer.call(supplier, retryBudget);
+    }
 }
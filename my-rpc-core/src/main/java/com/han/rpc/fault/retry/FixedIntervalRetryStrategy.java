@@ -10,30 +10,74 @@ import com.han.rpc.model.RpcResponse;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * 固定时间间隔 - 重试策略
  */
 @Slf4j
 public class FixedIntervalRetryStrategy implements RetryStrategy {
+
+    /**
+     * 重试间隔（毫秒）
+     */
+    private static final long INTERVAL_MILLIS = 3000L;
+
+    /**
+     * 最大尝试次数
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * 异步重试的抖动比例
+     */
+    private static final double JITTER = 0.2;
+
+    /**
+     * 同步重试器（只构建一次，所有调用共享）
+     */
+    private final Retryer<RpcResponse> retryer = RetryerBuilder.<RpcResponse>newBuilder()
+            // 重试预算不足时不再重试
+            .retryIfException(throwable -> throwable instanceof Exception
+                    && !(throwable instanceof RetryBudgetExhaustedException))
+            .withWaitStrategy(WaitStrategies.fixedWait(INTERVAL_MILLIS, TimeUnit.MILLISECONDS))
+            .withStopStrategy(StopStrategies.stopAfterAttempt(MAX_ATTEMPTS))
+            .withRetryListener(new RetryListener() {
+                @Override
+                public <V> void onRetry(Attempt<V> attempt) {
+                    if (attempt.getAttemptNumber() != 1) {
+                        log.info("重试次数 {}", attempt.getAttemptNumber() - 1);
+                    }
+                }
+            })
+            .build();
+
+    /**
+     * 异步重试器（只构建一次，所有调用共享）
+     */
+    private final AsyncRetryer asyncRetryer = new AsyncRetryer(MAX_ATTEMPTS, attemptNumber -> INTERVAL_MILLIS, JITTER);
+
     @Override
     public RpcResponse doRetry(Callable<RpcResponse> callable) throws Exception {
         // 每3秒重试一次，总共执行3次就不再重试
-        Retryer<RpcResponse> retryer = RetryerBuilder.<RpcResponse>newBuilder()
-                .retryIfExceptionOfType(Exception.class)
-                .retryIfRuntimeException()
-                .withWaitStrategy(WaitStrategies.fixedWait(3L, TimeUnit.SECONDS))
-                .withStopStrategy(StopStrategies.stopAfterAttempt(3))
-                .withRetryListener(new RetryListener() {
-                    @Override
-                    public <V> void onRetry(Attempt<V> attempt) {
-                        if (attempt.getAttemptNumber() != 1) {
-                            log.info("重试次数 {}", attempt.getAttemptNumber() - 1);
-                        }
-                    }
-                })
-                .build();
         return retryer.call(callable);
     }
+
+    @Override
+    public CompletableFuture<RpcResponse> doRetryAsync(Supplier<CompletableFuture<RpcResponse>> supplier) {
+        // 约每3秒（带抖动）重试一次，总共执行3次就不再重试，等待期间不占用调用线程
+        return asyncRetryer.call(supplier);
+    }
+
+    @Override
+    public RpcResponse doRetry(Callable<RpcResponse> callable, RetryBudget retryBudget) throws Exception {
+        return retryer.call(retryBudget == null ? callable : retryBudget.wrap(callable));
+    }
+
+    @Override
+    public CompletableFuture<RpcResponse> doRetryAsync(Supplier<CompletableFuture<RpcResponse>> supplier, RetryBudget retryBudget) {
+        return asyncRetryer.call(supplier, retryBudget);
+    }
 }
@@ -3,6 +3,8 @@ package com.han.rpc.fault.retry;
 import com.han.rpc.model.RpcResponse;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 /**
  * 不重试 - 重试策略
@@ -12,4 +14,15 @@ public class NoRetryStrategy implements RetryStrategy {
     public RpcResponse doRetry(Callable<RpcResponse> callable) throws Exception {
         return callable.call();
     }
+
+    @Override
+    public CompletableFuture<RpcResponse> doRetryAsync(Supplier<CompletableFuture<RpcResponse>> supplier) {
+        return supplier.get();
+    }
+
+    @Override
+    public CompletableFuture<RpcResponse> doRetryAsync(Supplier<CompletableFuture<RpcResponse>> supplier, RetryBudget retryBudget) {
+        // 不重试，无需消耗预算
+        return supplier.get();
+    }
 }
@@ -0,0 +1,196 @@
+package com.han.rpc.fault.retry;
+
+import com.han.rpc.RpcApplication;
+import com.han.rpc.config.RpcConfig;
+import com.han.rpc.model.RpcResponse;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 重试预算（令牌桶，每个服务一个）
+ * 每次调用成功存入 ratio 个令牌，每次重试消耗 1 个令牌，令牌数不超过桶容量，
+ * 即重试次数不能超过近期成功请求数的 ratio 倍。服务集群故障时成功请求变少，重试随之被限制，避免重试风暴放大故障
+ */
+public class RetryBudget {
+
+    /**
+     * 每个服务的重试预算：服务键名 => 重试预算
+     */
+    private static final Map<String, RetryBudget> RETRY_BUDGET_MAP = new ConcurrentHashMap<>();
+
+    /**
+     * 令牌精度（内部以千分之一个令牌为单位计数，避免浮点运算）
+     */
+    private static final long TOKEN_SCALE = 1000L;
+
+    /**
+     * 每次成功存入的令牌数（千分之一个令牌）
+     */
+    private final long depositAmount;
+
+    /**
+     * 桶容量（千分之一个令牌）
+     */
+    private final long maxBalance;
+
+    /**
+     * 当前令牌数（千分之一个令牌）
+     */
+    private final AtomicLong balance;
+
+    /**
+     * 成功请求数
+     */
+    private final LongAdder successCount = new LongAdder();
+
+    /**
+     * 允许的重试次数
+     */
+    private final LongAdder retryCount = new LongAdder();
+
+    /**
+     * 因预算不足被拒绝的重试次数
+     */
+    private final LongAdder rejectedRetryCount = new LongAdder();
+
+    /**
+     * @param ratio     重试次数占成功请求数的最大比例，例如 0.1
+     * @param maxTokens 桶容量，即允许的最大突发重试次数
+     */
+    public RetryBudget(double ratio, int maxTokens) {
+        this.depositAmount = (long) (ratio * TOKEN_SCALE);
+        this.maxBalance = maxTokens * TOKEN_SCALE;
+        // 初始时桶是满的，允许少量重试
+        this.balance = new AtomicLong(maxBalance);
+    }
+
+    /**
+     * 获取服务的重试预算（使用全局配置创建）
+     * @param serviceKey 服务键名
+     * @return
+     */
+    public static RetryBudget getInstance(String serviceKey) {
+        return RETRY_BUDGET_MAP.computeIfAbsent(serviceKey, key -> {
+            RpcConfig rpcConfig = RpcApplication.getRpcConfig();
+            return new RetryBudget(rpcConfig.getRetryBudgetRatio(), rpcConfig.getRetryBudgetMaxTokens());
+        });
+    }
+
+    /**
+     * 获取所有服务的重试预算（用于监控）
+     * @return
+     */
+    public static Map<String, RetryBudget> getAll() {
+        return Collections.unmodifiableMap(RETRY_BUDGET_MAP);
+    }
+
+    /**
+     * 调用成功，存入令牌
+     */
+    public void deposit() {
+        successCount.increment();
+        balance.accumulateAndGet(depositAmount, (current, amount) -> Math.min(current + amount, maxBalance));
+    }
+
+    /**
+     * 尝试消耗一个令牌用于重试
+     * @return 是否允许重试
+     */
+    public boolean tryWithdraw() {
+        while (true) {
+            long current = balance.get();
+            if (current < TOKEN_SCALE) {
+                rejectedRetryCount.increment();
+                return false;
+            }
+            if (balance.compareAndSet(current, current - TOKEN_SCALE)) {
+                retryCount.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 包装同步调用：成功时存入令牌，重试前消耗令牌，预算不足时抛出 RetryBudgetExhaustedException 终止重试
+     * @param callable
+     * @return
+     */
+    public Callable<RpcResponse> wrap(Callable<RpcResponse> callable) {
+        AtomicInteger attemptCount = new AtomicInteger();
+        Exception[] lastException = new Exception[1];
+        return () -> {
+            if (attemptCount.getAndIncrement() > 0 && !tryWithdraw()) {
+                throw new RetryBudgetExhaustedException(lastException[0]);
+            }
+            try {
+                RpcResponse rpcResponse = callable.call();
+                deposit();
+                return rpcResponse;
+            } catch (Exception e) {
+                lastException[0] = e;
+                throw e;
+            }
+        };
+    }
+
+    /**
+     * 包装异步调用：成功时存入令牌，重试前消耗令牌，预算不足时返回 RetryBudgetExhaustedException 终止重试
+     * @param supplier
+     * @return
+     */
+    public Supplier<CompletableFuture<RpcResponse>> wrapAsync(Supplier<CompletableFuture<RpcResponse>> supplier) {
+        AtomicInteger attemptCount = new AtomicInteger();
+        Throwable[] lastThrowable = new Throwable[1];
+        return () -> {
+            if (attemptCount.getAndIncrement() > 0 && !tryWithdraw()) {
+                return CompletableFuture.failedFuture(new RetryBudgetExhaustedException(lastThrowable[0]));
+            }
+            CompletableFuture<RpcResponse> future = supplier.get();
+            future.whenComplete((rpcResponse, throwable) -> {
+                if (throwable == null) {
+                    deposit();
+                } else {
+                    lastThrowable[0] = throwable;
+                }
+            });
+            // 返回原始的 future，重试策略取消本次尝试时能取消底层请求
+            return future;
+        };
+    }
+
+    /**
+     * 获取当前可用的重试次数
+     * @return
+     */
+    public double getAvailableTokens() {
+        return (double) balance.get() / TOKEN_SCALE;
+    }
+
+    public long getSuccessCount() {
+        return successCount.sum();
+    }
+
+    public long getRetryCount() {
+        return retryCount.sum();
+    }
+
+    public long getRejectedRetryCount() {
+        return rejectedRetryCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "RetryBudget{availableTokens=" + getAvailableTokens()
+                + ", successCount=" + getSuccessCount()
+                + ", retryCount=" + getRetryCount()
+                + ", rejectedRetryCount=" + getRejectedRetryCount() + "}";
+    }
+}
@@ -0,0 +1,11 @@
+package com.han.rpc.fault.retry;
+
+/**
+ * 重试预算不足异常（不再重试，cause 为最后一次调用的异常）
+ */
+public class RetryBudgetExhaustedException extends RuntimeException {
+
+    public RetryBudgetExhaustedException(Throwable cause) {
+        super("重试预算不足，放弃重试", cause);
+    }
+}
@@ -3,6 +3,10 @@ package com.han.rpc.fault.retry;
 import com.han.rpc.model.RpcResponse;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 /**
  * 重试策略
@@ -17,4 +21,58 @@ public interface RetryStrategy {
      * @throws Exception
      */
     RpcResponse doRetry(Callable<RpcResponse> callable) throws Exception;
+
+    /**
+     * 异步重试
+     * 默认实现在公共线程池中执行同步重试，内置策略均重写为基于事件循环定时器的非阻塞实现
+     *
+     * @param supplier 每次尝试时发起的异步调用
+     * @return
+     */
+    default CompletableFuture<RpcResponse> doRetryAsync(Supplier<CompletableFuture<RpcResponse>> supplier) {
+        // 记录正在进行的尝试，调用方取消时一并取消
+        AtomicReference<CompletableFuture<RpcResponse>> attemptFutureRef = new AtomicReference<>();
+        CompletableFuture<RpcResponse> resultFuture = CompletableFuture.supplyAsync(() -> {
+            try {
+                return doRetry(() -> {
+                    CompletableFuture<RpcResponse> attemptFuture = supplier.get();
+                    attemptFutureRef.set(attemptFuture);
+                    return attemptFuture.get();
+                });
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        });
+        resultFuture.whenComplete((rpcResponse, throwable) -> {
+            CompletableFuture<RpcResponse> attemptFuture = attemptFutureRef.get();
+            if (attemptFuture != null) {
+                attemptFuture.cancel(false);
+            }
+        });
+        return resultFuture;
+    }
+
+    /**
+     * 在重试预算内重试
+     * 默认实现通过包装调用来存入和消耗令牌，预算不足时抛出 RetryBudgetExhaustedException
+     *
+     * @param callable
+     * @param retryBudget 重试预算，为 null 时不限制
+     * @return
+     * @throws Exception
+     */
+    default RpcResponse doRetry(Callable<RpcResponse> callable, RetryBudget retryBudget) throws Exception {
+        return doRetry(retryBudget == null ? callable : retryBudget.wrap(callable));
+    }
+
+    /**
+     * 在重试预算内异步重试
+     *
+     * @param supplier 每次尝试时发起的异步调用
+     * @param retryBudget 重试预算，为 null 时不限制
+     * @return
+     */
+    default CompletableFuture<RpcResponse> doRetryAsync(Supplier<CompletableFuture<RpcResponse>> supplier, RetryBudget retryBudget) {
+        return doRetryAsync(retryBudget == null ? supplier : retryBudget.wrapAsync(supplier));
+    }
 }
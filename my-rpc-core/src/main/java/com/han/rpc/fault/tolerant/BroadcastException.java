@@ -0,0 +1,24 @@
+package com.han.rpc.fault.tolerant;
+
+import java.util.Map;
+
+/**
+ * 广播调用异常（部分或全部服务节点调用失败）
+ * 携带每个服务节点的结果，调用方可以据此判断哪些节点已经执行成功
+ */
+public class BroadcastException extends RuntimeException {
+
+    /**
+     * 每个服务节点的结果：服务节点地址 => 返回值（成功）或异常（失败），按注册中心发现的顺序
+     */
+    private final Map<String, Object> broadcastResults;
+
+    public BroadcastException(String message, Map<String, Object> broadcastResults) {
+        super(message);
+        this.broadcastResults = broadcastResults;
+    }
+
+    public Map<String, Object> getBroadcastResults() {
+        return broadcastResults;
+    }
+}
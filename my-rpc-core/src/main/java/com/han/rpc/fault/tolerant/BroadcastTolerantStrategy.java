@@ -0,0 +1,83 @@
+package com.han.rpc.fault.tolerant;
+
+import com.han.rpc.model.RpcRequest;
+import com.han.rpc.model.RpcResponse;
+import com.han.rpc.model.ServiceMetaInfo;
+import com.han.rpc.proxy.ServiceInvoker;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * 广播调用 - 集群调用容错策略
+ * 并行调用注册中心发现的所有服务节点，任意节点失败时汇总所有失败节点和异常后失败，适合缓存失效通知等需要每个节点都执行的调用。
+ * 结果合并约定：无论成功与否，每个服务节点的结果按 服务节点地址 => 返回值（成功）或异常（失败）写入上下文的 BROADCAST_RESULTS，
+ * 服务代理再放入调用线程的 RpcContext，调用方通过 RpcContext.getBroadcastResults() 获取；
+ * 全部成功时返回第一个节点（按注册中心发现的顺序）的响应，任意节点失败时抛出携带同样结果的 BroadcastException
+ */
+public class BroadcastTolerantStrategy implements ClusterTolerantStrategy {
+    @Override
+    public CompletableFuture<RpcResponse> doInvokeAsync(Map<String, Object> context) {
+        RpcRequest rpcRequest = (RpcRequest) context.get(TolerantContextKeys.RPC_REQUEST);
+        // 已熔断的节点也需要调用，由熔断器直接失败并计入失败节点
+        List<ServiceMetaInfo> serviceMetaInfoList =
+                (List<ServiceMetaInfo>) context.get(TolerantContextKeys.DISCOVERED_SERVICE_META_INFO_LIST);
+        long deadline = (Long) context.get(TolerantContextKeys.DEADLINE);
+
+        List<CompletableFuture<RpcResponse>> futureList = new ArrayList<>();
+        for (ServiceMetaInfo serviceMetaInfo : serviceMetaInfoList) {
+            futureList.add(invokeAsync(rpcRequest, serviceMetaInfo, deadline));
+        }
+        CompletableFuture<RpcResponse> resultFuture = CompletableFuture
+                .allOf(futureList.stream()
+                        // 不因单个节点失败提前结束，等待所有节点返回
+                        .map(future -> future.handle((rpcResponse, throwable) -> null))
+                        .toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    Map<String, Object> broadcastResults = new LinkedHashMap<>();
+                    List<String> failedServiceAddressList = new ArrayList<>();
+                    List<Throwable> throwableList = new ArrayList<>();
+                    for (int i = 0; i < futureList.size(); i++) {
+                        String serviceAddress = serviceMetaInfoList.get(i).getServiceAddress();
+                        futureList.get(i).handle((rpcResponse, throwable) -> {
+                            if (throwable == null) {
+                                broadcastResults.put(serviceAddress, rpcResponse.getData());
+                            } else {
+                                Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                                        ? throwable.getCause() : throwable;
+                                broadcastResults.put(serviceAddress, cause);
+                                failedServiceAddressList.add(serviceAddress);
+                                throwableList.add(cause);
+                            }
+                            return null;
+                        });
+                    }
+                    context.put(TolerantContextKeys.BROADCAST_RESULTS, broadcastResults);
+                    if (!failedServiceAddressList.isEmpty()) {
+                        BroadcastException exception = new BroadcastException(String.format("广播调用失败，%d/%d 个服务节点失败: %s",
+                                failedServiceAddressList.size(), futureList.size(), failedServiceAddressList), broadcastResults);
+                        throwableList.forEach(exception::addSuppressed);
+                        throw new CompletionException(exception);
+                    }
+                    return futureList.get(0).join();
+                });
+        // 调用方超时取消时，取消所有节点的请求
+        resultFuture.whenComplete((rpcResponse, throwable) -> futureList.forEach(future -> future.cancel(false)));
+        return resultFuture;
+    }
+
+    /**
+     * 调用单个服务节点
+     * @param rpcRequest
+     * @param serviceMetaInfo
+     * @param deadline
+     * @return
+     */
+    protected CompletableFuture<RpcResponse> invokeAsync(RpcRequest rpcRequest, ServiceMetaInfo serviceMetaInfo, long deadline) {
+        return ServiceInvoker.invokeAsync(rpcRequest, serviceMetaInfo, deadline);
+    }
+}
@@ -0,0 +1,26 @@
+package com.han.rpc.fault.tolerant;
+
+import com.han.rpc.model.RpcResponse;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 集群调用容错策略
+ * 不同于先调用单个节点、失败后再处理的容错策略，由策略自己决定向哪些节点发起调用（例如并行调用多个节点），
+ * 服务代理不再进行重试，调用失败时直接通知外层调用方
+ */
+public interface ClusterTolerantStrategy extends TolerantStrategy {
+
+    /**
+     * 发起集群调用
+     * @param context 上下文，键名见 TolerantContextKeys
+     * @return
+     */
+    CompletableFuture<RpcResponse> doInvokeAsync(Map<String, Object> context);
+
+    @Override
+    default RpcResponse doTolerant(Map<String, Object> context, Exception e) {
+        throw new RuntimeException("服务报错", e);
+    }
+}
@@ -1,16 +1,71 @@
 package com.han.rpc.fault.tolerant;
 
+import cn.hutool.core.collection.CollUtil;
+import com.han.rpc.fault.circuitbreaker.CircuitBreaker;
+import com.han.rpc.loadbalancer.LoadBalancer;
+import com.han.rpc.model.RpcRequest;
 import com.han.rpc.model.RpcResponse;
+import com.han.rpc.model.ServiceMetaInfo;
+import com.han.rpc.proxy.ServiceInvoker;
+import lombok.extern.slf4j.Slf4j;
 
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * 转移到其他服务节点 - 容错策略
+ * 通过负载均衡器在未尝试过的节点中重新选择，直到调用成功、没有可用节点或超过本次调用的截止时间
  */
+@Slf4j
 public class FailOverTolerantStrategy implements TolerantStrategy {
     @Override
     public RpcResponse doTolerant(Map<String, Object> context, Exception e) {
-        // todo 调用其他可用的服务节点
-        return null;
+        if (context == null || !context.containsKey(TolerantContextKeys.SERVICE_META_INFO_LIST)) {
+            throw new RuntimeException("服务报错", e);
+        }
+        RpcRequest rpcRequest = (RpcRequest) context.get(TolerantContextKeys.RPC_REQUEST);
+        List<ServiceMetaInfo> serviceMetaInfoList =
+                (List<ServiceMetaInfo>) context.get(TolerantContextKeys.SERVICE_META_INFO_LIST);
+        LoadBalancer loadBalancer = (LoadBalancer) context.get(TolerantContextKeys.LOAD_BALANCER);
+        Map<String, Object> requestParams = (Map<String, Object>) context.get(TolerantContextKeys.REQUEST_PARAMS);
+        long deadline = (Long) context.get(TolerantContextKeys.DEADLINE);
+
+        // 记录已尝试过的节点，首次选中的节点已经失败
+        Set<String> triedServiceAddressSet = (Set<String>) context.computeIfAbsent(
+                TolerantContextKeys.TRIED_SERVICE_ADDRESS_SET, key -> new HashSet<String>());
+        ServiceMetaInfo selectedServiceMetaInfo =
+                (ServiceMetaInfo) context.get(TolerantContextKeys.SELECTED_SERVICE_META_INFO);
+        if (selectedServiceMetaInfo != null) {
+            triedServiceAddressSet.add(selectedServiceMetaInfo.getServiceAddress());
+        }
+
+        Exception lastException = e;
+        while (true) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                log.warn("故障转移已超过调用截止时间，停止转移");
+                break;
+            }
+            // 排除已尝试过的节点和已熔断的节点后重新负载均衡
+            List<ServiceMetaInfo> candidateList = CircuitBreaker.filterAvailable(serviceMetaInfoList.stream()
+                    .filter(serviceMetaInfo -> !triedServiceAddressSet.contains(serviceMetaInfo.getServiceAddress()))
+                    .collect(Collectors.toList()));
+            if (CollUtil.isEmpty(candidateList)) {
+                log.warn("故障转移没有其他可用的服务节点");
+                break;
+            }
+            ServiceMetaInfo failOverServiceMetaInfo = loadBalancer.select(requestParams, candidateList);
+            triedServiceAddressSet.add(failOverServiceMetaInfo.getServiceAddress());
+            log.info("故障转移到服务节点 {}", failOverServiceMetaInfo.getServiceAddress());
+            try {
+                return ServiceInvoker.invokeAsync(rpcRequest, failOverServiceMetaInfo, deadline).get();
+            } catch (Exception ex) {
+                lastException = ex;
+            }
+        }
+        throw new RuntimeException("服务报错，故障转移失败", lastException);
     }
 }
@@ -0,0 +1,84 @@
+package com.han.rpc.fault.tolerant;
+
+import com.han.rpc.RpcApplication;
+import com.han.rpc.loadbalancer.LoadBalancer;
+import com.han.rpc.model.RpcRequest;
+import com.han.rpc.model.RpcResponse;
+import com.han.rpc.model.ServiceMetaInfo;
+import com.han.rpc.proxy.ServiceInvoker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 并行调用 - 集群调用容错策略
+ * 同时向 forks 个不同的服务节点发送请求，采用最先成功的响应并取消其他请求，全部失败时才失败，适合对延迟敏感的读请求
+ */
+public class ForkingTolerantStrategy implements ClusterTolerantStrategy {
+    @Override
+    public CompletableFuture<RpcResponse> doInvokeAsync(Map<String, Object> context) {
+        RpcRequest rpcRequest = (RpcRequest) context.get(TolerantContextKeys.RPC_REQUEST);
+        List<ServiceMetaInfo> serviceMetaInfoList =
+                (List<ServiceMetaInfo>) context.get(TolerantContextKeys.SERVICE_META_INFO_LIST);
+        ServiceMetaInfo selectedServiceMetaInfo =
+                (ServiceMetaInfo) context.get(TolerantContextKeys.SELECTED_SERVICE_META_INFO);
+        LoadBalancer loadBalancer = (LoadBalancer) context.get(TolerantContextKeys.LOAD_BALANCER);
+        Map<String, Object> requestParams = (Map<String, Object>) context.get(TolerantContextKeys.REQUEST_PARAMS);
+        long deadline = (Long) context.get(TolerantContextKeys.DEADLINE);
+
+        // 通过负载均衡器选出 forks 个不同的节点，首个节点为已选中的节点
+        int forks = Math.max(getForks(), 1);
+        List<ServiceMetaInfo> forkServiceMetaInfoList = new ArrayList<>();
+        forkServiceMetaInfoList.add(selectedServiceMetaInfo);
+        List<ServiceMetaInfo> candidateList = new ArrayList<>(serviceMetaInfoList);
+        while (forkServiceMetaInfoList.size() < forks) {
+            candidateList = candidateList.stream()
+                    .filter(serviceMetaInfo -> !forkServiceMetaInfoList.contains(serviceMetaInfo))
+                    .collect(Collectors.toList());
+            if (candidateList.isEmpty()) {
+                break;
+            }
+            forkServiceMetaInfoList.add(loadBalancer.select(requestParams, candidateList));
+        }
+
+        CompletableFuture<RpcResponse> resultFuture = new CompletableFuture<>();
+        // 未结束的请求数，全部失败时整个调用才失败
+        AtomicInteger pendingCount = new AtomicInteger(forkServiceMetaInfoList.size());
+        for (ServiceMetaInfo serviceMetaInfo : forkServiceMetaInfoList) {
+            CompletableFuture<RpcResponse> future = invokeAsync(rpcRequest, serviceMetaInfo, deadline);
+            // 调用结束后取消其他仍未完成的请求
+            resultFuture.whenComplete((rpcResponse, throwable) -> future.cancel(false));
+            future.whenComplete((rpcResponse, throwable) -> {
+                if (throwable == null) {
+                    resultFuture.complete(rpcResponse);
+                } else if (pendingCount.decrementAndGet() == 0) {
+                    resultFuture.completeExceptionally(throwable);
+                }
+            });
+        }
+        return resultFuture;
+    }
+
+    /**
+     * 获取并行调用的节点数
+     * @return
+     */
+    protected int getForks() {
+        return RpcApplication.getRpcConfig().getForks();
+    }
+
+    /**
+     * 调用单个服务节点
+     * @param rpcRequest
+     * @param serviceMetaInfo
+     * @param deadline
+     * @return
+     */
+    protected CompletableFuture<RpcResponse> invokeAsync(RpcRequest rpcRequest, ServiceMetaInfo serviceMetaInfo, long deadline) {
+        return ServiceInvoker.invokeAsync(rpcRequest, serviceMetaInfo, deadline);
+    }
+}
@@ -0,0 +1,51 @@
+package com.han.rpc.fault.tolerant;
+
+/**
+ * 容错策略上下文键名常量
+ */
+public interface TolerantContextKeys {
+    /**
+     * 本次调用的请求（RpcRequest）
+     */
+    String RPC_REQUEST = "rpcRequest";
+
+    /**
+     * 候选服务节点列表，即服务节点子集中未熔断的节点（List&lt;ServiceMetaInfo&gt;）
+     */
+    String SERVICE_META_INFO_LIST = "serviceMetaInfoList";
+
+    /**
+     * 注册中心发现的全部服务节点列表，不受服务节点子集限制，包括已熔断的节点（List&lt;ServiceMetaInfo&gt;）
+     */
+    String DISCOVERED_SERVICE_META_INFO_LIST = "discoveredServiceMetaInfoList";
+
+    /**
+     * 首次选中并调用失败的服务节点（ServiceMetaInfo）
+     */
+    String SELECTED_SERVICE_META_INFO = "selectedServiceMetaInfo";
+
+    /**
+     * 已经尝试过的服务节点地址集合（Set&lt;String&gt;）
+     */
+    String TRIED_SERVICE_ADDRESS_SET = "triedServiceAddressSet";
+
+    /**
+     * 负载均衡器（LoadBalancer）
+     */
+    String LOAD_BALANCER = "loadBalancer";
+
+    /**
+     * 负载均衡请求参数（Map&lt;String, Object&gt;）
+     */
+    String REQUEST_PARAMS = "requestParams";
+
+    /**
+     * 本次调用的截止时间（毫秒时间戳，Long）
+     */
+    String DEADLINE = "deadline";
+
+    /**
+     * 广播调用中每个服务节点的结果，由广播策略在所有节点返回后写入（Map&lt;String, Object&gt;，服务节点地址 => 返回值或异常）
+     */
+    String BROADCAST_RESULTS = "broadcastResults";
+}
@@ -23,4 +23,14 @@ public interface TolerantStrategyKeys {
      * 故障转移
      */
     String FAIL_OVER = "failOver";
+
+    /**
+     * 并行调用多个节点，取最先成功的响应
+     */
+    String FORKING = "forking";
+
+    /**
+     * 广播调用所有节点
+     */
+    String BROADCAST = "broadcast";
 }
@@ -2,19 +2,23 @@ package com.han.rpc.loadbalancer;
 
 import cn.hutool.core.collection.CollUtil;
 import com.han.rpc.model.ServiceMetaInfo;
+import com.han.rpc.registry.ServiceSnapshot;
 
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * 一致性哈希负载均衡器
+ * 正在预热的节点按 有效权重 / 权重 的比例承接映射到它的请求，其余请求顺延到环上的下一个节点，预热结束后恢复正常映射
  */
 public class ConsistentHashLoadBalancer implements LoadBalancer {
     /**
-     * 一致性Hash环，存放虚拟节点
+     * 每个服务的一致性Hash环（存放虚拟节点）：服务键名 => 节点快照版本号及对应的Hash环
      */
-    private final TreeMap<Integer, ServiceMetaInfo> virtualNodes = new TreeMap<>();
+    private final Map<String, HashRing> hashRingMap = new ConcurrentHashMap<>();
 
     /**
      * 虚拟节点数
@@ -30,14 +34,7 @@ public class ConsistentHashLoadBalancer implements LoadBalancer {
         if (serviceMetaInfoList.size() == 1) {
             return serviceMetaInfoList.get(0);
         }
-        // 构建虚拟节点环，每次调用select都会重新构造节点环，这是为了即时处理节点的变化
-        virtualNodes.clear();
-        for (ServiceMetaInfo serviceMetaInfo : serviceMetaInfoList) {
-            for (int i = 0; i < VIRTUAL_NODE_NUM; i++) {
-                int hash = getHash(serviceMetaInfo.getServiceAddress() + "#" + i);
-                virtualNodes.put(hash, serviceMetaInfo);
-            }
-        }
+        TreeMap<Integer, ServiceMetaInfo> virtualNodes = getVirtualNodes(serviceMetaInfoList);
         // 获取调用请求的hash值
         int hash = getHash(requestParams);
         Map.Entry<Integer, ServiceMetaInfo> entry = virtualNodes.ceilingEntry(hash);
@@ -45,7 +42,65 @@ public class ConsistentHashLoadBalancer implements LoadBalancer {
             // 没有大于等于调用请求节点hash值的虚拟节点，取环首部第一个节点
             entry = virtualNodes.firstEntry();
         }
-        return entry.getValue();
+        ServiceMetaInfo selected = entry.getValue();
+        int weight = selected.getWeight();
+        if (weight > 0 && ThreadLocalRandom.current().nextInt(weight) >= getWeight(selected)) {
+            return nextNode(virtualNodes, entry.getKey(), selected);
+        }
+        return selected;
+    }
+
+    /**
+     * 沿环顺时针查找下一个不同的节点
+     * @param virtualNodes
+     * @param hash 当前虚拟节点的hash值
+     * @param current 当前节点
+     * @return
+     */
+    private ServiceMetaInfo nextNode(TreeMap<Integer, ServiceMetaInfo> virtualNodes, int hash, ServiceMetaInfo current) {
+        for (ServiceMetaInfo serviceMetaInfo : virtualNodes.tailMap(hash, false).values()) {
+            if (serviceMetaInfo != current) {
+                return serviceMetaInfo;
+            }
+        }
+        for (ServiceMetaInfo serviceMetaInfo : virtualNodes.headMap(hash, false).values()) {
+            if (serviceMetaInfo != current) {
+                return serviceMetaInfo;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 获取虚拟节点环
+     * 服务列表是注册中心缓存的快照时，按快照版本号复用已构建的环，节点变化后版本号改变才重新构建；
+     * 其他列表（例如过滤掉熔断节点后的列表）每次调用重新构建
+     * @param serviceMetaInfoList
+     * @return
+     */
+    private TreeMap<Integer, ServiceMetaInfo> getVirtualNodes(List<ServiceMetaInfo> serviceMetaInfoList) {
+        if (!(serviceMetaInfoList instanceof ServiceSnapshot)) {
+            return buildVirtualNodes(serviceMetaInfoList);
+        }
+        long version = ((ServiceSnapshot) serviceMetaInfoList).getVersion();
+        String serviceKey = serviceMetaInfoList.get(0).getServiceKey();
+        HashRing hashRing = hashRingMap.get(serviceKey);
+        if (hashRing == null || hashRing.version != version) {
+            hashRing = new HashRing(version, buildVirtualNodes(serviceMetaInfoList));
+            hashRingMap.put(serviceKey, hashRing);
+        }
+        return hashRing.virtualNodes;
+    }
+
+    private TreeMap<Integer, ServiceMetaInfo> buildVirtualNodes(List<ServiceMetaInfo> serviceMetaInfoList) {
+        TreeMap<Integer, ServiceMetaInfo> virtualNodes = new TreeMap<>();
+        for (ServiceMetaInfo serviceMetaInfo : serviceMetaInfoList) {
+            for (int i = 0; i < VIRTUAL_NODE_NUM; i++) {
+                int hash = getHash(serviceMetaInfo.getServiceAddress() + "#" + i);
+                virtualNodes.put(hash, serviceMetaInfo);
+            }
+        }
+        return virtualNodes;
     }
 
     /**
@@ -56,4 +111,21 @@ public class ConsistentHashLoadBalancer implements LoadBalancer {
     private int getHash(Object obj) {
         return obj.hashCode();
     }
+
+    /**
+     * 一致性Hash环（构建后不再修改，可被多个线程同时读取）
+     */
+    private static class HashRing {
+        /**
+         * 构建时的节点快照版本号
+         */
+        private final long version;
+
+        private final TreeMap<Integer, ServiceMetaInfo> virtualNodes;
+
+        private HashRing(long version, TreeMap<Integer, ServiceMetaInfo> virtualNodes) {
+            this.version = version;
+            this.virtualNodes = virtualNodes;
+        }
+    }
 }
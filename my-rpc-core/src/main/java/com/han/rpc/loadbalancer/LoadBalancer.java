@@ -17,4 +17,26 @@ public interface LoadBalancer {
      * @return
      */
     ServiceMetaInfo select(Map<String, Object> requestParams, List<ServiceMetaInfo> serviceMetaInfoList);
+
+    /**
+     * 获取节点的有效权重（考虑预热）
+     * 节点注册后的预热时长内，权重随运行时间线性增长，避免冷启动（JIT 未预热）的节点立刻承接全部流量
+     * @param serviceMetaInfo 服务节点
+     * @return
+     */
+    default int getWeight(ServiceMetaInfo serviceMetaInfo) {
+        int weight = serviceMetaInfo.getWeight();
+        long warmup = serviceMetaInfo.getWarmup();
+        long registerTime = serviceMetaInfo.getRegisterTime();
+        if (weight <= 0 || warmup <= 0 || registerTime <= 0) {
+            return weight;
+        }
+        long uptime = System.currentTimeMillis() - registerTime;
+        if (uptime >= warmup) {
+            return weight;
+        }
+        // 时钟偏差导致运行时间为负时，按刚启动处理
+        int warmupWeight = (int) (Math.max(uptime, 0) * weight / warmup);
+        return Math.max(warmupWeight, 1);
+    }
 }
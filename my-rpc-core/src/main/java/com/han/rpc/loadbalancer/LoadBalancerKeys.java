@@ -16,4 +16,8 @@ public interface LoadBalancerKeys {
      * 一致性Hash
      */
     String CONSISTENT_HASH = "consistentHash";
+    /**
+     * 平滑加权轮询
+     */
+    String WEIGHTED_ROUND_ROBIN = "weightedRoundRobin";
 }
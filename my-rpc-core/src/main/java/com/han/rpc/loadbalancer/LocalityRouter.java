@@ -0,0 +1,191 @@
+package com.han.rpc.loadbalancer;
+
+import cn.hutool.core.util.StrUtil;
+import com.han.rpc.RpcApplication;
+import com.han.rpc.config.LocalityConfig;
+import com.han.rpc.config.RpcConfig;
+import com.han.rpc.model.ServiceMetaInfo;
+import com.han.rpc.registry.ServiceSnapshot;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * 就近路由（消费端，在负载均衡之前执行）
+ * 按 同主机 => 同可用区 => 同地域 => 全部节点 的顺序选择范围，范围内可用（未熔断、近期未过载）节点的比例不低于最小健康比例时只使用该范围内的可用节点，
+ * 否则流量溢出到下一个更大的范围，减少跨可用区调用的延迟和流量费用
+ */
+public class LocalityRouter {
+
+    /**
+     * 每个服务按范围划分的节点：服务键名 => 节点快照版本号及对应的划分
+     */
+    private static final Map<String, Tiers> TIERS_MAP = new ConcurrentHashMap<>();
+
+    /**
+     * 近期过载的节点：服务节点地址 => 过载状态的截止时间
+     */
+    private static final Map<String, Long> OVERLOAD_MAP = new ConcurrentHashMap<>();
+
+    /**
+     * 就近选择节点
+     * @param serviceMetaInfoList 服务的所有节点（用于计算每个范围内的健康比例）
+     * @param availableList 可用的节点（已过滤掉熔断的节点）
+     * @return 选出范围内的可用节点，未配置本机位置或未开启时返回 availableList
+     */
+    public static List<ServiceMetaInfo> route(List<ServiceMetaInfo> serviceMetaInfoList, List<ServiceMetaInfo> availableList) {
+        return route(serviceMetaInfoList, availableList, RpcApplication.getRpcConfig());
+    }
+
+    /**
+     * 按指定配置就近选择节点
+     * @param serviceMetaInfoList 服务的所有节点（用于计算每个范围内的健康比例）
+     * @param availableList 可用的节点（已过滤掉熔断的节点）
+     * @param rpcConfig 本机位置和就近路由配置
+     * @return
+     */
+    public static List<ServiceMetaInfo> route(List<ServiceMetaInfo> serviceMetaInfoList, List<ServiceMetaInfo> availableList,
+                                              RpcConfig rpcConfig) {
+        LocalityConfig localityConfig = rpcConfig.getLocalityConfig();
+        if (localityConfig == null || !localityConfig.isEnabled() || availableList.isEmpty()
+                || (StrUtil.isBlank(rpcConfig.getHostName()) && StrUtil.isBlank(rpcConfig.getZone()) && StrUtil.isBlank(rpcConfig.getRegion()))) {
+            return availableList;
+        }
+        // 所有节点都可用时不需要逐个判断是否熔断
+        Set<String> availableAddressSet = null;
+        if (availableList != serviceMetaInfoList) {
+            availableAddressSet = new HashSet<>();
+            for (ServiceMetaInfo serviceMetaInfo : availableList) {
+                availableAddressSet.add(serviceMetaInfo.getServiceAddress());
+            }
+        }
+        long now = System.currentTimeMillis();
+        for (List<ServiceMetaInfo> tier : getTiers(serviceMetaInfoList, rpcConfig)) {
+            List<ServiceMetaInfo> healthyList = filterHealthy(tier, availableAddressSet, now);
+            if (healthyList.size() == tier.size()) {
+                return tier;
+            }
+            if (!healthyList.isEmpty() && healthyList.size() >= tier.size() * localityConfig.getMinHealthyRatio()) {
+                return healthyList;
+            }
+        }
+        // 没有足够健康的本地节点，使用所有可用节点，尽量避开近期过载的节点
+        List<ServiceMetaInfo> healthyList = filterHealthy(availableList, null, now);
+        return healthyList.isEmpty() ? availableList : healthyList;
+    }
+
+    /**
+     * 记录节点过载（收到服务端的过载响应时调用），过载状态持续期间按不健康处理
+     * @param serviceAddress 服务节点地址
+     */
+    public static void markOverloaded(String serviceAddress) {
+        LocalityConfig localityConfig = RpcApplication.getRpcConfig().getLocalityConfig();
+        markOverloaded(serviceAddress, localityConfig == null ? new LocalityConfig().getOverloadDuration() : localityConfig.getOverloadDuration());
+    }
+
+    /**
+     * 记录节点过载
+     * @param serviceAddress 服务节点地址
+     * @param overloadDuration 过载状态持续时间（毫秒）
+     */
+    public static void markOverloaded(String serviceAddress, long overloadDuration) {
+        OVERLOAD_MAP.put(serviceAddress, System.currentTimeMillis() + overloadDuration);
+    }
+
+    private static List<ServiceMetaInfo> filterHealthy(List<ServiceMetaInfo> serviceMetaInfoList, Set<String> availableAddressSet, long now) {
+        List<ServiceMetaInfo> healthyList = new ArrayList<>(serviceMetaInfoList.size());
+        for (ServiceMetaInfo serviceMetaInfo : serviceMetaInfoList) {
+            String serviceAddress = serviceMetaInfo.getServiceAddress();
+            if (availableAddressSet != null && !availableAddressSet.contains(serviceAddress)) {
+                continue;
+            }
+            Long overloadedUntil = OVERLOAD_MAP.get(serviceAddress);
+            if (overloadedUntil != null) {
+                if (overloadedUntil > now) {
+                    continue;
+                }
+                OVERLOAD_MAP.remove(serviceAddress, overloadedUntil);
+            }
+            healthyList.add(serviceMetaInfo);
+        }
+        return healthyList;
+    }
+
+    /**
+     * 获取按范围从小到大划分的节点（跳过没有节点的范围）
+     * 服务列表是注册中心缓存的快照时，按快照版本号复用已划分的结果，划分出的每个范围也是快照，负载均衡器可以继续按版本号缓存
+     * @param serviceMetaInfoList
+     * @param rpcConfig
+     * @return
+     */
+    private static List<List<ServiceMetaInfo>> getTiers(List<ServiceMetaInfo> serviceMetaInfoList, RpcConfig rpcConfig) {
+        if (!(serviceMetaInfoList instanceof ServiceSnapshot)) {
+            return buildTiers(serviceMetaInfoList, rpcConfig);
+        }
+        long version = ((ServiceSnapshot) serviceMetaInfoList).getVersion();
+        String serviceKey = serviceMetaInfoList.get(0).getServiceKey();
+        Tiers tiers = TIERS_MAP.get(serviceKey);
+        if (tiers == null || tiers.version != version) {
+            tiers = new Tiers(version, buildTiers(serviceMetaInfoList, rpcConfig));
+            TIERS_MAP.put(serviceKey, tiers);
+        }
+        return tiers.tierList;
+    }
+
+    private static List<List<ServiceMetaInfo>> buildTiers(List<ServiceMetaInfo> serviceMetaInfoList, RpcConfig rpcConfig) {
+        String region = rpcConfig.getRegion();
+        String zone = rpcConfig.getZone();
+        String hostName = rpcConfig.getHostName();
+        Predicate<ServiceMetaInfo> sameRegion = serviceMetaInfo -> StrUtil.isBlank(region)
+                || Objects.equals(region, serviceMetaInfo.getRegion());
+        List<Predicate<ServiceMetaInfo>> predicateList = new ArrayList<>();
+        if (StrUtil.isNotBlank(hostName)) {
+            predicateList.add(serviceMetaInfo -> hostName.equals(serviceMetaInfo.getHostName()));
+        }
+        if (StrUtil.isNotBlank(zone)) {
+            predicateList.add(sameRegion.and(serviceMetaInfo -> zone.equals(serviceMetaInfo.getZone())));
+        }
+        if (StrUtil.isNotBlank(region)) {
+            predicateList.add(sameRegion);
+        }
+        List<List<ServiceMetaInfo>> tierList = new ArrayList<>();
+        int lastTierSize = 0;
+        for (Predicate<ServiceMetaInfo> predicate : predicateList) {
+            List<ServiceMetaInfo> tier = new ArrayList<>();
+            for (ServiceMetaInfo serviceMetaInfo : serviceMetaInfoList) {
+                if (predicate.test(serviceMetaInfo)) {
+                    tier.add(serviceMetaInfo);
+                }
+            }
+            // 没有节点，或与上一个范围的节点相同（例如同主机的节点都在同一个可用区）时跳过
+            if (tier.size() > lastTierSize) {
+                tierList.add(ServiceSnapshot.of(tier));
+                lastTierSize = tier.size();
+            }
+        }
+        return tierList;
+    }
+
+    /**
+     * 按范围划分的节点（划分后不再修改，可被多个线程同时读取）
+     */
+    private static class Tiers {
+        /**
+         * 划分时的节点快照版本号
+         */
+        private final long version;
+
+        private final List<List<ServiceMetaInfo>> tierList;
+
+        private Tiers(long version, List<List<ServiceMetaInfo>> tierList) {
+            this.version = version;
+            this.tierList = tierList;
+        }
+    }
+}
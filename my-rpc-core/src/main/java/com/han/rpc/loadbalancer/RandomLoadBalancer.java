@@ -8,7 +8,7 @@ import java.util.Map;
 import java.util.Random;
 
 /**
- * 随机负载均衡器
+ * 随机负载均衡器（按权重随机）
  */
 public class RandomLoadBalancer implements LoadBalancer {
     private final Random random = new Random();
@@ -23,6 +23,28 @@ public class RandomLoadBalancer implements LoadBalancer {
         if (size == 1) {
             return serviceMetaInfoList.get(0);
         }
+        // 计算总权重，权重都相同时直接随机
+        int totalWeight = 0;
+        boolean sameWeight = true;
+        int[] weights = new int[size];
+        for (int i = 0; i < size; i++) {
+            int weight = Math.max(getWeight(serviceMetaInfoList.get(i)), 0);
+            weights[i] = weight;
+            totalWeight += weight;
+            if (sameWeight && i > 0 && weight != weights[i - 1]) {
+                sameWeight = false;
+            }
+        }
+        if (totalWeight > 0 && !sameWeight) {
+            // 按权重随机：随机数落在哪个节点的权重区间内就选择哪个节点
+            int offset = random.nextInt(totalWeight);
+            for (int i = 0; i < size; i++) {
+                offset -= weights[i];
+                if (offset < 0) {
+                    return serviceMetaInfoList.get(i);
+                }
+            }
+        }
         return serviceMetaInfoList.get(random.nextInt(size));
     }
 }
@@ -9,6 +9,8 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 轮询负载均衡器
+ * 所有节点的有效权重（考虑预热）相同时按顺序轮询；存在权重不同或正在预热的节点时，按平滑加权轮询选择，
+ * 保证默认的负载均衡器也遵守节点权重和预热
  */
 public class RoundRobinLoadBalancer implements LoadBalancer {
     /**
@@ -16,6 +18,11 @@ public class RoundRobinLoadBalancer implements LoadBalancer {
      */
     private final AtomicInteger currentIndex = new AtomicInteger(0);
 
+    /**
+     * 节点权重不同时使用的平滑加权轮询
+     */
+    private final WeightedRoundRobinLoadBalancer weightedRoundRobinLoadBalancer = new WeightedRoundRobinLoadBalancer();
+
     @Override
     public ServiceMetaInfo select(Map<String, Object> requestParams, List<ServiceMetaInfo> serviceMetaInfoList) {
         if (CollUtil.isEmpty(serviceMetaInfoList)) {
@@ -26,7 +33,26 @@ public class RoundRobinLoadBalancer implements LoadBalancer {
         if (size == 1) {
             return serviceMetaInfoList.get(0);
         }
-        int index = currentIndex.getAndIncrement() % size;
+        if (!isSameWeight(serviceMetaInfoList)) {
+            return weightedRoundRobinLoadBalancer.select(requestParams, serviceMetaInfoList);
+        }
+        // 计数器溢出后会变为负数，取模时需保证下标非负
+        int index = Math.floorMod(currentIndex.getAndIncrement(), size);
         return serviceMetaInfoList.get(index);
     }
+
+    /**
+     * 所有节点的有效权重是否相同
+     * @param serviceMetaInfoList
+     * @return
+     */
+    private boolean isSameWeight(List<ServiceMetaInfo> serviceMetaInfoList) {
+        int firstWeight = getWeight(serviceMetaInfoList.get(0));
+        for (int i = 1; i < serviceMetaInfoList.size(); i++) {
+            if (getWeight(serviceMetaInfoList.get(i)) != firstWeight) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -0,0 +1,79 @@
+package com.han.rpc.loadbalancer;
+
+import cn.hutool.core.collection.CollUtil;
+import com.han.rpc.model.ServiceMetaInfo;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 平滑加权轮询负载均衡器（参考 Nginx 的 smooth weighted round-robin）
+ * 每次选择时，所有节点的当前权重加上各自的权重，选出当前权重最大的节点，再将其当前权重减去总权重。
+ * 例如权重为 {5, 1, 1} 时，选择序列为 a a b a c a a，而不是 a a a a a b c，不会集中请求同一个节点
+ */
+public class WeightedRoundRobinLoadBalancer implements LoadBalancer {
+    /**
+     * 每个服务的节点轮询状态：服务键名 => (节点地址 => 节点状态)
+     */
+    private final Map<String, Map<String, WeightedNode>> serviceNodesMap = new ConcurrentHashMap<>();
+
+    @Override
+    public ServiceMetaInfo select(Map<String, Object> requestParams, List<ServiceMetaInfo> serviceMetaInfoList) {
+        if (CollUtil.isEmpty(serviceMetaInfoList)) {
+            return null;
+        }
+        // 只有一个服务，无需轮询
+        if (serviceMetaInfoList.size() == 1) {
+            return serviceMetaInfoList.get(0);
+        }
+        String serviceKey = serviceMetaInfoList.get(0).getServiceKey();
+        Map<String, WeightedNode> nodeMap = serviceNodesMap.computeIfAbsent(serviceKey, key -> new ConcurrentHashMap<>());
+        // 同一个服务的选择需要串行执行，保证当前权重的一致性
+        synchronized (nodeMap) {
+            int totalWeight = 0;
+            WeightedNode selectedNode = null;
+            ServiceMetaInfo selectedService = null;
+            for (ServiceMetaInfo serviceMetaInfo : serviceMetaInfoList) {
+                int weight = Math.max(getWeight(serviceMetaInfo), 0);
+                WeightedNode node = nodeMap.computeIfAbsent(serviceMetaInfo.getServiceAddress(), key -> new WeightedNode());
+                node.alive = true;
+                if (weight == 0) {
+                    continue;
+                }
+                node.currentWeight += weight;
+                totalWeight += weight;
+                if (selectedNode == null || node.currentWeight > selectedNode.currentWeight) {
+                    selectedNode = node;
+                    selectedService = serviceMetaInfo;
+                }
+            }
+            // 清理已下线节点的状态，避免无限增长
+            if (nodeMap.size() > serviceMetaInfoList.size()) {
+                nodeMap.values().removeIf(node -> !node.alive);
+            }
+            nodeMap.values().forEach(node -> node.alive = false);
+            // 所有节点权重都为0，退化为选择第一个节点
+            if (selectedNode == null) {
+                return serviceMetaInfoList.get(0);
+            }
+            selectedNode.currentWeight -= totalWeight;
+            return selectedService;
+        }
+    }
+
+    /**
+     * 节点轮询状态
+     */
+    private static class WeightedNode {
+        /**
+         * 当前权重
+         */
+        private long currentWeight;
+
+        /**
+         * 本轮选择中是否仍在服务列表中
+         */
+        private boolean alive;
+    }
+}
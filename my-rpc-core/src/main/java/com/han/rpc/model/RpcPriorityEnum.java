@@ -0,0 +1,50 @@
+package com.han.rpc.model;
+
+import lombok.Getter;
+
+/**
+ * 请求优先级枚举
+ * 服务提供者按优先级使用不同的工作线程池，批量任务的请求再多也不会占满交互请求的线程
+ */
+@Getter
+public enum RpcPriorityEnum {
+
+    /**
+     * 高优先级（健康检查、核心交互请求）
+     */
+    HIGH(0),
+
+    /**
+     * 普通优先级
+     */
+    NORMAL(1),
+
+    /**
+     * 低优先级（批量任务、数据回填）
+     */
+    LOW(2)
+    ;
+
+    private final int value;
+
+    RpcPriorityEnum(int value) {
+        this.value = value;
+    }
+
+    /**
+     * 根据value获取枚举，未知或为空时返回普通优先级
+     * @param value
+     * @return
+     */
+    public static RpcPriorityEnum getEnumByValue(Integer value) {
+        if (value == null) {
+            return NORMAL;
+        }
+        for (RpcPriorityEnum anEnum : RpcPriorityEnum.values()) {
+            if (value == anEnum.getValue()) {
+                return anEnum;
+            }
+        }
+        return NORMAL;
+    }
+}
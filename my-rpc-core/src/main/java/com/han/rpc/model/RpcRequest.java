@@ -13,7 +13,7 @@ import java.io.Serializable;
  * RPC请求
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @AllArgsConstructor
 @NoArgsConstructor
 public class RpcRequest implements Serializable {
@@ -42,4 +42,15 @@ public class RpcRequest implements Serializable {
      * 服务版本
      */
     private String serviceVersion = RpcConstant.DEFAULT_SERVICE_VERSION;
+
+    /**
+     * 剩余超时时间（毫秒），服务提供者收到请求后据此计算截止时间
+     * 传递相对时间而不是截止时间戳，避免依赖消费者和提供者的时钟一致
+     */
+    private Long timeout;
+
+    /**
+     * 优先级，见 RpcPriorityEnum，为空表示普通优先级
+     */
+    private Integer priority;
 }
@@ -1,5 +1,6 @@
 package com.han.rpc.model;
 
+import com.han.rpc.constant.RpcConstant;
 import lombok.Data;
 import org.apache.commons.lang3.StringUtils;
 
@@ -28,6 +29,30 @@ public class ServiceMetaInfo {
      * 服务分组（暂未实现）
      */
     private String serviceGroup = "default";
+    /**
+     * 服务权重（用于加权负载均衡，权重越大分配的流量越多）
+     */
+    private int weight = RpcConstant.DEFAULT_SERVICE_WEIGHT;
+    /**
+     * 服务注册时间（毫秒时间戳，用于预热）
+     */
+    private long registerTime;
+    /**
+     * 预热时长（毫秒），注册后在该时间内权重从小到大线性增长，0表示不预热
+     */
+    private long warmup;
+    /**
+     * 所在地域，用于就近路由
+     */
+    private String region;
+    /**
+     * 所在可用区，用于就近路由
+     */
+    private String zone;
+    /**
+     * 所在主机标识（例如主机名或容器所在的节点名），用于同主机优先
+     */
+    private String hostName;
 
     /**
      * 获取服务注册节点键名
@@ -42,7 +42,7 @@ public class ProtocolMessage<T> {
         private byte serializer;
 
         /**
-         * 消息类型（请求/响应）
+         * 消息类型（请求/响应/取消等）
          */
         private byte type;
 
@@ -56,7 +56,10 @@ public class ProtocolMessageDecoder {
             case RESPONSE:
                 RpcResponse response = serializer.deserialize(bodyBytes, RpcResponse.class);
                 return new ProtocolMessage<>(header, response);
+            case CANCEL:
             case HEART_BEAT:
+                // 取消和心跳消息只使用消息头中的请求ID，没有消息体
+                return new ProtocolMessage<>(header, null);
             case OTHERS:
             default:
                 throw new RuntimeException("暂不支持该消息类型");
@@ -39,7 +39,9 @@ public class ProtocolMessageEncoder {
         }
 
         Serializer serializer = SerializerFactory.getInstance(serializerEnum.getValue());
-        byte[] bodyBytes = serializer.serialize(protocolMessage.getBody());
+        // 取消等控制消息没有消息体
+        byte[] bodyBytes = protocolMessage.getBody() == null
+                ? new byte[0] : serializer.serialize(protocolMessage.getBody());
 
         buffer.appendInt(bodyBytes.length);
         buffer.appendBytes(bodyBytes);
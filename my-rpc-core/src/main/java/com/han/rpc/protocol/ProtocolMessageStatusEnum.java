@@ -9,7 +9,8 @@ import lombok.Getter;
 public enum ProtocolMessageStatusEnum {
     OK("ok", 20),
     BAD_REQUEST("badRequest", 40),
-    BAD_RESPONSE("badResponse", 50)
+    BAD_RESPONSE("badResponse", 50),
+    OVERLOAD("overload", 53)
     ;
 
     private final String text;
@@ -0,0 +1,113 @@
+package com.han.rpc.proxy;
+
+import com.han.rpc.fault.circuitbreaker.CircuitBreaker;
+import com.han.rpc.fault.hedge.LatencyStats;
+import com.han.rpc.fault.retry.RetryBudget;
+import com.han.rpc.loadbalancer.LoadBalancer;
+import com.han.rpc.loadbalancer.LocalityRouter;
+import com.han.rpc.model.RpcRequest;
+import com.han.rpc.model.RpcResponse;
+import com.han.rpc.model.ServiceMetaInfo;
+import com.han.rpc.server.limiter.ServerOverloadException;
+import com.han.rpc.server.tcp.VertxTcpClient;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 服务节点调用器（消费端）
+ * 对单个服务节点发起一次调用，统一经过该节点的熔断器，向提供者传递剩余超时时间，并统计成功调用的耗时
+ */
+@Slf4j
+public class ServiceInvoker {
+
+    /**
+     * 异步调用服务节点
+     * @param rpcRequest 请求
+     * @param serviceMetaInfo 服务节点
+     * @param deadline 截止时间（毫秒时间戳），发起调用时以剩余时间作为超时时间
+     * @return 请求的 future，取消时同时取消发往服务提供者的请求
+     */
+    public static CompletableFuture<RpcResponse> invokeAsync(RpcRequest rpcRequest, ServiceMetaInfo serviceMetaInfo, long deadline) {
+        String serviceAddress = serviceMetaInfo.getServiceAddress();
+        return CircuitBreaker.getInstance(serviceAddress).executeAsync(() -> {
+            long startTime = System.currentTimeMillis();
+            // 每次调用携带各自的剩余时间，并发调用多个节点时不共享修改同一个请求对象
+            RpcRequest timedRpcRequest = rpcRequest.toBuilder().timeout(deadline - startTime).build();
+            CompletableFuture<RpcResponse> requestFuture = VertxTcpClient.doRequestAsync(timedRpcRequest, serviceMetaInfo,
+                    deadline - startTime, TimeUnit.MILLISECONDS);
+            requestFuture.whenComplete((rpcResponse, throwable) -> {
+                if (throwable == null) {
+                    LatencyStats.getInstance(serviceAddress).record(System.currentTimeMillis() - startTime);
+                }
+            });
+            // 返回请求本身的 future，调用方取消时连接会向服务提供者发送取消帧
+            return requestFuture;
+        });
+    }
+
+    /**
+     * 异步调用服务节点，服务节点过载拒绝时立即转发到其他节点（不等待重试间隔）
+     * 过载拒绝的请求未被处理，转发是安全的；转发次数受重试预算限制，避免整个集群过载时放大流量
+     * @param rpcRequest 请求
+     * @param selectedServiceMetaInfo 首个请求的服务节点
+     * @param serviceMetaInfoList 可用的服务节点列表
+     * @param loadBalancer 负载均衡器
+     * @param requestParams 负载均衡参数
+     * @param deadline 截止时间（毫秒时间戳）
+     * @return
+     */
+    public static CompletableFuture<RpcResponse> invokeAsync(RpcRequest rpcRequest, ServiceMetaInfo selectedServiceMetaInfo,
+                                                             List<ServiceMetaInfo> serviceMetaInfoList, LoadBalancer loadBalancer,
+                                                             Map<String, Object> requestParams, long deadline) {
+        CompletableFuture<RpcResponse> resultFuture = new CompletableFuture<>();
+        Set<String> overloadedServiceAddressSet = ConcurrentHashMap.newKeySet();
+        doInvokeAsync(rpcRequest, selectedServiceMetaInfo, serviceMetaInfoList, loadBalancer, requestParams, deadline,
+                overloadedServiceAddressSet, resultFuture);
+        return resultFuture;
+    }
+
+    private static void doInvokeAsync(RpcRequest rpcRequest, ServiceMetaInfo serviceMetaInfo,
+                                      List<ServiceMetaInfo> serviceMetaInfoList, LoadBalancer loadBalancer,
+                                      Map<String, Object> requestParams, long deadline,
+                                      Set<String> overloadedServiceAddressSet, CompletableFuture<RpcResponse> resultFuture) {
+        CompletableFuture<RpcResponse> future = invokeAsync(rpcRequest, serviceMetaInfo, deadline);
+        // 调用方取消或超时后，取消正在进行的请求
+        resultFuture.whenComplete((rpcResponse, throwable) -> future.cancel(false));
+        future.whenComplete((rpcResponse, throwable) -> {
+            if (throwable == null) {
+                resultFuture.complete(rpcResponse);
+                return;
+            }
+            Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                    ? throwable.getCause() : throwable;
+            if (cause instanceof ServerOverloadException && !resultFuture.isDone()) {
+                overloadedServiceAddressSet.add(serviceMetaInfo.getServiceAddress());
+                // 之后的请求也暂时避开该节点，本地节点都过载时溢出到其他可用区
+                LocalityRouter.markOverloaded(serviceMetaInfo.getServiceAddress());
+                List<ServiceMetaInfo> candidateList = CircuitBreaker.filterAvailable(serviceMetaInfoList.stream()
+                        .filter(candidate -> !overloadedServiceAddressSet.contains(candidate.getServiceAddress()))
+                        .collect(Collectors.toList()));
+                if (!candidateList.isEmpty()) {
+                    candidateList = LocalityRouter.route(serviceMetaInfoList, candidateList);
+                }
+                if (!candidateList.isEmpty() && System.currentTimeMillis() < deadline
+                        && RetryBudget.getInstance(serviceMetaInfo.getServiceKey()).tryWithdraw()) {
+                    ServiceMetaInfo nextServiceMetaInfo = loadBalancer.select(requestParams, candidateList);
+                    log.info("服务节点 {} 过载，请求转发到 {}", serviceMetaInfo.getServiceAddress(), nextServiceMetaInfo.getServiceAddress());
+                    doInvokeAsync(rpcRequest, nextServiceMetaInfo, serviceMetaInfoList, loadBalancer, requestParams, deadline,
+                            overloadedServiceAddressSet, resultFuture);
+                    return;
+                }
+            }
+            resultFuture.completeExceptionally(throwable);
+        });
+    }
+}
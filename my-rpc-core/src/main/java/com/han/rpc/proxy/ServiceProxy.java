@@ -5,14 +5,23 @@ import cn.hutool.core.util.IdUtil;
 import cn.hutool.http.HttpRequest;
 import cn.hutool.http.HttpResponse;
 import com.han.rpc.RpcApplication;
+import com.han.rpc.RpcContext;
+import com.han.rpc.config.ReferenceConfig;
 import com.han.rpc.config.RpcConfig;
 import com.han.rpc.constant.RpcConstant;
+import com.han.rpc.fault.circuitbreaker.CircuitBreaker;
+import com.han.rpc.fault.hedge.HedgingInvoker;
+import com.han.rpc.fault.retry.RetryBudget;
 import com.han.rpc.fault.retry.RetryStrategy;
 import com.han.rpc.fault.retry.RetryStrategyFactory;
+import com.han.rpc.fault.tolerant.ClusterTolerantStrategy;
+import com.han.rpc.fault.tolerant.TolerantContextKeys;
 import com.han.rpc.fault.tolerant.TolerantStrategy;
 import com.han.rpc.fault.tolerant.TolerantStrategyFactory;
+import com.han.rpc.fault.tolerant.TolerantStrategyKeys;
 import com.han.rpc.loadbalancer.LoadBalancer;
 import com.han.rpc.loadbalancer.LoadBalancerFactory;
+import com.han.rpc.loadbalancer.LocalityRouter;
 import com.han.rpc.model.RpcRequest;
 import com.han.rpc.model.RpcResponse;
 import com.han.rpc.model.ServiceMetaInfo;
@@ -23,8 +32,11 @@ import com.han.rpc.protocol.ProtocolMessageEncoder;
 import com.han.rpc.protocol.ProtocolMessageSerializerEnum;
 import com.han.rpc.protocol.ProtocolMessageStatusEnum;
 import com.han.rpc.protocol.ProtocolMessageTypeEnum;
+import com.han.rpc.ratelimit.RateLimitExceededException;
+import com.han.rpc.ratelimit.RateLimiter;
 import com.han.rpc.registry.Registry;
 import com.han.rpc.registry.RegistryFactory;
+import com.han.rpc.registry.ServiceSubsetSelector;
 import com.han.rpc.serializer.JdkSerializer;
 import com.han.rpc.serializer.Serializer;
 import com.han.rpc.serializer.SerializerFactory;
@@ -49,15 +61,49 @@ import java.util.concurrent.TimeUnit;
  */
 public class ServiceProxy implements InvocationHandler {
 
+    /**
+     * 服务引用配置
+     */
+    private final ReferenceConfig referenceConfig;
+
+    /**
+     * 服务级别的限流器，未配置时为空
+     */
+    private final RateLimiter serviceRateLimiter;
+
+    /**
+     * 方法级别的限流器：方法名 => 限流器
+     */
+    private final Map<String, RateLimiter> methodRateLimiterMap = new HashMap<>();
+
+    public ServiceProxy() {
+        this(new ReferenceConfig());
+    }
+
+    public ServiceProxy(ReferenceConfig referenceConfig) {
+        this.referenceConfig = referenceConfig;
+        this.serviceRateLimiter = referenceConfig.getRateLimit() > 0 ? new RateLimiter(referenceConfig.getRateLimit()) : null;
+        referenceConfig.getMethodRateLimits().forEach((methodName, permitsPerSecond) -> {
+            if (permitsPerSecond != null && permitsPerSecond > 0) {
+                methodRateLimiterMap.put(methodName, new RateLimiter(permitsPerSecond));
+            }
+        });
+    }
+
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        // 1.构造请求
         String serviceName = method.getDeclaringClass().getName();
+        // 清除上一次广播调用的结果，避免调用方读到过期的结果
+        RpcContext.removeBroadcastResults();
+        // 消费端限流，超过速率的请求不发出，避免批量任务压垮共享的服务提供者
+        acquireRateLimit(serviceName, method.getName());
+        // 1.构造请求
         RpcRequest rpcRequest = RpcRequest.builder()
                 .serviceName(serviceName)
                 .methodName(method.getName())
                 .parameterTypes(method.getParameterTypes())
                 .args(args)
+                .priority(referenceConfig.getPriority().getValue())
                 .build();
         // 2.将请求序列化
         // 编码时会进行序列化，这里不用再单独序列化了
@@ -72,33 +118,138 @@ public class ServiceProxy implements InvocationHandler {
             serviceMetaInfo.setServiceName(serviceName);
             serviceMetaInfo.setServiceVersion(RpcConstant.DEFAULT_SERVICE_VERSION);
 
-            List<ServiceMetaInfo> serviceMetaInfoList = registry.serviceDiscovery(serviceMetaInfo.getServiceKey());
-            if (CollUtil.isEmpty(serviceMetaInfoList)) {
+            List<ServiceMetaInfo> discoveredServiceMetaInfoList = registry.serviceDiscovery(serviceMetaInfo.getServiceKey());
+            if (CollUtil.isEmpty(discoveredServiceMetaInfoList)) {
                 throw new RuntimeException("暂无服务地址");
             }
+            // 服务节点很多时只使用固定的子集，限制与服务节点建立的连接数；子集内的节点熔断时按排名补充其他可用节点；广播调用仍使用全部节点
+            List<ServiceMetaInfo> subsetServiceMetaInfoList = ServiceSubsetSelector.select(discoveredServiceMetaInfoList,
+                    rpcConfig.getRegistryConfig().getSubsetSize(), rpcConfig.getRegistryConfig().getConsumerId(),
+                    candidate -> CircuitBreaker.getInstance(candidate.getServiceAddress()).isAvailable());
+            // 过滤掉已熔断的节点，避免请求发往故障节点后等待超时
+            List<ServiceMetaInfo> serviceMetaInfoList = CircuitBreaker.filterAvailable(subsetServiceMetaInfoList);
+            if (CollUtil.isEmpty(serviceMetaInfoList)) {
+                throw new RuntimeException("暂无可用的服务地址，所有服务节点均已熔断");
+            }
+
+            // 就近路由，优先选择同主机、同可用区的节点，本地节点不够健康时溢出到其他可用区
+            List<ServiceMetaInfo> routedServiceMetaInfoList = LocalityRouter.route(subsetServiceMetaInfoList, serviceMetaInfoList);
 
             // 负载均衡
             LoadBalancer loadBalancer = LoadBalancerFactory.getInstance(rpcConfig.getLoadBalancer());
             // 将调用方法名(请求路径)作为请求参数
             Map<String, Object> requestParams = new HashMap<>();
             requestParams.put("methodName", rpcRequest.getMethodName());
-            ServiceMetaInfo selectedServiceMetaInfo = loadBalancer.select(requestParams, serviceMetaInfoList);
+            ServiceMetaInfo selectedServiceMetaInfo = loadBalancer.select(requestParams, routedServiceMetaInfoList);
+
+            // 本次调用的截止时间，重试和容错都不能超过该时间
+            long deadline = getDeadline(rpcConfig.getTimeout());
+
+            // 容错策略上下文
+            Map<String, Object> context = new HashMap<>();
+            context.put(TolerantContextKeys.RPC_REQUEST, rpcRequest);
+            context.put(TolerantContextKeys.DISCOVERED_SERVICE_META_INFO_LIST, discoveredServiceMetaInfoList);
+            context.put(TolerantContextKeys.SERVICE_META_INFO_LIST, serviceMetaInfoList);
+            context.put(TolerantContextKeys.SELECTED_SERVICE_META_INFO, selectedServiceMetaInfo);
+            context.put(TolerantContextKeys.LOAD_BALANCER, loadBalancer);
+            context.put(TolerantContextKeys.REQUEST_PARAMS, requestParams);
+            context.put(TolerantContextKeys.DEADLINE, deadline);
+            TolerantStrategy tolerantStrategy = TolerantStrategyFactory.getInstance(
+                    getTolerantStrategy(rpcRequest.getMethodName(), rpcConfig.getTolerantStrategy()));
 
             // 4.发送TCP请求
-            // 使用重试机制
+            // 使用重试机制，重试间隔由事件循环定时器调度，调用线程只等待最终结果
+            CompletableFuture<RpcResponse> responseFuture = null;
             try {
-                RetryStrategy retryStrategy = RetryStrategyFactory.getInstance(rpcConfig.getRetryStrategy());
-                rpcResponse = retryStrategy.doRetry(() ->
-                        VertxTcpClient.doRequest(rpcRequest, selectedServiceMetaInfo, 5000L, TimeUnit.MILLISECONDS));
+                if (tolerantStrategy instanceof ClusterTolerantStrategy) {
+                    // 集群调用（并行调用、广播调用）由容错策略自己向多个节点发起请求
+                    responseFuture = ((ClusterTolerantStrategy) tolerantStrategy).doInvokeAsync(context);
+                } else {
+                    RetryStrategy retryStrategy = RetryStrategyFactory.getInstance(rpcConfig.getRetryStrategy());
+                    // 每个服务的重试次数受重试预算限制，避免服务集群故障时重试放大流量
+                    RetryBudget retryBudget = RetryBudget.getInstance(serviceMetaInfo.getServiceKey());
+                    // 开启对冲的方法在首个节点响应慢时向其他节点再发一份请求，取最先成功的响应
+                    boolean hedging = referenceConfig.getHedgingMethods().contains(rpcRequest.getMethodName());
+                    responseFuture = retryStrategy.doRetryAsync(() -> hedging
+                            ? HedgingInvoker.invokeAsync(rpcRequest, selectedServiceMetaInfo, serviceMetaInfoList,
+                                    loadBalancer, requestParams, deadline)
+                            : ServiceInvoker.invokeAsync(rpcRequest, selectedServiceMetaInfo, serviceMetaInfoList,
+                                    loadBalancer, requestParams, deadline), retryBudget);
+                }
+                rpcResponse = responseFuture.get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
             } catch (Exception e) {
+                if (responseFuture != null) {
+                    // 超时后停止后续重试，取消逐层传递到正在进行的请求，由连接通知服务提供者放弃处理
+                    responseFuture.cancel(false);
+                }
                 // 容错机制（重试多次仍报错时触发）
-                TolerantStrategy tolerantStrategy = TolerantStrategyFactory.getInstance(rpcConfig.getTolerantStrategy());
-                tolerantStrategy.doTolerant(null, e);
+                rpcResponse = tolerantStrategy.doTolerant(context, e);
+            } finally {
+                // 广播调用无论成功还是失败都公布每个节点的结果；超时时广播还未结束，没有结果
+                if (responseFuture != null && responseFuture.isDone() && context.containsKey(TolerantContextKeys.BROADCAST_RESULTS)) {
+                    RpcContext.setBroadcastResults((Map<String, Object>) context.get(TolerantContextKeys.BROADCAST_RESULTS));
+                }
             }
             return rpcResponse.getData();
         } catch (Exception e) {
-            throw new RuntimeException("调用失败");
+            throw new RuntimeException("调用失败", e);
+        }
+    }
+
+    /**
+     * 申请服务和方法的调用许可
+     * 先申请服务级别的许可，方法级别超限时归还服务级别的许可，被拒绝的调用不占用任何一级的配额
+     * @param serviceName
+     * @param methodName
+     * @throws RateLimitExceededException 超过速率限制
+     */
+    private void acquireRateLimit(String serviceName, String methodName) throws InterruptedException {
+        String mode = referenceConfig.getRateLimitMode();
+        long timeout = referenceConfig.getRateLimitTimeout();
+        if (serviceRateLimiter != null && !serviceRateLimiter.acquire(mode, timeout)) {
+            throw new RateLimitExceededException(serviceName);
+        }
+        RateLimiter methodRateLimiter = methodRateLimiterMap.get(methodName);
+        if (methodRateLimiter != null && !methodRateLimiter.acquire(mode, timeout)) {
+            if (serviceRateLimiter != null) {
+                serviceRateLimiter.release();
+            }
+            throw new RateLimitExceededException(serviceName + "#" + methodName);
+        }
+    }
+
+    /**
+     * 获取方法使用的容错策略，引用配置中指定了并行调用或广播调用的方法覆盖全局配置
+     * @param methodName
+     * @param defaultTolerantStrategy 全局配置的容错策略
+     * @return
+     */
+    private String getTolerantStrategy(String methodName, String defaultTolerantStrategy) {
+        if (referenceConfig.getBroadcastMethods().contains(methodName)) {
+            return TolerantStrategyKeys.BROADCAST;
+        }
+        if (referenceConfig.getForkingMethods().contains(methodName)) {
+            return TolerantStrategyKeys.FORKING;
+        }
+        return defaultTolerantStrategy;
+    }
+
+    /**
+     * 计算本次调用的截止时间
+     * 在服务方法中发起的下游调用（或消费者通过 RpcContext 设置了截止时间），截止时间不能晚于上下文中的截止时间
+     * @param timeout 配置的调用超时时间（毫秒）
+     * @return 截止时间（毫秒时间戳）
+     */
+    private long getDeadline(long timeout) {
+        long deadline = System.currentTimeMillis() + timeout;
+        Long contextDeadline = RpcContext.getDeadline();
+        if (contextDeadline == null) {
+            return deadline;
+        }
+        if (RpcContext.isExpired()) {
+            throw new RuntimeException("调用已超过截止时间");
         }
+        return Math.min(deadline, contextDeadline);
     }
 
     /*@Override
@@ -1,6 +1,7 @@
 package com.han.rpc.proxy;
 
 import com.han.rpc.RpcApplication;
+import com.han.rpc.config.ReferenceConfig;
 
 import java.lang.reflect.Proxy;
 
@@ -15,6 +16,17 @@ public class ServiceProxyFactory {
      * @return
      */
     public static <T> T getProxy(Class<T> serviceClass) {
+        return getProxy(serviceClass, new ReferenceConfig());
+    }
+
+    /**
+     * 根据服务类和服务引用配置获取代理对象
+     * @param serviceClass
+     * @param referenceConfig
+     * @param <T>
+     * @return
+     */
+    public static <T> T getProxy(Class<T> serviceClass, ReferenceConfig referenceConfig) {
         // 根据配置mock来区分创建哪种代理对象
         if (RpcApplication.getRpcConfig().isMock()) {
             return getMockProxy(serviceClass);
@@ -22,7 +34,7 @@ public class ServiceProxyFactory {
         return (T) Proxy.newProxyInstance(
                 serviceClass.getClassLoader(),
                 new Class[]{serviceClass},
-                new ServiceProxy()
+                new ServiceProxy(referenceConfig)
         );
     }
 
@@ -0,0 +1,11 @@
+package com.han.rpc.ratelimit;
+
+/**
+ * 限流异常（超过消费端配置的调用速率，请求未发出）
+ */
+public class RateLimitExceededException extends RuntimeException {
+
+    public RateLimitExceededException(String resource) {
+        super("超过调用速率限制：" + resource);
+    }
+}
@@ -0,0 +1,21 @@
+package com.han.rpc.ratelimit;
+
+/**
+ * 限流模式键名常量
+ */
+public interface RateLimitModeKeys {
+    /**
+     * 阻塞等待，直到获取到许可
+     */
+    String BLOCK = "block";
+
+    /**
+     * 排队等待，超过等待时间仍无法获取许可时失败
+     */
+    String QUEUE = "queue";
+
+    /**
+     * 快速失败，没有可用许可时立即失败
+     */
+    String FAIL_FAST = "failFast";
+}
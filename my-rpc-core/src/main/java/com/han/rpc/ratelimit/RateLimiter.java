@@ -0,0 +1,145 @@
+package com.han.rpc.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 令牌桶限流器（无锁实现）
+ * 不单独维护令牌数，而是记录“下一个令牌的可用时间”，每获取一个许可向后推进一个发放间隔，
+ * 可用时间早于当前时间的部分即为桶中积攒的令牌（最多 burst 个），整个状态只有一个 AtomicLong，通过 CAS 更新
+ */
+public class RateLimiter {
+
+    /**
+     * 令牌发放间隔（纳秒）
+     */
+    private final long intervalNanos;
+
+    /**
+     * 允许提前消费的时间（纳秒），即桶容量对应的时间
+     */
+    private final long burstNanos;
+
+    /**
+     * 下一个令牌的可用时间（System.nanoTime）
+     */
+    private final AtomicLong nextFreeTime;
+
+    /**
+     * 创建限流器，桶容量为 1 秒发放的许可数
+     * @param permitsPerSecond 每秒发放的许可数
+     */
+    public RateLimiter(double permitsPerSecond) {
+        this(permitsPerSecond, (int) Math.ceil(permitsPerSecond));
+    }
+
+    /**
+     * @param permitsPerSecond 每秒发放的许可数
+     * @param burst 桶容量，即允许的最大突发请求数
+     */
+    public RateLimiter(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond 必须大于0");
+        }
+        this.intervalNanos = Math.max((long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond), 1);
+        this.burstNanos = intervalNanos * (Math.max(burst, 1) - 1);
+        this.nextFreeTime = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * 根据限流模式获取许可
+     * @param mode 限流模式，见 RateLimitModeKeys
+     * @param timeoutMillis 排队模式下的最大等待时间（毫秒）
+     * @return 是否获取到许可
+     * @throws InterruptedException
+     */
+    public boolean acquire(String mode, long timeoutMillis) throws InterruptedException {
+        switch (mode) {
+            case RateLimitModeKeys.BLOCK:
+                acquire();
+                return true;
+            case RateLimitModeKeys.QUEUE:
+                return tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+            case RateLimitModeKeys.FAIL_FAST:
+            default:
+                return tryAcquire();
+        }
+    }
+
+    /**
+     * 获取许可，没有可用许可时阻塞等待
+     * @throws InterruptedException
+     */
+    public void acquire() throws InterruptedException {
+        sleep(reserve(Long.MAX_VALUE));
+    }
+
+    /**
+     * 尝试获取许可，不等待
+     * @return
+     */
+    public boolean tryAcquire() {
+        return reserve(0) >= 0;
+    }
+
+    /**
+     * 尝试获取许可，最多等待指定时间；等待时间不够时立即返回失败，不会白白等待
+     * @param timeout
+     * @param timeUnit
+     * @return
+     * @throws InterruptedException
+     */
+    public boolean tryAcquire(long timeout, TimeUnit timeUnit) throws InterruptedException {
+        long waitNanos = reserve(timeUnit.toNanos(timeout));
+        if (waitNanos < 0) {
+            return false;
+        }
+        sleep(waitNanos);
+        return true;
+    }
+
+    /**
+     * 归还一个已获取但未使用的许可（例如同时受多个限流器限制，其他限流器拒绝了本次调用）
+     * 下一个令牌的可用时间回退一个发放间隔，早于当前时间的部分仍受桶容量限制
+     */
+    public void release() {
+        nextFreeTime.addAndGet(-intervalNanos);
+    }
+
+    /**
+     * 预约一个许可
+     * @param maxWaitNanos 最多等待的时间
+     * @return 需要等待的时间（纳秒），超过最大等待时间时返回 -1 且不占用许可
+     */
+    private long reserve(long maxWaitNanos) {
+        while (true) {
+            long now = System.nanoTime();
+            long current = nextFreeTime.get();
+            // 可用时间早于当前时间，说明期间没有请求，从当前时间开始计算（积攒的令牌由 burstNanos 体现）
+            long base = current - now > 0 ? current : now;
+            long waitNanos = Math.max(base - burstNanos - now, 0);
+            if (waitNanos > maxWaitNanos) {
+                return -1;
+            }
+            if (nextFreeTime.compareAndSet(current, base + intervalNanos)) {
+                return waitNanos;
+            }
+        }
+    }
+
+    private void sleep(long nanos) throws InterruptedException {
+        if (nanos <= 0) {
+            return;
+        }
+        long deadline = System.nanoTime() + nanos;
+        long remaining = nanos;
+        while (remaining > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            remaining = deadline - System.nanoTime();
+        }
+    }
+}
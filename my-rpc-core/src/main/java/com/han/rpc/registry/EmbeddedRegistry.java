@@ -0,0 +1,431 @@
+package com.han.rpc.registry;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.han.rpc.config.RegistryConfig;
+import com.han.rpc.model.RpcRequest;
+import com.han.rpc.model.RpcResponse;
+import com.han.rpc.model.ServiceMetaInfo;
+import com.han.rpc.protocol.ProtocolConstant;
+import com.han.rpc.protocol.ProtocolMessage;
+import com.han.rpc.protocol.ProtocolMessageDecoder;
+import com.han.rpc.protocol.ProtocolMessageEncoder;
+import com.han.rpc.protocol.ProtocolMessageSerializerEnum;
+import com.han.rpc.protocol.ProtocolMessageStatusEnum;
+import com.han.rpc.protocol.ProtocolMessageTypeEnum;
+import com.han.rpc.registry.server.RegistryEvent;
+import com.han.rpc.registry.server.RegistryMethodKeys;
+import com.han.rpc.registry.server.RegistryServer;
+import com.han.rpc.server.tcp.TcpBufferHandlerWrapper;
+import com.han.rpc.server.tcp.VertxTcpClient;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.net.NetClient;
+import io.vertx.core.net.NetSocket;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 内置注册中心（客户端）
+ * 连接 RegistryServer，使用框架自身的协议通信。节点注册在连接的会话上，定时发送心跳续期；
+ * 连接断开后自动重连，重连后重新注册本机节点、重新监听已订阅的服务
+ */
+@Slf4j
+public class EmbeddedRegistry implements Registry {
+
+    /**
+     * 心跳间隔（毫秒），远小于服务器的租约时长
+     */
+    private static final long HEARTBEAT_INTERVAL = RegistryServer.DEFAULT_LEASE_TTL / 3;
+
+    /**
+     * 重连间隔（毫秒）
+     */
+    private static final long RECONNECT_INTERVAL = 1000L;
+
+    /**
+     * 复用 RPC 客户端共享的 Vert.x 实例和 TCP 客户端，不单独创建线程池
+     */
+    private Vertx vertx;
+
+    private NetClient netClient;
+
+    /**
+     * 心跳定时器ID
+     */
+    private long heartBeatTimerId = -1;
+
+    /**
+     * 重连定时器ID
+     */
+    private volatile long reconnectTimerId = -1;
+
+    private String host;
+
+    private int port;
+
+    /**
+     * 请求超时时间（毫秒）
+     */
+    private long timeout;
+
+    /**
+     * 当前连接
+     */
+    private volatile CompletableFuture<NetSocket> connectionFuture;
+
+    /**
+     * 等待响应的请求：请求ID => 响应
+     */
+    private final Map<Long, CompletableFuture<RpcResponse>> pendingResponseMap = new ConcurrentHashMap<>();
+
+    /**
+     * 本机注册的节点（用于重连后重新注册，服务端）：服务注册节点键名 => 节点信息
+     */
+    private final Map<String, ServiceMetaInfo> localRegisterNodeMap = new ConcurrentHashMap<>();
+
+    /**
+     * 正在监听的服务（消费端）：服务键名 => 监听请求的ID
+     */
+    private final Map<String, Long> watchingServiceMap = new ConcurrentHashMap<>();
+
+    /**
+     * 每个服务最近一次监听的结果（消费端）：服务键名 => 收到节点列表并写入缓存后完成
+     */
+    private final Map<String, CompletableFuture<Void>> watchLoadedMap = new ConcurrentHashMap<>();
+
+    /**
+     * 监听请求对应的服务（消费端）：监听请求的ID => 服务键名
+     */
+    private final Map<Long, String> watchRequestMap = new ConcurrentHashMap<>();
+
+    /**
+     * 注册中心服务缓存（消费端）
+     */
+    private final RegistryServiceCache serviceCache = new RegistryServiceCache();
+
+    private volatile boolean destroyed;
+
+    @Override
+    public void init(RegistryConfig registryConfig) {
+        // 地址格式为 host:port，兼容带协议前缀的写法
+        String address = StrUtil.removePrefix(StrUtil.removePrefix(registryConfig.getAddress(), "http://"), "tcp://");
+        host = StrUtil.subBefore(address, ":", true);
+        port = Integer.parseInt(StrUtil.subAfter(address, ":", true));
+        timeout = registryConfig.getTimeout();
+        vertx = VertxTcpClient.getVertx();
+        netClient = VertxTcpClient.getNetClient();
+        // 从快照文件加载服务节点，注册中心不可用时仍可调用已知的服务节点
+        if (StrUtil.isNotBlank(registryConfig.getSnapshotFile())) {
+            serviceCache.loadSnapshotFile(new RegistrySnapshotFile(registryConfig.getSnapshotFile(),
+                    registryConfig.getSnapshotWriteInterval()));
+        }
+        connect();
+        heartBeat();
+    }
+
+    @Override
+    public void register(ServiceMetaInfo serviceMetaInfo) throws Exception {
+        localRegisterNodeMap.put(serviceMetaInfo.getServiceNodeKey(), serviceMetaInfo);
+        request(RegistryMethodKeys.REGISTER, JSONUtil.toJsonStr(serviceMetaInfo)).get(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 批量服务注册（服务端）
+     * 先发出所有注册请求，再统一等待响应
+     * @param serviceMetaInfoList
+     */
+    @Override
+    public void registerBatch(List<ServiceMetaInfo> serviceMetaInfoList) throws Exception {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[serviceMetaInfoList.size()];
+        for (int i = 0; i < serviceMetaInfoList.size(); i++) {
+            ServiceMetaInfo serviceMetaInfo = serviceMetaInfoList.get(i);
+            localRegisterNodeMap.put(serviceMetaInfo.getServiceNodeKey(), serviceMetaInfo);
+            futures[i] = request(RegistryMethodKeys.REGISTER, JSONUtil.toJsonStr(serviceMetaInfo));
+        }
+        CompletableFuture.allOf(futures).get(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void unRegister(ServiceMetaInfo serviceMetaInfo) {
+        localRegisterNodeMap.remove(serviceMetaInfo.getServiceNodeKey());
+        try {
+            request(RegistryMethodKeys.UN_REGISTER, serviceMetaInfo.getServiceKey(), serviceMetaInfo.getServiceNodeKey())
+                    .get(timeout, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            throw new RuntimeException("服务注销失败", e);
+        }
+    }
+
+    @Override
+    public List<ServiceMetaInfo> serviceDiscovery(String serviceKey) {
+        // 优先从缓存获取服务，缓存由注册中心推送的事件增量更新
+        ServiceSnapshot cachedSnapshot = serviceCache.readCache(serviceKey);
+        if (cachedSnapshot != null) {
+            // 来自快照文件的节点先继续使用，开始监听，收到节点列表后替换
+            if (cachedSnapshot.isStale()) {
+                watch(serviceKey);
+            }
+            return cachedSnapshot;
+        }
+        watch(serviceKey);
+        try {
+            // 等待监听请求返回的节点列表
+            watchLoadedMap.get(serviceKey).get(timeout, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            throw new RuntimeException("获取服务列表失败", e);
+        }
+        ServiceSnapshot snapshot = serviceCache.readCache(serviceKey);
+        if (snapshot == null) {
+            throw new RuntimeException("获取服务列表失败");
+        }
+        return snapshot;
+    }
+
+    /**
+     * 心跳检测：定时发送心跳为会话续期
+     */
+    @Override
+    public void heartBeat() {
+        heartBeatTimerId = vertx.setPeriodic(HEARTBEAT_INTERVAL, id -> {
+            CompletableFuture<NetSocket> future = connectionFuture;
+            if (future != null && future.isDone() && !future.isCompletedExceptionally()) {
+                write(future.join(), buildHeader(ProtocolMessageTypeEnum.HEART_BEAT, IdUtil.getSnowflakeNextId()), null);
+            }
+        });
+    }
+
+    /**
+     * 监听服务：发送监听请求，首个响应为所有节点，之后注册中心推送节点变化事件
+     * @param serviceKey
+     */
+    @Override
+    public void watch(String serviceKey) {
+        if (watchingServiceMap.containsKey(serviceKey)) {
+            return;
+        }
+        synchronized (watchingServiceMap) {
+            if (watchingServiceMap.containsKey(serviceKey)) {
+                return;
+            }
+            sendWatch(serviceKey);
+        }
+    }
+
+    /**
+     * 发送监听请求
+     * @param serviceKey
+     */
+    private void sendWatch(String serviceKey) {
+        long requestId = IdUtil.getSnowflakeNextId();
+        watchingServiceMap.put(serviceKey, requestId);
+        watchRequestMap.put(requestId, serviceKey);
+        // 先设置好收到节点列表后的处理再发送请求，保证写入缓存先于之后推送的事件
+        CompletableFuture<RpcResponse> responseFuture = new CompletableFuture<>();
+        CompletableFuture<Void> loadedFuture = responseFuture.handle((rpcResponse, throwable) -> {
+            if (throwable != null) {
+                // 监听失败，下次服务发现时重新监听
+                log.warn("监听服务 {} 失败", serviceKey, throwable);
+                watchRequestMap.remove(requestId);
+                watchingServiceMap.remove(serviceKey, requestId);
+                serviceCache.markStale(serviceKey);
+                throw new RuntimeException("监听服务失败: " + serviceKey, throwable);
+            }
+            List<ServiceMetaInfo> serviceMetaInfoList = JSONUtil.toList((String) rpcResponse.getData(), ServiceMetaInfo.class);
+            serviceCache.writeCache(serviceKey, serviceMetaInfoList);
+            return null;
+        });
+        watchLoadedMap.put(serviceKey, loadedFuture);
+        send(requestId, responseFuture, RegistryMethodKeys.WATCH, serviceKey);
+    }
+
+    @Override
+    public void destroy() {
+        log.info("注册中心：当前节点下线");
+        destroyed = true;
+        for (ServiceMetaInfo serviceMetaInfo : localRegisterNodeMap.values()) {
+            try {
+                unRegister(serviceMetaInfo);
+            } catch (Exception e) {
+                log.warn("{} 节点下线失败", serviceMetaInfo.getServiceNodeKey(), e);
+            }
+        }
+        // Vert.x 实例是共享的，只关闭本注册中心的定时器和连接
+        if (vertx != null) {
+            vertx.cancelTimer(heartBeatTimerId);
+            vertx.cancelTimer(reconnectTimerId);
+        }
+        CompletableFuture<NetSocket> future = connectionFuture;
+        if (future != null) {
+            future.thenAccept(NetSocket::close);
+        }
+    }
+
+    /**
+     * 建立连接，连接建立后重新注册本机节点、重新监听已订阅的服务
+     */
+    private void connect() {
+        CompletableFuture<NetSocket> future = new CompletableFuture<>();
+        connectionFuture = future;
+        // 共享的 TCP 客户端不带连接超时，这里用定时器限制建立连接的时间
+        long connectTimerId = vertx.setTimer(timeout, id -> {
+            if (future.completeExceptionally(new RuntimeException("连接注册中心超时"))) {
+                log.warn("连接注册中心 {}:{} 超时，{}ms 后重连", host, port, RECONNECT_INTERVAL);
+                scheduleReconnect();
+            }
+        });
+        netClient.connect(port, host, result -> {
+            vertx.cancelTimer(connectTimerId);
+            if (!result.succeeded()) {
+                if (future.completeExceptionally(result.cause())) {
+                    log.warn("连接注册中心 {}:{} 失败，{}ms 后重连", host, port, RECONNECT_INTERVAL);
+                    scheduleReconnect();
+                }
+                return;
+            }
+            NetSocket socket = result.result();
+            if (destroyed || future.isDone()) {
+                // 已超时或注册中心已关闭，丢弃迟到的连接
+                socket.close();
+                return;
+            }
+            socket.handler(new TcpBufferHandlerWrapper(buffer -> handleMessage(buffer)));
+            socket.closeHandler(v -> onConnectionClosed());
+            future.complete(socket);
+            // 重连后恢复会话状态
+            for (ServiceMetaInfo serviceMetaInfo : localRegisterNodeMap.values()) {
+                request(RegistryMethodKeys.REGISTER, JSONUtil.toJsonStr(serviceMetaInfo));
+            }
+            synchronized (watchingServiceMap) {
+                for (String serviceKey : watchingServiceMap.keySet()) {
+                    watchRequestMap.remove(watchingServiceMap.get(serviceKey));
+                    sendWatch(serviceKey);
+                }
+            }
+        });
+    }
+
+    /**
+     * 连接断开：等待中的请求立即失败，已缓存的服务节点标记为过期，稍后重连
+     */
+    private void onConnectionClosed() {
+        RuntimeException exception = new RuntimeException("与注册中心的连接已断开");
+        pendingResponseMap.values().forEach(future -> future.completeExceptionally(exception));
+        pendingResponseMap.clear();
+        watchingServiceMap.keySet().forEach(serviceCache::markStale);
+        scheduleReconnect();
+    }
+
+    private void scheduleReconnect() {
+        if (destroyed) {
+            return;
+        }
+        reconnectTimerId = vertx.setTimer(RECONNECT_INTERVAL, id -> connect());
+    }
+
+    /**
+     * 处理注册中心的响应和推送
+     * @param buffer
+     */
+    private void handleMessage(Buffer buffer) {
+        ProtocolMessage<?> protocolMessage;
+        try {
+            protocolMessage = ProtocolMessageDecoder.decode(buffer);
+        } catch (Exception e) {
+            log.error("协议消息解码错误", e);
+            return;
+        }
+        ProtocolMessage.Header header = protocolMessage.getHeader();
+        if (header.getType() != ProtocolMessageTypeEnum.RESPONSE.getKey()) {
+            return;
+        }
+        long requestId = header.getRequestId();
+        RpcResponse rpcResponse = (RpcResponse) protocolMessage.getBody();
+        CompletableFuture<RpcResponse> responseFuture = pendingResponseMap.remove(requestId);
+        if (responseFuture != null) {
+            if (header.getStatus() != ProtocolMessageStatusEnum.OK.getValue()) {
+                responseFuture.completeExceptionally(new RuntimeException(rpcResponse.getMessage()));
+            } else {
+                responseFuture.complete(rpcResponse);
+            }
+            return;
+        }
+        // 监听请求之后以相同请求ID推送的事件
+        String serviceKey = watchRequestMap.get(requestId);
+        if (serviceKey == null) {
+            return;
+        }
+        RegistryEvent event = JSONUtil.toBean((String) rpcResponse.getData(), RegistryEvent.class);
+        if (RegistryEvent.DELETE.equals(event.getType())) {
+            serviceCache.removeNode(serviceKey, event.getServiceNodeKey());
+        } else {
+            serviceCache.putNode(serviceKey, event.getServiceMetaInfo());
+        }
+    }
+
+    /**
+     * 发送注册中心请求
+     * @param methodName 见 RegistryMethodKeys
+     * @param args 参数（均为字符串）
+     * @return
+     */
+    private CompletableFuture<RpcResponse> request(String methodName, String... args) {
+        CompletableFuture<RpcResponse> responseFuture = new CompletableFuture<>();
+        send(IdUtil.getSnowflakeNextId(), responseFuture, methodName, args);
+        return responseFuture;
+    }
+
+    /**
+     * 发送注册中心请求
+     * @param requestId
+     * @param responseFuture 收到响应时完成
+     * @param methodName 见 RegistryMethodKeys
+     * @param args 参数（均为字符串）
+     */
+    private void send(long requestId, CompletableFuture<RpcResponse> responseFuture, String methodName, String... args) {
+        pendingResponseMap.put(requestId, responseFuture);
+        Class<?>[] parameterTypes = new Class<?>[args.length];
+        Arrays.fill(parameterTypes, String.class);
+        RpcRequest rpcRequest = RpcRequest.builder()
+                .serviceName(RegistryMethodKeys.SERVICE_NAME)
+                .methodName(methodName)
+                .parameterTypes(parameterTypes)
+                .args(args)
+                .build();
+        connectionFuture.whenComplete((socket, throwable) -> {
+            if (throwable != null) {
+                pendingResponseMap.remove(requestId);
+                responseFuture.completeExceptionally(throwable);
+                return;
+            }
+            write(socket, buildHeader(ProtocolMessageTypeEnum.REQUEST, requestId), rpcRequest);
+        });
+    }
+
+    private void write(NetSocket socket, ProtocolMessage.Header header, Object body) {
+        try {
+            socket.write(ProtocolMessageEncoder.encode(new ProtocolMessage<>(header, body)));
+        } catch (Exception e) {
+            log.error("发送消息失败", e);
+        }
+    }
+
+    private ProtocolMessage.Header buildHeader(ProtocolMessageTypeEnum typeEnum, long requestId) {
+        ProtocolMessage.Header header = new ProtocolMessage.Header();
+        header.setMagic(ProtocolConstant.PROTOCOL_MAGIC);
+        header.setVersion(ProtocolConstant.PROTOCOL_VERSION);
+        // 注册中心的消息体都是字符串，固定使用 JSON 序列化
+        header.setSerializer((byte) ProtocolMessageSerializerEnum.JSON.getKey());
+        header.setType((byte) typeEnum.getKey());
+        header.setStatus((byte) ProtocolMessageStatusEnum.OK.getValue());
+        header.setRequestId(requestId);
+        return header;
+    }
+}
@@ -1,30 +1,38 @@
 package com.han.rpc.registry;
 
-import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.collection.ConcurrentHashSet;
-import cn.hutool.cron.CronUtil;
-import cn.hutool.cron.task.Task;
-import cn.hutool.json.JSONUtil;
+import cn.hutool.core.thread.NamedThreadFactory;
+import cn.hutool.core.util.StrUtil;
 import com.han.rpc.config.RegistryConfig;
 import com.han.rpc.model.ServiceMetaInfo;
 import io.etcd.jetcd.ByteSequence;
 import io.etcd.jetcd.Client;
 import io.etcd.jetcd.KV;
-import io.etcd.jetcd.KeyValue;
-import io.etcd.jetcd.Lease;
+import io.etcd.jetcd.Txn;
 import io.etcd.jetcd.Watch;
 import io.etcd.jetcd.kv.DeleteResponse;
+import io.etcd.jetcd.kv.GetResponse;
+import io.etcd.jetcd.lease.LeaseKeepAliveResponse;
+import io.etcd.jetcd.op.Op;
 import io.etcd.jetcd.options.GetOption;
 import io.etcd.jetcd.options.PutOption;
+import io.etcd.jetcd.options.WatchOption;
+import io.etcd.jetcd.support.CloseableClient;
 import io.etcd.jetcd.watch.WatchEvent;
+import io.grpc.stub.StreamObserver;
 import lombok.extern.slf4j.Slf4j;
 
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -37,9 +45,42 @@ public class EtcdRegistry implements Registry {
     private KV kvClient;
 
     /**
-     * 本机注册的节点key集合（用于维护续期，服务端）
+     * 租约时长（秒）
      */
-    private final Set<String> localRegisterNodeKeySet = new HashSet<>();
+    private static final long LEASE_TTL = 30;
+
+    /**
+     * 租约丢失后重新注册失败时的重试间隔（秒）
+     */
+    private static final long RE_REGISTER_INTERVAL = 5;
+
+    /**
+     * 一个事务中最多包含的操作数（etcd 默认 --max-txn-ops 为 128）
+     */
+    private static final int MAX_TXN_OPS = 128;
+
+    /**
+     * 本机注册的节点（用于租约丢失后重新注册，服务端）：节点key => 节点信息
+     */
+    private final Map<String, ServiceMetaInfo> localRegisterNodeMap = new ConcurrentHashMap<>();
+
+    /**
+     * 本机所有节点共用的租约，0 表示尚未创建（服务端）
+     */
+    private long leaseId;
+
+    /**
+     * 租约续期的 keepAlive 客户端（服务端）
+     */
+    private CloseableClient keepAliveClient;
+
+    /**
+     * 租约丢失后重新注册的线程（服务端）
+     */
+    private final ScheduledExecutorService reRegisterExecutor = Executors.newSingleThreadScheduledExecutor(
+            new NamedThreadFactory("rpc-etcd-register-", true));
+
+    private volatile boolean destroyed;
 
     /**
      * 注册中心服务缓存（消费端）
@@ -47,15 +88,35 @@ public class EtcdRegistry implements Registry {
     private final RegistryServiceCache serviceCache = new RegistryServiceCache();
 
     /**
-     * 正在监听的key集合（消费端）
+     * 正在监听的服务键名集合（消费端）
      */
     private final Set<String> watchingKeySet = new ConcurrentHashSet<>();
 
+    /**
+     * 每个服务的监听：服务键名 => 监听器
+     */
+    private final Map<String, Watch.Watcher> watcherMap = new ConcurrentHashMap<>();
+
     /**
      * 根节点
      */
     private String ETCD_ROOT_PATH = "/rpc/";
 
+    /**
+     * 服务节点信息的编码方式（服务端）
+     */
+    private String encoding;
+
+    /**
+     * 注册中心请求的超时时间（毫秒）
+     */
+    private long timeout;
+
+    /**
+     * 全量加载服务节点时使用的锁：服务键名 => 锁，不同服务的加载互不阻塞
+     */
+    private final Map<String, Object> loadLockMap = new ConcurrentHashMap<>();
+
     /**
      * 初始化
      * @param registryConfig
@@ -68,31 +129,86 @@ public class EtcdRegistry implements Registry {
                 .connectTimeout(Duration.ofMillis(registryConfig.getTimeout()))
                 .build();
         kvClient = client.getKVClient();
-        // 心跳检测
-        heartBeat();
+        encoding = registryConfig.getEncoding();
+        timeout = registryConfig.getTimeout();
+        // 从快照文件加载服务节点，注册中心不可用时仍可调用已知的服务节点
+        if (StrUtil.isNotBlank(registryConfig.getSnapshotFile())) {
+            serviceCache.loadSnapshotFile(new RegistrySnapshotFile(registryConfig.getSnapshotFile(),
+                    registryConfig.getSnapshotWriteInterval()));
+        }
     }
 
     /**
      * 服务注册（服务端）
+     * 本机所有服务节点共用一个租约，由 keepAlive 自动续期
      * @param serviceMetaInfo
      */
     @Override
     public void register(ServiceMetaInfo serviceMetaInfo) throws Exception {
-        // 创建Lease和KV客户端
-        Lease leaseClient = client.getLeaseClient();
-        // 创建一个30秒的租约(服务30秒过期)
-        long leaseId = leaseClient.grant(30).get().getID();
         // 设置要存储的键值对
         String registerKey = ETCD_ROOT_PATH + serviceMetaInfo.getServiceNodeKey();
-        ByteSequence key = ByteSequence.from(registerKey, StandardCharsets.UTF_8);
-        ByteSequence value = ByteSequence.from(JSONUtil.toJsonStr(serviceMetaInfo), StandardCharsets.UTF_8);
+        // 先加入本地缓存，租约丢失后重新注册时也会包含该节点
+        localRegisterNodeMap.put(registerKey, serviceMetaInfo);
+        put(registerKey, serviceMetaInfo, getLeaseId());
+    }
 
-        // 存储
+    /**
+     * 批量服务注册（服务端）
+     * 所有节点共用一个租约，在一个事务中写入（超过事务操作数上限时分多个事务）
+     * @param serviceMetaInfoList
+     */
+    @Override
+    public void registerBatch(List<ServiceMetaInfo> serviceMetaInfoList) throws Exception {
+        Map<String, ServiceMetaInfo> registerNodeMap = new LinkedHashMap<>();
+        for (ServiceMetaInfo serviceMetaInfo : serviceMetaInfoList) {
+            registerNodeMap.put(ETCD_ROOT_PATH + serviceMetaInfo.getServiceNodeKey(), serviceMetaInfo);
+        }
+        localRegisterNodeMap.putAll(registerNodeMap);
+        putAll(registerNodeMap, getLeaseId());
+    }
+
+    /**
+     * 在事务中批量存储节点信息并绑定租约
+     * @param registerNodeMap 节点key => 节点信息
+     * @param leaseId
+     */
+    private void putAll(Map<String, ServiceMetaInfo> registerNodeMap, long leaseId) throws Exception {
+        PutOption putOption = PutOption.builder().withLeaseId(leaseId).build();
+        List<Op> opList = registerNodeMap.entrySet().stream()
+                .map(entry -> Op.put(ByteSequence.from(entry.getKey(), StandardCharsets.UTF_8),
+                        ByteSequence.from(ServiceMetaInfoCodec.encode(entry.getValue(), encoding)), putOption))
+                .collect(Collectors.toList());
+        for (int i = 0; i < opList.size(); i += MAX_TXN_OPS) {
+            Txn txn = kvClient.txn();
+            txn.Then(opList.subList(i, Math.min(i + MAX_TXN_OPS, opList.size())).toArray(new Op[0]));
+            txn.commit().get();
+        }
+    }
+
+    /**
+     * 存储节点信息并绑定租约
+     * @param registerKey
+     * @param serviceMetaInfo
+     * @param leaseId
+     */
+    private void put(String registerKey, ServiceMetaInfo serviceMetaInfo, long leaseId) throws Exception {
+        ByteSequence key = ByteSequence.from(registerKey, StandardCharsets.UTF_8);
+        ByteSequence value = ByteSequence.from(ServiceMetaInfoCodec.encode(serviceMetaInfo, encoding));
         PutOption putOption = PutOption.builder().withLeaseId(leaseId).build();
-        kvClient.put(key, value, putOption);
+        kvClient.put(key, value, putOption).get();
+    }
 
-        // 添加节点信息到本地缓存
-        localRegisterNodeKeySet.add(registerKey);
+    /**
+     * 获取本机的租约，没有时创建租约并开始续期
+     * @return
+     */
+    private synchronized long getLeaseId() throws Exception {
+        if (leaseId == 0) {
+            // 创建一个30秒的租约，续期停止（进程退出或与 etcd 断开）30秒后服务节点自动过期
+            leaseId = client.getLeaseClient().grant(LEASE_TTL).get().getID();
+            heartBeat();
+        }
+        return leaseId;
     }
 
     /**
@@ -107,7 +223,7 @@ public class EtcdRegistry implements Registry {
         // todo 这里可能需要执行join方法才会最终删除？
         future.join();
         // 从本地缓存中移除节点信息
-        localRegisterNodeKeySet.remove(registerKey);
+        localRegisterNodeMap.remove(registerKey);
     }
 
     /**
@@ -117,31 +233,51 @@ public class EtcdRegistry implements Registry {
      */
     @Override
     public List<ServiceMetaInfo> serviceDiscovery(String serviceKey) {
-        // 优先从缓存获取服务
-        List<ServiceMetaInfo> cachedServiceMetaInfoList = serviceCache.readCache(serviceKey);
-        if (cachedServiceMetaInfoList != null) {
-            return cachedServiceMetaInfoList;
+        // 优先从缓存获取服务，缓存由监听事件增量更新
+        ServiceSnapshot cachedSnapshot = serviceCache.readCache(serviceKey);
+        if (cachedSnapshot != null) {
+            // 过期的节点（来自快照文件或监听已中断）先继续使用，同时在后台重新加载
+            if (cachedSnapshot.isStale()) {
+                serviceCache.refreshAsync(serviceKey, () -> loadService(serviceKey));
+            }
+            return cachedSnapshot;
         }
 
+        return loadService(serviceKey);
+    }
+
+    /**
+     * 全量查询服务节点并开始监听（同一个服务同一时间只有一个线程加载，避免重复查询和重复监听）
+     * 按服务加锁，查询超时时间为注册中心的超时时间，某个服务加载缓慢时不会阻塞其他服务的发现和服务端的心跳
+     * @param serviceKey 服务键名
+     * @return
+     */
+    private List<ServiceMetaInfo> loadService(String serviceKey) {
+        synchronized (loadLockMap.computeIfAbsent(serviceKey, key -> new Object())) {
+            return doLoadService(serviceKey);
+        }
+    }
+
+    private List<ServiceMetaInfo> doLoadService(String serviceKey) {
+        ServiceSnapshot cachedSnapshot = serviceCache.readCache(serviceKey);
+        if (cachedSnapshot != null && !cachedSnapshot.isStale()) {
+            return cachedSnapshot;
+        }
         // 前缀搜索，结尾一定要加 /
         String searchPrefix = ETCD_ROOT_PATH + serviceKey + "/";
         try {
             GetOption getOption = GetOption.builder().isPrefix(true).build();
-            List<KeyValue> keyValueList = kvClient.get(ByteSequence.from(searchPrefix, StandardCharsets.UTF_8),
-                    getOption)
-                    .get()
-                    .getKvs();
-            List<ServiceMetaInfo> serviceMetaInfoList = keyValueList.stream().map(kv -> {
-                String key = kv.getKey().toString(StandardCharsets.UTF_8);
-                // 监听key的变化
-                watch(key, serviceKey);
-                String value = kv.getValue().toString(StandardCharsets.UTF_8);
-                return JSONUtil.toBean(value, ServiceMetaInfo.class);
-            }).collect(Collectors.toList());
+            GetResponse getResponse = kvClient.get(ByteSequence.from(searchPrefix, StandardCharsets.UTF_8), getOption)
+                    .get(timeout, TimeUnit.MILLISECONDS);
+            List<ServiceMetaInfo> serviceMetaInfoList = getResponse.getKvs().stream()
+                    .map(kv -> ServiceMetaInfoCodec.decode(kv.getValue().getBytes()))
+                    .collect(Collectors.toList());
 
             // 写入消费端服务缓存
             serviceCache.writeCache(serviceKey, serviceMetaInfoList);
-            return serviceMetaInfoList;
+            // 从查询时的下一个版本开始监听，查询和开始监听之间的变化也不会遗漏
+            watch(serviceKey, getResponse.getHeader().getRevision() + 1);
+            return serviceCache.readCache(serviceKey);
         } catch (Exception e) {
             throw new RuntimeException("获取服务列表失败", e);
         }
@@ -149,68 +285,125 @@ public class EtcdRegistry implements Registry {
 
     /**
      * 心跳检测（服务端）
+     * 通过 keepAlive 长连接为租约续期，租约丢失（例如与 etcd 长时间断开导致租约过期）时重新创建租约并重新注册所有节点
      */
     @Override
-    public void heartBeat() {
-        // 每10秒重新注册服务，相当于续期了
-        CronUtil.schedule("*/10 * * * * *", new Task() {
+    public synchronized void heartBeat() {
+        if (leaseId == 0 || keepAliveClient != null) {
+            return;
+        }
+        long currentLeaseId = leaseId;
+        keepAliveClient = client.getLeaseClient().keepAlive(currentLeaseId, new StreamObserver<LeaseKeepAliveResponse>() {
             @Override
-            public void execute() {
-                // 遍历每个节点进行续期
-                for (String key : localRegisterNodeKeySet) {
-                    try {
-                        List<KeyValue> keyValueList = kvClient.get(ByteSequence.from(key, StandardCharsets.UTF_8))
-                                .get()
-                                .getKvs();
-                        // 该节点已过期，需重新启动节点才能重新注册
-                        if (CollUtil.isEmpty(keyValueList)) {
-                            continue;
-                        }
-                        // 未过期，重新注册（相当于续期）
-                        KeyValue keyValue = keyValueList.get(0);
-                        String value = keyValue.getValue().toString(StandardCharsets.UTF_8);
-                        ServiceMetaInfo serviceMetaInfo = JSONUtil.toBean(value, ServiceMetaInfo.class);
-                        register(serviceMetaInfo);
-                    } catch (Exception e) {
-                        throw new RuntimeException(key + "续签失败", e);
-                    }
+            public void onNext(LeaseKeepAliveResponse response) {
+                // 剩余时间不大于0，说明租约已过期
+                if (response.getTTL() <= 0) {
+                    onLeaseLost(currentLeaseId);
                 }
             }
+
+            @Override
+            public void onError(Throwable throwable) {
+                log.warn("租约 {} 续期失败", currentLeaseId, throwable);
+                onLeaseLost(currentLeaseId);
+            }
+
+            @Override
+            public void onCompleted() {
+                onLeaseLost(currentLeaseId);
+            }
         });
+    }
 
-        // 支持秒级别定时任务
-        CronUtil.setMatchSecond(true);
-        CronUtil.start();
+    /**
+     * 租约丢失后重新注册
+     * @param lostLeaseId 丢失的租约
+     */
+    private synchronized void onLeaseLost(long lostLeaseId) {
+        if (destroyed || leaseId != lostLeaseId) {
+            return;
+        }
+        log.warn("租约 {} 已丢失，重新注册服务节点", lostLeaseId);
+        leaseId = 0;
+        if (keepAliveClient != null) {
+            keepAliveClient.close();
+            keepAliveClient = null;
+        }
+        reRegisterExecutor.execute(this::reRegister);
+    }
+
+    /**
+     * 创建新租约并重新注册本机所有节点，失败时稍后重试
+     */
+    private void reRegister() {
+        if (destroyed) {
+            return;
+        }
+        try {
+            putAll(new LinkedHashMap<>(localRegisterNodeMap), getLeaseId());
+            log.info("重新注册 {} 个服务节点成功", localRegisterNodeMap.size());
+        } catch (Exception e) {
+            log.error("重新注册服务节点失败，{} 秒后重试", RE_REGISTER_INTERVAL, e);
+            reRegisterExecutor.schedule(this::reRegister, RE_REGISTER_INTERVAL, TimeUnit.SECONDS);
+        }
     }
 
     /**
      * 监听（消费端）
-     * @param serviceNodeKey
      * @param serviceKey
      */
     @Override
-    public void watch(String serviceNodeKey, String serviceKey) {
-        boolean newWatch = watchingKeySet.add(serviceNodeKey);
+    public void watch(String serviceKey) {
+        // 从最新版本开始监听
+        watch(serviceKey, 0);
+    }
+
+    /**
+     * 监听服务下所有节点的变化（每个服务一个前缀监听，而不是每个节点一个）
+     * @param serviceKey
+     * @param startRevision 开始监听的版本，0 表示从最新版本开始
+     */
+    private void watch(String serviceKey, long startRevision) {
+        boolean newWatch = watchingKeySet.add(serviceKey);
         if (!newWatch) {
             return;
         }
         // 之前未被监听，开启监听
+        String watchPrefix = ETCD_ROOT_PATH + serviceKey + "/";
+        WatchOption watchOption = WatchOption.builder()
+                .isPrefix(true)
+                .withRevision(startRevision)
+                .build();
         Watch watchClient = client.getWatchClient();
-        watchClient.watch(ByteSequence.from(serviceNodeKey, StandardCharsets.UTF_8), response -> {
+        Watch.Watcher watcher = watchClient.watch(ByteSequence.from(watchPrefix, StandardCharsets.UTF_8), watchOption, Watch.listener(response -> {
             for (WatchEvent event : response.getEvents()) {
+                String serviceNodeKey = event.getKeyValue().getKey().toString(StandardCharsets.UTF_8)
+                        .substring(ETCD_ROOT_PATH.length());
+                // 只更新变化的节点，不清空整个服务的缓存，避免下次调用重新全量查询
                 switch (event.getEventType()) {
-                    // key删除时触发
+                    // key删除时触发（节点下线或租约过期）
                     case DELETE:
-                        // 清理注册服务缓存
-                        // 注意这里存储的是serviceKey而不是serviceNodeKey
-                        serviceCache.deleteCache(serviceKey);
+                        serviceCache.removeNode(serviceKey, serviceNodeKey);
                         break;
+                    // key新增或更新时触发
                     case PUT:
+                        serviceCache.putNode(serviceKey, ServiceMetaInfoCodec.decode(event.getKeyValue().getValue().getBytes()));
+                        break;
                     default:
                         break;
                 }
             }
-        });
+        }, throwable -> {
+            // 监听中断（例如开始版本已被压缩），缓存标记为过期，下次服务发现时在后台重新全量查询并监听
+            log.warn("监听服务 {} 失败，重新加载服务节点", serviceKey, throwable);
+            Watch.Watcher failedWatcher = watcherMap.remove(serviceKey);
+            if (failedWatcher != null) {
+                failedWatcher.close();
+            }
+            watchingKeySet.remove(serviceKey);
+            serviceCache.markStale(serviceKey);
+        }));
+        watcherMap.put(serviceKey, watcher);
     }
 
     /**
@@ -219,16 +412,27 @@ public class EtcdRegistry implements Registry {
     @Override
     public void destroy() {
         log.info("注册中心：当前节点下线");
-        // 下线节点（主动下线）
-        for (String key : localRegisterNodeKeySet) {
-            try {
-                CompletableFuture<DeleteResponse> future = kvClient.delete(ByteSequence.from(key, StandardCharsets.UTF_8));
-                future.join();
-            } catch (Exception e) {
-                throw new RuntimeException(key + "节点下线失败", e);
+        destroyed = true;
+        reRegisterExecutor.shutdownNow();
+        // 下线节点（主动下线）：撤销租约，绑定在租约上的节点一起删除
+        synchronized (this) {
+            if (keepAliveClient != null) {
+                keepAliveClient.close();
+                keepAliveClient = null;
+            }
+            if (leaseId != 0) {
+                try {
+                    client.getLeaseClient().revoke(leaseId).get();
+                } catch (Exception e) {
+                    throw new RuntimeException(leaseId + "租约撤销失败，节点下线失败", e);
+                }
+                leaseId = 0;
             }
         }
+        localRegisterNodeMap.clear();
         // 释放资源
+        watcherMap.values().forEach(Watch.Watcher::close);
+        watcherMap.clear();
         if (client != null) {
             client.close();
         }
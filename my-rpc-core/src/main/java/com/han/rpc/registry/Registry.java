@@ -21,6 +21,17 @@ public interface Registry {
      */
     void register(ServiceMetaInfo serviceMetaInfo) throws Exception;
 
+    /**
+     * 批量服务注册（服务端）
+     * 默认逐个注册，注册中心支持时应一次性注册所有节点，缩短服务提供者启动时间
+     * @param serviceMetaInfoList
+     */
+    default void registerBatch(List<ServiceMetaInfo> serviceMetaInfoList) throws Exception {
+        for (ServiceMetaInfo serviceMetaInfo : serviceMetaInfoList) {
+            register(serviceMetaInfo);
+        }
+    }
+
     /**
      * 服务注销（服务端）
      * @param serviceMetaInfo
@@ -40,11 +51,10 @@ public interface Registry {
     void heartBeat();
 
     /**
-     * 监听（消费端）
-     * @param serviceNodeKey
-     * @param serviceKey
+     * 监听服务下所有节点的变化，增量更新本地缓存（消费端）
+     * @param serviceKey 服务键名
      */
-    void watch(String serviceNodeKey, String serviceKey);
+    void watch(String serviceKey);
 
     /**
      * 服务销毁
@@ -0,0 +1,17 @@
+package com.han.rpc.registry;
+
+/**
+ * 注册中心节点信息编码方式键名常量
+ */
+public interface RegistryEncodingKeys {
+
+    /**
+     * JSON（旧版本的格式）
+     */
+    String JSON = "json";
+
+    /**
+     * 紧凑的二进制格式
+     */
+    String BINARY = "binary";
+}
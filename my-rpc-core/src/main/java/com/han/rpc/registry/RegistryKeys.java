@@ -6,4 +6,5 @@ package com.han.rpc.registry;
 public interface RegistryKeys {
     String ETCD = "etcd";
     String ZOOKEEPER = "zookeeper";
+    String EMBEDDED = "embedded";
 }
@@ -1,45 +1,135 @@
 package com.han.rpc.registry;
 
+import cn.hutool.core.collection.ConcurrentHashSet;
+import cn.hutool.core.thread.NamedThreadFactory;
 import com.han.rpc.model.ServiceMetaInfo;
+import lombok.extern.slf4j.Slf4j;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * 注册中心服务本地缓存
+ * 每个服务缓存一份不可变的节点快照，监听到节点变化时按单个节点增量更新（写时复制），
+ * 调用路径上的服务发现只需读取一次当前快照，不需要加锁。
+ * 配置了快照文件时，缓存变化后写入文件，启动时从文件加载（标记为过期），注册中心恢复前仍可使用
  */
+@Slf4j
 public class RegistryServiceCache {
 
     /**
-     * 服务缓存
+     * 后台重新加载过期服务的线程池（所有缓存共用）
      */
-    private Map<String, List<ServiceMetaInfo>> serviceCache = new HashMap<>();
+    private static final ExecutorService REFRESH_EXECUTOR = Executors.newCachedThreadPool(
+            new NamedThreadFactory("rpc-registry-refresh-", true));
 
     /**
-     * 写缓存
+     * 服务缓存：服务键名 => 节点快照
+     */
+    private final Map<String, ServiceSnapshot> serviceCache = new ConcurrentHashMap<>();
+
+    /**
+     * 正在后台重新加载的服务键名
+     */
+    private final Set<String> refreshingKeySet = new ConcurrentHashSet<>();
+
+    /**
+     * 快照文件，为空表示不持久化
+     */
+    private volatile RegistrySnapshotFile snapshotFile;
+
+    /**
+     * 设置快照文件并加载文件中的服务节点（标记为过期）
+     * @param snapshotFile
+     */
+    public void loadSnapshotFile(RegistrySnapshotFile snapshotFile) {
+        this.snapshotFile = snapshotFile;
+        Map<String, List<ServiceMetaInfo>> serviceMap = snapshotFile.load();
+        serviceMap.forEach((serviceKey, serviceMetaInfoList) ->
+                serviceCache.putIfAbsent(serviceKey, ServiceSnapshot.of(serviceMetaInfoList).markStale()));
+        if (!serviceMap.isEmpty()) {
+            log.info("从快照文件加载了 {} 个服务", serviceMap.size());
+        }
+    }
+
+    /**
+     * 写缓存（全量替换）
      * @param serviceKey
      * @param newServiceCache
      */
     public void writeCache(String serviceKey, List<ServiceMetaInfo> newServiceCache) {
-        serviceCache.put(serviceKey, newServiceCache);
+        serviceCache.put(serviceKey, ServiceSnapshot.of(newServiceCache));
+        onChanged();
     }
 
     /**
      * 读缓存
      * @param serviceKey
-     * @return
+     * @return 节点快照，未缓存时返回 null
      */
-    public List<ServiceMetaInfo> readCache(String serviceKey) {
+    public ServiceSnapshot readCache(String serviceKey) {
         return serviceCache.get(serviceKey);
     }
 
+    /**
+     * 新增或更新一个节点，服务未缓存时忽略（首次服务发现时会全量加载）
+     * @param serviceKey
+     * @param serviceMetaInfo
+     */
+    public void putNode(String serviceKey, ServiceMetaInfo serviceMetaInfo) {
+        serviceCache.computeIfPresent(serviceKey, (key, snapshot) -> snapshot.put(serviceMetaInfo));
+        onChanged();
+    }
+
+    /**
+     * 删除一个节点
+     * @param serviceKey
+     * @param serviceNodeKey 服务注册节点键名
+     */
+    public void removeNode(String serviceKey, String serviceNodeKey) {
+        serviceCache.computeIfPresent(serviceKey, (key, snapshot) -> snapshot.remove(serviceNodeKey));
+        onChanged();
+    }
+
+    /**
+     * 将服务标记为过期（例如与注册中心的监听中断），过期的节点仍可使用，下次服务发现时在后台重新加载
+     * @param serviceKey
+     */
+    public void markStale(String serviceKey) {
+        serviceCache.computeIfPresent(serviceKey, (key, snapshot) -> snapshot.markStale());
+    }
+
+    /**
+     * 在后台重新加载服务，同一服务同时只有一个加载任务
+     * @param serviceKey
+     * @param loader 从注册中心加载服务并写入缓存
+     */
+    public void refreshAsync(String serviceKey, Runnable loader) {
+        if (!refreshingKeySet.add(serviceKey)) {
+            return;
+        }
+        REFRESH_EXECUTOR.execute(() -> {
+            try {
+                loader.run();
+            } catch (Exception e) {
+                log.warn("从注册中心加载服务 {} 失败，继续使用过期的服务节点", serviceKey, e);
+            } finally {
+                refreshingKeySet.remove(serviceKey);
+            }
+        });
+    }
+
     /**
      * 删除某个key的缓存
      * @param serviceKey
      */
     public void deleteCache(String serviceKey) {
-        List<ServiceMetaInfo> remove = serviceCache.remove(serviceKey);
+        serviceCache.remove(serviceKey);
+        onChanged();
     }
 
     /**
@@ -47,5 +137,16 @@ public class RegistryServiceCache {
      */
     public void clearCache() {
         serviceCache.clear();
+        onChanged();
+    }
+
+    /**
+     * 缓存变化后安排写入快照文件
+     */
+    private void onChanged() {
+        RegistrySnapshotFile file = snapshotFile;
+        if (file != null) {
+            file.scheduleWrite(() -> serviceCache);
+        }
     }
 }
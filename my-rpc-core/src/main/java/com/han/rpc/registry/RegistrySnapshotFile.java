@@ -0,0 +1,194 @@
+package com.han.rpc.registry;
+
+import cn.hutool.core.thread.NamedThreadFactory;
+import com.han.rpc.model.ServiceMetaInfo;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * 服务发现快照文件（消费端）
+ * 将最近一次获取到的服务节点列表保存到本地文件，启动时先从文件加载，注册中心不可用时仍可以调用已知的服务节点。
+ * 文件为紧凑的二进制格式，先写临时文件再原子替换，不会读到写了一半的文件；节点变化频繁时按写入间隔合并写入
+ */
+@Slf4j
+public class RegistrySnapshotFile {
+
+    /**
+     * 文件魔数
+     */
+    private static final int MAGIC = 0x52504353;
+
+    /**
+     * 文件格式版本（版本2增加了地域、可用区和主机标识，仍可读取版本1的文件）
+     */
+    private static final byte VERSION = 2;
+
+    /**
+     * 写文件的线程（所有快照文件共用）
+     */
+    private static final ScheduledExecutorService WRITE_EXECUTOR = Executors.newSingleThreadScheduledExecutor(
+            new NamedThreadFactory("rpc-registry-snapshot-", true));
+
+    private final Path path;
+
+    /**
+     * 写入间隔（毫秒）
+     */
+    private final long writeInterval;
+
+    /**
+     * 是否已安排写入
+     */
+    private final AtomicBoolean writeScheduled = new AtomicBoolean();
+
+    public RegistrySnapshotFile(String path, long writeInterval) {
+        this.path = Paths.get(path);
+        this.writeInterval = writeInterval;
+    }
+
+    /**
+     * 读取快照文件
+     * @return 服务键名 => 服务节点列表，文件不存在或损坏时返回空
+     */
+    public Map<String, List<ServiceMetaInfo>> load() {
+        if (!Files.exists(path)) {
+            return Collections.emptyMap();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            int magic = in.readInt();
+            byte version = in.readByte();
+            if (magic != MAGIC || version < 1 || version > VERSION) {
+                log.warn("服务发现快照文件格式不正确，忽略 {}", path);
+                return Collections.emptyMap();
+            }
+            int serviceCount = in.readInt();
+            Map<String, List<ServiceMetaInfo>> serviceMap = new HashMap<>(serviceCount * 2);
+            for (int i = 0; i < serviceCount; i++) {
+                String serviceKey = in.readUTF();
+                int nodeCount = in.readInt();
+                List<ServiceMetaInfo> serviceMetaInfoList = new ArrayList<>(nodeCount);
+                for (int j = 0; j < nodeCount; j++) {
+                    serviceMetaInfoList.add(readServiceMetaInfo(in, version));
+                }
+                serviceMap.put(serviceKey, serviceMetaInfoList);
+            }
+            return serviceMap;
+        } catch (IOException e) {
+            log.warn("读取服务发现快照文件失败，忽略 {}", path, e);
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * 安排写入，写入间隔内的多次变化只写一次，写入时取最新的服务节点列表
+     * @param supplier 写入时获取服务节点列表
+     */
+    public void scheduleWrite(Supplier<Map<String, ? extends List<ServiceMetaInfo>>> supplier) {
+        if (!writeScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        WRITE_EXECUTOR.schedule(() -> {
+            writeScheduled.set(false);
+            try {
+                write(supplier.get());
+            } catch (Exception e) {
+                log.warn("写入服务发现快照文件失败 {}", path, e);
+            }
+        }, writeInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 写入快照文件（先写临时文件，再原子替换）
+     * @param serviceMap 服务键名 => 服务节点列表
+     * @throws IOException
+     */
+    public void write(Map<String, ? extends List<ServiceMetaInfo>> serviceMap) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tempPath = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                out.writeInt(serviceMap.size());
+                for (Map.Entry<String, ? extends List<ServiceMetaInfo>> entry : serviceMap.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(entry.getValue().size());
+                    for (ServiceMetaInfo serviceMetaInfo : entry.getValue()) {
+                        writeServiceMetaInfo(out, serviceMetaInfo);
+                    }
+                }
+            }
+            try {
+                Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+    }
+
+    private void writeServiceMetaInfo(DataOutputStream out, ServiceMetaInfo serviceMetaInfo) throws IOException {
+        writeString(out, serviceMetaInfo.getServiceName());
+        writeString(out, serviceMetaInfo.getServiceVersion());
+        writeString(out, serviceMetaInfo.getServiceHost());
+        out.writeInt(serviceMetaInfo.getServicePort());
+        writeString(out, serviceMetaInfo.getServiceGroup());
+        out.writeInt(serviceMetaInfo.getWeight());
+        out.writeLong(serviceMetaInfo.getRegisterTime());
+        out.writeLong(serviceMetaInfo.getWarmup());
+        writeString(out, serviceMetaInfo.getRegion());
+        writeString(out, serviceMetaInfo.getZone());
+        writeString(out, serviceMetaInfo.getHostName());
+    }
+
+    private ServiceMetaInfo readServiceMetaInfo(DataInputStream in, byte version) throws IOException {
+        ServiceMetaInfo serviceMetaInfo = new ServiceMetaInfo();
+        serviceMetaInfo.setServiceName(readString(in));
+        serviceMetaInfo.setServiceVersion(readString(in));
+        serviceMetaInfo.setServiceHost(readString(in));
+        serviceMetaInfo.setServicePort(in.readInt());
+        serviceMetaInfo.setServiceGroup(readString(in));
+        serviceMetaInfo.setWeight(in.readInt());
+        serviceMetaInfo.setRegisterTime(in.readLong());
+        serviceMetaInfo.setWarmup(in.readLong());
+        if (version >= 2) {
+            serviceMetaInfo.setRegion(readString(in));
+            serviceMetaInfo.setZone(readString(in));
+            serviceMetaInfo.setHostName(readString(in));
+        }
+        return serviceMetaInfo;
+    }
+
+    private void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
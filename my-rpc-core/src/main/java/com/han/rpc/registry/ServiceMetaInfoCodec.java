@@ -0,0 +1,189 @@
+package com.han.rpc.registry;
+
+import cn.hutool.json.JSONUtil;
+import com.han.rpc.model.ServiceMetaInfo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 服务节点信息编解码器
+ * 二进制格式：魔数(1字节) + 版本(1字节) + 各字段，字符串为 变长长度 + UTF-8 字节，整数为变长编码。
+ * 新版本只在末尾追加字段，旧版本解码时忽略多出的字节；解码时按首字节区分二进制和 JSON，迁移期间两种格式可以同时存在
+ */
+public class ServiceMetaInfoCodec {
+
+    /**
+     * 二进制格式魔数（JSON 以 '{' 开头，不会与之冲突）
+     */
+    private static final byte MAGIC = (byte) 0xC1;
+
+    /**
+     * 二进制格式版本（版本2追加了地域、可用区和主机标识）
+     */
+    private static final byte VERSION = 2;
+
+    /**
+     * 编码
+     * @param serviceMetaInfo
+     * @param encoding 编码方式，见 RegistryEncodingKeys
+     * @return
+     */
+    public static byte[] encode(ServiceMetaInfo serviceMetaInfo, String encoding) {
+        if (RegistryEncodingKeys.JSON.equals(encoding)) {
+            return JSONUtil.toJsonStr(serviceMetaInfo).getBytes(StandardCharsets.UTF_8);
+        }
+        if (!RegistryEncodingKeys.BINARY.equals(encoding)) {
+            throw new RuntimeException("不支持的注册中心编码方式：" + encoding);
+        }
+        Writer writer = new Writer();
+        writer.writeByte(MAGIC);
+        writer.writeByte(VERSION);
+        writer.writeString(serviceMetaInfo.getServiceName());
+        writer.writeString(serviceMetaInfo.getServiceVersion());
+        writer.writeString(serviceMetaInfo.getServiceHost());
+        writer.writeVarLong(serviceMetaInfo.getServicePort());
+        writer.writeString(serviceMetaInfo.getServiceGroup());
+        writer.writeVarLong(serviceMetaInfo.getWeight());
+        writer.writeVarLong(serviceMetaInfo.getRegisterTime());
+        writer.writeVarLong(serviceMetaInfo.getWarmup());
+        writer.writeString(serviceMetaInfo.getRegion());
+        writer.writeString(serviceMetaInfo.getZone());
+        writer.writeString(serviceMetaInfo.getHostName());
+        return writer.toByteArray();
+    }
+
+    /**
+     * 解码，自动识别二进制和 JSON 格式
+     * @param data
+     * @return
+     */
+    public static ServiceMetaInfo decode(byte[] data) {
+        if (!isBinary(data)) {
+            return JSONUtil.toBean(new String(data, StandardCharsets.UTF_8), ServiceMetaInfo.class);
+        }
+        if (data.length < 2) {
+            throw new RuntimeException("服务节点信息格式不正确");
+        }
+        byte version = data[1];
+        Reader reader = new Reader(data);
+        reader.position = 2;
+        ServiceMetaInfo serviceMetaInfo = new ServiceMetaInfo();
+        // 同一服务的所有节点的名称、版本和分组相同，复用同一个字符串对象，节点很多时节省内存
+        serviceMetaInfo.setServiceName(intern(reader.readString()));
+        serviceMetaInfo.setServiceVersion(intern(reader.readString()));
+        serviceMetaInfo.setServiceHost(reader.readString());
+        serviceMetaInfo.setServicePort((int) reader.readVarLong());
+        serviceMetaInfo.setServiceGroup(intern(reader.readString()));
+        serviceMetaInfo.setWeight((int) reader.readVarLong());
+        serviceMetaInfo.setRegisterTime(reader.readVarLong());
+        serviceMetaInfo.setWarmup(reader.readVarLong());
+        if (version >= 2) {
+            serviceMetaInfo.setRegion(intern(reader.readString()));
+            serviceMetaInfo.setZone(intern(reader.readString()));
+            serviceMetaInfo.setHostName(intern(reader.readString()));
+        }
+        return serviceMetaInfo;
+    }
+
+    /**
+     * 是否为二进制格式
+     * @param data
+     * @return
+     */
+    public static boolean isBinary(byte[] data) {
+        return data.length > 0 && data[0] == MAGIC;
+    }
+
+    private static String intern(String value) {
+        return value == null ? null : value.intern();
+    }
+
+    private static class Writer {
+        private byte[] buffer = new byte[128];
+
+        private int position;
+
+        private void ensureCapacity(int length) {
+            if (position + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+            }
+        }
+
+        private void writeByte(int value) {
+            ensureCapacity(1);
+            buffer[position++] = (byte) value;
+        }
+
+        /**
+         * 变长编码（ZigZag，负数也只占少量字节）
+         * @param value
+         */
+        private void writeVarLong(long value) {
+            long zigZag = (value << 1) ^ (value >> 63);
+            while ((zigZag & ~0x7FL) != 0) {
+                writeByte((int) ((zigZag & 0x7F) | 0x80));
+                zigZag >>>= 7;
+            }
+            writeByte((int) zigZag);
+        }
+
+        /**
+         * 写字符串，长度加1写入，0 表示 null
+         * @param value
+         */
+        private void writeString(String value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length + 1L);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+    }
+
+    private static class Reader {
+        private final byte[] data;
+
+        private int position;
+
+        private Reader(byte[] data) {
+            this.data = data;
+        }
+
+        private long readVarLong() {
+            long zigZag = 0;
+            for (int shift = 0; ; shift += 7) {
+                if (position >= data.length || shift > 63) {
+                    throw new RuntimeException("服务节点信息格式不正确");
+                }
+                byte b = data[position++];
+                zigZag |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    break;
+                }
+            }
+            return (zigZag >>> 1) ^ -(zigZag & 1);
+        }
+
+        private String readString() {
+            long length = readVarLong() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (length > data.length - position) {
+                throw new RuntimeException("服务节点信息格式不正确");
+            }
+            String value = new String(data, position, (int) length, StandardCharsets.UTF_8);
+            position += (int) length;
+            return value;
+        }
+    }
+}
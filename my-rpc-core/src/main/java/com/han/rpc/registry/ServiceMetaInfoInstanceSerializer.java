@@ -0,0 +1,45 @@
+package com.han.rpc.registry;
+
+import com.han.rpc.model.ServiceMetaInfo;
+import org.apache.curator.x.discovery.ServiceInstance;
+import org.apache.curator.x.discovery.ServiceType;
+import org.apache.curator.x.discovery.details.InstanceSerializer;
+import org.apache.curator.x.discovery.details.JsonInstanceSerializer;
+
+/**
+ * ZooKeeper 服务实例序列化器
+ * 二进制格式只保存服务节点信息，服务实例的其他字段都可以由节点信息得到；读取时自动识别旧版本的 JSON 格式
+ */
+public class ServiceMetaInfoInstanceSerializer implements InstanceSerializer<ServiceMetaInfo> {
+
+    private final JsonInstanceSerializer<ServiceMetaInfo> jsonInstanceSerializer = new JsonInstanceSerializer<>(ServiceMetaInfo.class);
+
+    /**
+     * 编码方式，见 RegistryEncodingKeys
+     */
+    private final String encoding;
+
+    public ServiceMetaInfoInstanceSerializer(String encoding) {
+        this.encoding = encoding;
+    }
+
+    @Override
+    public byte[] serialize(ServiceInstance<ServiceMetaInfo> instance) throws Exception {
+        if (RegistryEncodingKeys.JSON.equals(encoding)) {
+            return jsonInstanceSerializer.serialize(instance);
+        }
+        return ServiceMetaInfoCodec.encode(instance.getPayload(), encoding);
+    }
+
+    @Override
+    public ServiceInstance<ServiceMetaInfo> deserialize(byte[] bytes) throws Exception {
+        if (!ServiceMetaInfoCodec.isBinary(bytes)) {
+            return jsonInstanceSerializer.deserialize(bytes);
+        }
+        ServiceMetaInfo serviceMetaInfo = ServiceMetaInfoCodec.decode(bytes);
+        String serviceAddress = serviceMetaInfo.getServiceAddress();
+        // 与注册时构建的服务实例一致：id 和地址为服务地址，名称为服务键名
+        return new ServiceInstance<>(serviceMetaInfo.getServiceKey(), serviceAddress, serviceAddress, null, null,
+                serviceMetaInfo, serviceMetaInfo.getRegisterTime(), ServiceType.DYNAMIC, null);
+    }
+}
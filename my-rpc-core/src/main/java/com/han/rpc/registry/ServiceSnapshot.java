@@ -0,0 +1,131 @@
+package com.han.rpc.registry;
+
+import com.han.rpc.model.ServiceMetaInfo;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 服务节点列表快照（不可变）
+ * 节点变化时复制出新的快照并替换，读取方拿到的快照不会再变化，无需加锁；
+ * 每个快照有全局递增的版本号，负载均衡器等可以按版本号缓存由节点列表计算出的结构（如一致性哈希环），版本不变时直接复用
+ * 从本地快照文件加载、或与注册中心的监听中断后的快照标记为过期，仍可用于调用，同时在后台重新从注册中心加载
+ */
+public class ServiceSnapshot extends AbstractList<ServiceMetaInfo> implements RandomAccess {
+
+    /**
+     * 版本号生成器
+     */
+    private static final AtomicLong VERSION_GENERATOR = new AtomicLong();
+
+    private final long version;
+
+    /**
+     * 服务节点：服务注册节点键名 => 服务节点
+     */
+    private final Map<String, ServiceMetaInfo> nodeMap;
+
+    private final ServiceMetaInfo[] nodes;
+
+    /**
+     * 是否过期（未与注册中心同步）
+     */
+    private final boolean stale;
+
+    private ServiceSnapshot(Map<String, ServiceMetaInfo> nodeMap, boolean stale) {
+        this(VERSION_GENERATOR.incrementAndGet(), nodeMap, stale);
+    }
+
+    private ServiceSnapshot(long version, Map<String, ServiceMetaInfo> nodeMap, boolean stale) {
+        this.version = version;
+        this.nodeMap = nodeMap;
+        this.nodes = nodeMap.values().toArray(new ServiceMetaInfo[0]);
+        this.stale = stale;
+    }
+
+    /**
+     * 创建快照
+     * @param serviceMetaInfos 服务节点，同一节点出现多次时以最后一次为准
+     * @return
+     */
+    public static ServiceSnapshot of(Collection<ServiceMetaInfo> serviceMetaInfos) {
+        Map<String, ServiceMetaInfo> nodeMap = new LinkedHashMap<>();
+        for (ServiceMetaInfo serviceMetaInfo : serviceMetaInfos) {
+            nodeMap.put(serviceMetaInfo.getServiceNodeKey(), serviceMetaInfo);
+        }
+        return new ServiceSnapshot(nodeMap, false);
+    }
+
+    /**
+     * 标记为过期，返回新的快照（节点不变，版本号不变）
+     * @return
+     */
+    public ServiceSnapshot markStale() {
+        return stale ? this : new ServiceSnapshot(version, nodeMap, true);
+    }
+
+    /**
+     * 新增或更新一个节点，返回新的快照
+     * @param serviceMetaInfo
+     * @return
+     */
+    public ServiceSnapshot put(ServiceMetaInfo serviceMetaInfo) {
+        Map<String, ServiceMetaInfo> newNodeMap = new LinkedHashMap<>(nodeMap);
+        newNodeMap.put(serviceMetaInfo.getServiceNodeKey(), serviceMetaInfo);
+        return new ServiceSnapshot(newNodeMap, stale);
+    }
+
+    /**
+     * 删除一个节点，返回新的快照；节点不存在时返回当前快照
+     * @param serviceNodeKey 服务注册节点键名
+     * @return
+     */
+    public ServiceSnapshot remove(String serviceNodeKey) {
+        if (!nodeMap.containsKey(serviceNodeKey)) {
+            return this;
+        }
+        Map<String, ServiceMetaInfo> newNodeMap = new LinkedHashMap<>(nodeMap);
+        newNodeMap.remove(serviceNodeKey);
+        return new ServiceSnapshot(newNodeMap, stale);
+    }
+
+    /**
+     * 获取节点
+     * @param serviceNodeKey 服务注册节点键名
+     * @return
+     */
+    public ServiceMetaInfo getNode(String serviceNodeKey) {
+        return nodeMap.get(serviceNodeKey);
+    }
+
+    /**
+     * 获取所有节点（服务注册节点键名 => 服务节点）
+     * @return
+     */
+    public Map<String, ServiceMetaInfo> getNodeMap() {
+        return Collections.unmodifiableMap(nodeMap);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    @Override
+    public ServiceMetaInfo get(int index) {
+        return nodes[index];
+    }
+
+    @Override
+    public int size() {
+        return nodes.length;
+    }
+}
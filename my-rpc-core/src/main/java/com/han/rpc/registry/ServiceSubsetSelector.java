@@ -0,0 +1,194 @@
+package com.han.rpc.registry;
+
+import cn.hutool.core.lang.hash.MurmurHash;
+import cn.hutool.core.net.NetUtil;
+import cn.hutool.core.util.StrUtil;
+import com.han.rpc.RpcApplication;
+import com.han.rpc.config.RpcConfig;
+import com.han.rpc.model.ServiceMetaInfo;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * 服务节点子集选择（消费端）
+ * 服务节点很多时，每个消费者只使用其中固定数量的节点，避免所有消费者与所有节点都建立连接。
+ * 使用加权的最高随机权重哈希（Rendezvous Hashing）：以消费者ID和节点键名计算每个节点的分数，取分数最高的 K 个节点。
+ * 同一消费者的子集是确定的；节点上下线时只有该节点进出子集，其他节点不变；不同消费者的子集均匀分布，每个节点被选中的概率与权重成正比。
+ * 子集只用于负载均衡选择节点的调用，广播调用需要每个节点都执行，仍使用注册中心发现的全部节点。
+ * 子集中有不可用（已熔断）的节点时，按分数顺序继续向后选择可用节点补足，少数节点故障不会导致消费者没有可用节点
+ */
+@Slf4j
+public class ServiceSubsetSelector {
+
+    /**
+     * 每个服务的子集：服务键名 => 节点快照版本号及对应的节点排名和子集
+     */
+    private static final Map<String, Subset> SUBSET_MAP = new ConcurrentHashMap<>();
+
+    /**
+     * 未配置消费者ID时使用的默认ID（应用名、主机名和端口，重启后不变）
+     */
+    private static volatile String defaultConsumerId;
+
+    /**
+     * 选择子集
+     * 服务列表是注册中心缓存的快照时，按快照版本号复用已计算的子集，节点变化后才重新计算；返回的子集也是快照，负载均衡器可以继续按版本号缓存
+     * @param serviceMetaInfoList 服务的所有节点
+     * @param subsetSize 子集大小，不大于0表示不使用子集
+     * @param consumerId 消费者ID，为空时使用默认ID
+     * @return
+     */
+    public static List<ServiceMetaInfo> select(List<ServiceMetaInfo> serviceMetaInfoList, int subsetSize, String consumerId) {
+        return select(serviceMetaInfoList, subsetSize, consumerId, serviceMetaInfo -> true);
+    }
+
+    /**
+     * 选择由可用节点组成的子集
+     * 分数最高的 subsetSize 个节点都可用时返回缓存的子集快照；否则跳过不可用的节点，按分数顺序继续选择，直到补足 subsetSize 个可用节点
+     * @param serviceMetaInfoList 服务的所有节点
+     * @param subsetSize 子集大小，不大于0表示不使用子集
+     * @param consumerId 消费者ID，为空时使用默认ID
+     * @param availablePredicate 节点是否可用（例如未熔断）
+     * @return
+     */
+    public static List<ServiceMetaInfo> select(List<ServiceMetaInfo> serviceMetaInfoList, int subsetSize, String consumerId,
+                                               Predicate<ServiceMetaInfo> availablePredicate) {
+        if (subsetSize <= 0 || serviceMetaInfoList.size() <= subsetSize) {
+            return serviceMetaInfoList;
+        }
+        if (StrUtil.isBlank(consumerId)) {
+            consumerId = getDefaultConsumerId();
+        }
+        Subset subset = getSubset(serviceMetaInfoList, subsetSize, consumerId);
+        boolean allAvailable = true;
+        for (ServiceMetaInfo serviceMetaInfo : subset.snapshot) {
+            if (!availablePredicate.test(serviceMetaInfo)) {
+                allAvailable = false;
+                break;
+            }
+        }
+        if (allAvailable) {
+            return subset.snapshot;
+        }
+        List<ServiceMetaInfo> availableList = new ArrayList<>(subsetSize);
+        for (ServiceMetaInfo serviceMetaInfo : subset.rankedList) {
+            if (availablePredicate.test(serviceMetaInfo)) {
+                availableList.add(serviceMetaInfo);
+                if (availableList.size() == subsetSize) {
+                    break;
+                }
+            }
+        }
+        return availableList;
+    }
+
+    private static Subset getSubset(List<ServiceMetaInfo> serviceMetaInfoList, int subsetSize, String consumerId) {
+        if (!(serviceMetaInfoList instanceof ServiceSnapshot)) {
+            return buildSubset(-1, serviceMetaInfoList, subsetSize, consumerId);
+        }
+        long version = ((ServiceSnapshot) serviceMetaInfoList).getVersion();
+        String serviceKey = serviceMetaInfoList.get(0).getServiceKey();
+        Subset subset = SUBSET_MAP.get(serviceKey);
+        if (subset == null || subset.version != version || subset.subsetSize != subsetSize) {
+            subset = buildSubset(version, serviceMetaInfoList, subsetSize, consumerId);
+            SUBSET_MAP.put(serviceKey, subset);
+        }
+        return subset;
+    }
+
+    /**
+     * 按分数从高到低对所有节点排名，排名前 subsetSize 的节点组成子集
+     * @param version
+     * @param serviceMetaInfoList
+     * @param subsetSize
+     * @param consumerId
+     * @return
+     */
+    private static Subset buildSubset(long version, List<ServiceMetaInfo> serviceMetaInfoList, int subsetSize, String consumerId) {
+        List<ScoredNode> scoredNodeList = new ArrayList<>(serviceMetaInfoList.size());
+        for (ServiceMetaInfo serviceMetaInfo : serviceMetaInfoList) {
+            scoredNodeList.add(new ScoredNode(serviceMetaInfo, getScore(consumerId, serviceMetaInfo)));
+        }
+        scoredNodeList.sort(Comparator.comparingDouble((ScoredNode scoredNode) -> scoredNode.score).reversed());
+        List<ServiceMetaInfo> rankedList = new ArrayList<>(scoredNodeList.size());
+        for (ScoredNode scoredNode : scoredNodeList) {
+            rankedList.add(scoredNode.serviceMetaInfo);
+        }
+        return new Subset(version, subsetSize, rankedList, ServiceSnapshot.of(new ArrayList<>(rankedList.subList(0, subsetSize))));
+    }
+
+    /**
+     * 计算节点分数：哈希值映射到 (0, 1) 区间的 u，分数为 -权重 / ln(u)
+     * @param consumerId
+     * @param serviceMetaInfo
+     * @return
+     */
+    private static double getScore(String consumerId, ServiceMetaInfo serviceMetaInfo) {
+        long hash = MurmurHash.hash64(consumerId + "#" + serviceMetaInfo.getServiceNodeKey());
+        // 取高53位，加0.5避免取到0
+        double u = ((hash >>> 11) + 0.5) / (1L << 53);
+        int weight = Math.max(serviceMetaInfo.getWeight(), 1);
+        return -weight / Math.log(u);
+    }
+
+    /**
+     * 获取默认的消费者ID：应用名@主机名:端口，主机名优先使用配置的 hostName
+     * 同一主机上同名、同端口的消费者会得到相同的子集，这种部署方式应显式配置 consumerId
+     * @return
+     */
+    private static String getDefaultConsumerId() {
+        if (defaultConsumerId == null) {
+            RpcConfig rpcConfig = RpcApplication.getRpcConfig();
+            String hostName = StrUtil.isNotBlank(rpcConfig.getHostName()) ? rpcConfig.getHostName() : NetUtil.getLocalHostName();
+            defaultConsumerId = rpcConfig.getName() + "@" + hostName + ":" + rpcConfig.getServerPort();
+            log.warn("已开启服务节点子集但未配置 consumerId，使用默认的消费者ID {}，请确保其在消费者集群内唯一且重启后不变", defaultConsumerId);
+        }
+        return defaultConsumerId;
+    }
+
+    private static class ScoredNode {
+        private final ServiceMetaInfo serviceMetaInfo;
+
+        private final double score;
+
+        private ScoredNode(ServiceMetaInfo serviceMetaInfo, double score) {
+            this.serviceMetaInfo = serviceMetaInfo;
+            this.score = score;
+        }
+    }
+
+    /**
+     * 节点排名和子集（计算后不再修改，可被多个线程同时读取）
+     */
+    private static class Subset {
+        /**
+         * 计算时的节点快照版本号
+         */
+        private final long version;
+
+        private final int subsetSize;
+
+        /**
+         * 按分数从高到低排列的所有节点
+         */
+        private final List<ServiceMetaInfo> rankedList;
+
+        /**
+         * 分数最高的 subsetSize 个节点
+         */
+        private final ServiceSnapshot snapshot;
+
+        private Subset(long version, int subsetSize, List<ServiceMetaInfo> rankedList, ServiceSnapshot snapshot) {
+            this.version = version;
+            this.subsetSize = subsetSize;
+            this.rankedList = rankedList;
+            this.snapshot = snapshot;
+        }
+    }
+}
@@ -1,23 +1,33 @@
 package com.han.rpc.registry;
 
 import cn.hutool.core.collection.ConcurrentHashSet;
+import cn.hutool.core.thread.NamedThreadFactory;
+import cn.hutool.core.util.StrUtil;
 import com.han.rpc.config.RegistryConfig;
 import com.han.rpc.model.ServiceMetaInfo;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.recipes.cache.ChildData;
 import org.apache.curator.framework.recipes.cache.CuratorCache;
 import org.apache.curator.framework.recipes.cache.CuratorCacheListener;
 import org.apache.curator.retry.ExponentialBackoffRetry;
 import org.apache.curator.x.discovery.ServiceDiscovery;
 import org.apache.curator.x.discovery.ServiceDiscoveryBuilder;
 import org.apache.curator.x.discovery.ServiceInstance;
-import org.apache.curator.x.discovery.details.JsonInstanceSerializer;
 
-import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -31,10 +41,15 @@ public class ZooKeeperRegistry implements Registry {
     private CuratorFramework client;
     private ServiceDiscovery<ServiceMetaInfo> serviceDiscovery;
 
+    /**
+     * 服务节点序列化器（注册和解析监听到的节点数据）
+     */
+    private ServiceMetaInfoInstanceSerializer instanceSerializer;
+
     /**
      * 本机注册的节点key集合（用于维护续期，服务端）
      */
-    private final Set<String> localRegisterNodeKeySet = new HashSet<>();
+    private final Set<String> localRegisterNodeKeySet = new ConcurrentHashSet<>();
 
     /**
      * 注册中心服务缓存（消费端）
@@ -42,21 +57,37 @@ public class ZooKeeperRegistry implements Registry {
     private final RegistryServiceCache serviceCache = new RegistryServiceCache();
 
     /**
-     * 正在监听的key集合（消费端）
+     * 正在监听的服务（消费端）：服务键名 => 监听缓存初始化完成的信号
+     */
+    private final Map<String, CountDownLatch> watchingServiceMap = new ConcurrentHashMap<>();
+
+    /**
+     * 所有服务的监听缓存（消费端）
      */
-    private final Set<String> watchingKeySet = new ConcurrentHashSet<>();
+    private final List<CuratorCache> curatorCacheList = new CopyOnWriteArrayList<>();
+
+    /**
+     * 首次服务发现等待监听缓存初始化的超时时间（毫秒）
+     */
+    private long timeout;
 
     /**
      * 根节点
      */
     private static final String ZK_ROOT_PATH = "/rpc/zk";
 
+    /**
+     * 批量注册时的最大并行数
+     */
+    private static final int MAX_REGISTER_THREADS = 16;
+
     /**
      * 初始化
      * @param registryConfig
      */
     @Override
     public void init(RegistryConfig registryConfig) {
+        timeout = registryConfig.getTimeout();
         // 构建 client 实例
         client = CuratorFrameworkFactory
                 .builder()
@@ -65,13 +96,20 @@ public class ZooKeeperRegistry implements Registry {
                 .build();
 
         // 构建 serviceDiscovery 实例
+        instanceSerializer = new ServiceMetaInfoInstanceSerializer(registryConfig.getEncoding());
         serviceDiscovery = ServiceDiscoveryBuilder
                 .builder(ServiceMetaInfo.class)
                 .client(client)
                 .basePath(ZK_ROOT_PATH)
-                .serializer(new JsonInstanceSerializer<>(ServiceMetaInfo.class))
+                .serializer(instanceSerializer)
                 .build();
 
+        // 从快照文件加载服务节点，注册中心不可用时仍可调用已知的服务节点
+        if (StrUtil.isNotBlank(registryConfig.getSnapshotFile())) {
+            serviceCache.loadSnapshotFile(new RegistrySnapshotFile(registryConfig.getSnapshotFile(),
+                    registryConfig.getSnapshotWriteInterval()));
+        }
+
         try {
             // 启动 client 和 serviceDiscovery
             client.start();
@@ -95,6 +133,36 @@ public class ZooKeeperRegistry implements Registry {
         localRegisterNodeKeySet.add(registerKey);
     }
 
+    /**
+     * 批量服务注册（服务端）
+     * 每个节点的注册都需要与 zk 交互多次，并行注册所有节点
+     * @param serviceMetaInfoList
+     */
+    @Override
+    public void registerBatch(List<ServiceMetaInfo> serviceMetaInfoList) throws Exception {
+        if (serviceMetaInfoList.isEmpty()) {
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(serviceMetaInfoList.size(), MAX_REGISTER_THREADS),
+                new NamedThreadFactory("rpc-zk-register-", true));
+        try {
+            CompletableFuture<?>[] futures = serviceMetaInfoList.stream()
+                    .map(serviceMetaInfo -> CompletableFuture.runAsync(() -> {
+                        try {
+                            register(serviceMetaInfo);
+                        } catch (Exception e) {
+                            throw new CompletionException(e);
+                        }
+                    }, executor))
+                    .toArray(CompletableFuture[]::new);
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     /**
      * 服务注销（服务端）
      * @param serviceMetaInfo
@@ -119,26 +187,27 @@ public class ZooKeeperRegistry implements Registry {
      */
     @Override
     public List<ServiceMetaInfo> serviceDiscovery(String serviceKey) {
-        // 优先从缓存中获取
-        List<ServiceMetaInfo> cachedServiceMetaInfoList = serviceCache.readCache(serviceKey);
-        if (cachedServiceMetaInfoList != null) {
-            return cachedServiceMetaInfoList;
+        // 优先从缓存中获取，缓存由监听事件增量更新
+        ServiceSnapshot cachedSnapshot = serviceCache.readCache(serviceKey);
+        if (cachedSnapshot != null) {
+            // 来自快照文件的节点先继续使用，开始监听，监听缓存初始化完成后替换为最新的节点
+            if (cachedSnapshot.isStale()) {
+                watch(serviceKey);
+            }
+            return cachedSnapshot;
         }
 
+        // 首次发现该服务，开始监听并等待监听缓存初始化完成（初始化时全量加载服务节点）
+        watch(serviceKey);
         try {
-            // 从zk中查询
-            Collection<ServiceInstance<ServiceMetaInfo>> serviceInstanceList = serviceDiscovery.queryForInstances(serviceKey);
-            List<ServiceMetaInfo> serviceMetaInfoList = serviceInstanceList
-                                .stream()
-                                .map(ServiceInstance::getPayload)
-                                .collect(Collectors.toList());
-
-            // 保存到消费端服务缓存中
-            serviceCache.writeCache(serviceKey, serviceMetaInfoList);
-            return serviceMetaInfoList;
-        } catch (Exception e) {
+            if (!watchingServiceMap.get(serviceKey).await(timeout, TimeUnit.MILLISECONDS)) {
+                throw new RuntimeException("获取服务列表超时");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new RuntimeException("获取服务列表失败", e);
         }
+        return serviceCache.readCache(serviceKey);
     }
 
     /**
@@ -151,25 +220,69 @@ public class ZooKeeperRegistry implements Registry {
 
     /**
      * 监听（消费端）
-     * @param serviceNodeKey
+     * 每个服务路径一个 CuratorCache，初始化完成时全量写入服务缓存，之后按子节点事件增量更新；
+     * 监听回调在同一个线程中依次执行，初始化前后的事件不会遗漏或乱序
      * @param serviceKey
      */
     @Override
-    public void watch(String serviceNodeKey, String serviceKey) {
-        String watchKey = ZK_ROOT_PATH + "/" + serviceNodeKey;
-        boolean newWatch = watchingKeySet.add(watchKey);
-        if (!newWatch) {
+    public void watch(String serviceKey) {
+        if (watchingServiceMap.containsKey(serviceKey)) {
             return;
         }
-        CuratorCache curatorCache = CuratorCache.build(client, watchKey);
-        curatorCache.start();
-        curatorCache.listenable().addListener(
-                CuratorCacheListener
-                        .builder()
-                .forDeletes(childData -> serviceCache.deleteCache(serviceKey))
-                .forChanges(((oldNode, newNode) -> serviceCache.deleteCache(serviceKey)))
-                .build()
-        );
+        synchronized (watchingServiceMap) {
+            if (watchingServiceMap.containsKey(serviceKey)) {
+                return;
+            }
+            String watchKey = ZK_ROOT_PATH + "/" + serviceKey;
+            CountDownLatch initializedLatch = new CountDownLatch(1);
+            CuratorCache curatorCache = CuratorCache.build(client, watchKey);
+            curatorCache.listenable().addListener(
+                    CuratorCacheListener
+                            .builder()
+                    .forCreatesAndChanges((oldNode, newNode) -> {
+                        ServiceMetaInfo serviceMetaInfo = parseServiceMetaInfo(newNode);
+                        if (serviceMetaInfo != null) {
+                            serviceCache.putNode(serviceKey, serviceMetaInfo);
+                        }
+                    })
+                    .forDeletes(childData -> {
+                        ServiceMetaInfo serviceMetaInfo = parseServiceMetaInfo(childData);
+                        if (serviceMetaInfo != null) {
+                            serviceCache.removeNode(serviceKey, serviceMetaInfo.getServiceNodeKey());
+                        }
+                    })
+                    .forInitialized(() -> {
+                        List<ServiceMetaInfo> serviceMetaInfoList = curatorCache.stream()
+                                .map(this::parseServiceMetaInfo)
+                                .filter(Objects::nonNull)
+                                .collect(Collectors.toList());
+                        serviceCache.writeCache(serviceKey, serviceMetaInfoList);
+                        initializedLatch.countDown();
+                    })
+                    .build()
+            );
+            curatorCache.start();
+            curatorCacheList.add(curatorCache);
+            watchingServiceMap.put(serviceKey, initializedLatch);
+        }
+    }
+
+    /**
+     * 解析监听到的服务节点数据
+     * @param childData
+     * @return 服务节点，不是服务节点（例如服务路径本身）时返回 null
+     */
+    private ServiceMetaInfo parseServiceMetaInfo(ChildData childData) {
+        byte[] data = childData.getData();
+        if (data == null || data.length == 0) {
+            return null;
+        }
+        try {
+            return instanceSerializer.deserialize(data).getPayload();
+        } catch (Exception e) {
+            log.error("解析服务节点失败 {}", childData.getPath(), e);
+            return null;
+        }
     }
 
     @Override
@@ -184,6 +297,8 @@ public class ZooKeeperRegistry implements Registry {
             }
         }
         // 释放资源
+        curatorCacheList.forEach(CuratorCache::close);
+        curatorCacheList.clear();
         if (client != null) {
             client.close();
         }
@@ -0,0 +1,39 @@
+package com.han.rpc.registry.server;
+
+import com.han.rpc.model.ServiceMetaInfo;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 内置注册中心推送的节点变化事件
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RegistryEvent {
+
+    public static final String PUT = "put";
+
+    public static final String DELETE = "delete";
+
+    /**
+     * 事件类型：put（新增或更新）、delete（删除）
+     */
+    private String type;
+
+    /**
+     * 服务键名
+     */
+    private String serviceKey;
+
+    /**
+     * 服务注册节点键名
+     */
+    private String serviceNodeKey;
+
+    /**
+     * 节点信息，删除事件为空
+     */
+    private ServiceMetaInfo serviceMetaInfo;
+}
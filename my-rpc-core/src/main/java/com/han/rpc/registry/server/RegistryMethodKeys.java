@@ -0,0 +1,33 @@
+package com.han.rpc.registry.server;
+
+/**
+ * 内置注册中心的请求方法键名常量
+ * 注册中心请求使用框架自身的协议（RpcRequest），服务名称固定为 SERVICE_NAME，方法名称为下列操作
+ */
+public interface RegistryMethodKeys {
+
+    /**
+     * 注册中心请求的服务名称
+     */
+    String SERVICE_NAME = "registry";
+
+    /**
+     * 注册节点，参数：节点信息（JSON）
+     */
+    String REGISTER = "register";
+
+    /**
+     * 注销节点，参数：服务键名、服务注册节点键名
+     */
+    String UN_REGISTER = "unRegister";
+
+    /**
+     * 查询服务的所有节点，参数：服务键名
+     */
+    String SNAPSHOT = "snapshot";
+
+    /**
+     * 查询服务的所有节点并监听变化，参数：服务键名；首个响应为所有节点，之后节点变化时以相同的请求ID推送事件
+     */
+    String WATCH = "watch";
+}
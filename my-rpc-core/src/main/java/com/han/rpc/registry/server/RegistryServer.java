@@ -0,0 +1,335 @@
+package com.han.rpc.registry.server;
+
+import cn.hutool.json.JSONUtil;
+import com.han.rpc.model.RpcRequest;
+import com.han.rpc.model.RpcResponse;
+import com.han.rpc.model.ServiceMetaInfo;
+import com.han.rpc.protocol.ProtocolConstant;
+import com.han.rpc.protocol.ProtocolMessage;
+import com.han.rpc.protocol.ProtocolMessageDecoder;
+import com.han.rpc.protocol.ProtocolMessageEncoder;
+import com.han.rpc.protocol.ProtocolMessageSerializerEnum;
+import com.han.rpc.protocol.ProtocolMessageStatusEnum;
+import com.han.rpc.protocol.ProtocolMessageTypeEnum;
+import com.han.rpc.server.tcp.TcpBufferHandlerWrapper;
+import io.vertx.core.Vertx;
+import io.vertx.core.net.NetServer;
+import io.vertx.core.net.NetSocket;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 内置注册中心服务器
+ * 基于 Vert.x TCP 服务器和框架自身的协议实现的轻量注册中心，用于集成测试和不便部署 etcd 的场景，数据只保存在内存中。
+ * 每个连接是一个会话，会话注册的节点绑定在会话的租约上：连接上收到任何消息（包括心跳）都会续期，超过租约时长未续期时删除该会话注册的节点；
+ * 客户端监听服务后，服务节点变化时主动推送事件
+ */
+@Slf4j
+public class RegistryServer {
+
+    /**
+     * 默认租约时长（毫秒）
+     */
+    public static final long DEFAULT_LEASE_TTL = 30000L;
+
+    /**
+     * 租约过期检查间隔（毫秒）
+     */
+    private static final long EXPIRE_CHECK_INTERVAL = 1000L;
+
+    /**
+     * 租约时长（毫秒）
+     */
+    private final long leaseTtl;
+
+    private Vertx vertx;
+
+    private NetServer netServer;
+
+    /**
+     * 服务节点：服务键名 => (服务注册节点键名 => 节点信息)
+     */
+    private final Map<String, Map<String, ServiceMetaInfo>> serviceMap = new HashMap<>();
+
+    /**
+     * 节点所属的会话：服务注册节点键名 => 会话
+     */
+    private final Map<String, Session> nodeSessionMap = new HashMap<>();
+
+    /**
+     * 所有会话：连接 => 会话
+     */
+    private final Map<NetSocket, Session> sessionMap = new HashMap<>();
+
+    public RegistryServer() {
+        this(DEFAULT_LEASE_TTL);
+    }
+
+    /**
+     * @param leaseTtl 租约时长（毫秒）
+     */
+    public RegistryServer(long leaseTtl) {
+        this.leaseTtl = leaseTtl;
+    }
+
+    /**
+     * 启动服务器
+     * @param port 监听端口
+     * @return 开始监听后完成
+     */
+    public CompletableFuture<Void> start(int port) {
+        CompletableFuture<Void> startFuture = new CompletableFuture<>();
+        vertx = Vertx.vertx();
+        netServer = vertx.createNetServer();
+        netServer.connectHandler(this::handleConnection);
+        netServer.listen(port, result -> {
+            if (result.succeeded()) {
+                log.info("注册中心服务器启动成功，端口 {}", port);
+                startFuture.complete(null);
+            } else {
+                startFuture.completeExceptionally(result.cause());
+            }
+        });
+        vertx.setPeriodic(EXPIRE_CHECK_INTERVAL, id -> expireSessions());
+        return startFuture;
+    }
+
+    /**
+     * 停止服务器
+     */
+    public void stop() {
+        if (vertx != null) {
+            vertx.close();
+        }
+    }
+
+    /**
+     * 获取服务的所有节点
+     * @param serviceKey
+     * @return
+     */
+    public synchronized List<ServiceMetaInfo> getServiceNodes(String serviceKey) {
+        Map<String, ServiceMetaInfo> nodeMap = serviceMap.get(serviceKey);
+        return nodeMap == null ? new ArrayList<>() : new ArrayList<>(nodeMap.values());
+    }
+
+    private void handleConnection(NetSocket socket) {
+        Session session = new Session(socket);
+        synchronized (this) {
+            sessionMap.put(socket, session);
+        }
+        socket.handler(new TcpBufferHandlerWrapper(buffer -> {
+            ProtocolMessage<?> protocolMessage;
+            try {
+                protocolMessage = ProtocolMessageDecoder.decode(buffer);
+            } catch (Exception e) {
+                log.error("协议消息解码错误", e);
+                return;
+            }
+            ProtocolMessage.Header header = protocolMessage.getHeader();
+            synchronized (this) {
+                // 收到任何消息都为会话续期
+                session.lastActiveTime = System.currentTimeMillis();
+            }
+            if (header.getType() == ProtocolMessageTypeEnum.HEART_BEAT.getKey()) {
+                write(socket, header, null);
+                return;
+            }
+            if (header.getType() != ProtocolMessageTypeEnum.REQUEST.getKey()) {
+                return;
+            }
+            RpcResponse rpcResponse = new RpcResponse();
+            try {
+                handleRequest(session, header, (RpcRequest) protocolMessage.getBody());
+            } catch (Exception e) {
+                log.error("处理注册中心请求失败", e);
+                rpcResponse.setMessage(e.getMessage());
+                header.setStatus((byte) ProtocolMessageStatusEnum.BAD_RESPONSE.getValue());
+                write(socket, header, rpcResponse);
+            }
+        }));
+        // 连接关闭后不再推送事件，节点在租约过期后删除（客户端重连后会重新注册）
+        socket.closeHandler(v -> {
+            synchronized (this) {
+                session.closed = true;
+                session.watchMap.clear();
+            }
+        });
+    }
+
+    /**
+     * 处理请求（响应和推送都在锁内写出，保证同一个监听先收到节点列表，再按顺序收到事件）
+     * @param session
+     * @param header
+     * @param rpcRequest
+     */
+    private synchronized void handleRequest(Session session, ProtocolMessage.Header header, RpcRequest rpcRequest) {
+        Object[] args = rpcRequest.getArgs();
+        String result = "";
+        switch (rpcRequest.getMethodName()) {
+            case RegistryMethodKeys.REGISTER:
+                ServiceMetaInfo serviceMetaInfo = JSONUtil.toBean((String) args[0], ServiceMetaInfo.class);
+                putNode(session, serviceMetaInfo);
+                break;
+            case RegistryMethodKeys.UN_REGISTER:
+                removeNode((String) args[0], (String) args[1]);
+                break;
+            case RegistryMethodKeys.SNAPSHOT:
+                result = JSONUtil.toJsonStr(getServiceNodes((String) args[0]));
+                break;
+            case RegistryMethodKeys.WATCH:
+                session.watchMap.put((String) args[0], header.getRequestId());
+                result = JSONUtil.toJsonStr(getServiceNodes((String) args[0]));
+                break;
+            default:
+                throw new RuntimeException("不支持的注册中心操作：" + rpcRequest.getMethodName());
+        }
+        write(session.socket, header, buildResponse(result));
+    }
+
+    /**
+     * 新增或更新节点，节点归属于当前会话
+     * @param session
+     * @param serviceMetaInfo
+     */
+    private void putNode(Session session, ServiceMetaInfo serviceMetaInfo) {
+        String serviceKey = serviceMetaInfo.getServiceKey();
+        String serviceNodeKey = serviceMetaInfo.getServiceNodeKey();
+        serviceMap.computeIfAbsent(serviceKey, key -> new LinkedHashMap<>()).put(serviceNodeKey, serviceMetaInfo);
+        Session previousSession = nodeSessionMap.put(serviceNodeKey, session);
+        if (previousSession != null && previousSession != session) {
+            previousSession.nodeKeySet.remove(serviceNodeKey);
+        }
+        session.nodeKeySet.add(serviceNodeKey);
+        publish(new RegistryEvent(RegistryEvent.PUT, serviceKey, serviceNodeKey, serviceMetaInfo));
+    }
+
+    /**
+     * 删除节点
+     * @param serviceKey
+     * @param serviceNodeKey
+     */
+    private void removeNode(String serviceKey, String serviceNodeKey) {
+        Map<String, ServiceMetaInfo> nodeMap = serviceMap.get(serviceKey);
+        if (nodeMap == null || nodeMap.remove(serviceNodeKey) == null) {
+            return;
+        }
+        if (nodeMap.isEmpty()) {
+            serviceMap.remove(serviceKey);
+        }
+        Session session = nodeSessionMap.remove(serviceNodeKey);
+        if (session != null) {
+            session.nodeKeySet.remove(serviceNodeKey);
+        }
+        publish(new RegistryEvent(RegistryEvent.DELETE, serviceKey, serviceNodeKey, null));
+    }
+
+    /**
+     * 向监听该服务的会话推送事件
+     * @param event
+     */
+    private void publish(RegistryEvent event) {
+        RpcResponse rpcResponse = buildResponse(JSONUtil.toJsonStr(event));
+        for (Session session : sessionMap.values()) {
+            Long watchRequestId = session.watchMap.get(event.getServiceKey());
+            if (watchRequestId != null) {
+                write(session.socket, buildHeader(watchRequestId), rpcResponse);
+            }
+        }
+    }
+
+    /**
+     * 删除租约过期的会话及其注册的节点
+     */
+    private synchronized void expireSessions() {
+        long now = System.currentTimeMillis();
+        List<Session> expiredSessions = new ArrayList<>();
+        for (Session session : sessionMap.values()) {
+            if (now - session.lastActiveTime >= leaseTtl) {
+                expiredSessions.add(session);
+            }
+        }
+        for (Session session : expiredSessions) {
+            log.info("会话租约过期，删除 {} 个节点", session.nodeKeySet.size());
+            sessionMap.remove(session.socket);
+            for (String serviceNodeKey : new ArrayList<>(session.nodeKeySet)) {
+                // 服务注册节点键名的格式为 服务键名/服务地址
+                removeNode(serviceNodeKey.substring(0, serviceNodeKey.indexOf('/')), serviceNodeKey);
+            }
+            if (!session.closed) {
+                session.socket.close();
+            }
+        }
+    }
+
+    private RpcResponse buildResponse(String data) {
+        RpcResponse rpcResponse = new RpcResponse();
+        rpcResponse.setData(data);
+        rpcResponse.setDataType(String.class);
+        rpcResponse.setMessage("ok");
+        return rpcResponse;
+    }
+
+    private ProtocolMessage.Header buildHeader(long requestId) {
+        ProtocolMessage.Header header = new ProtocolMessage.Header();
+        header.setMagic(ProtocolConstant.PROTOCOL_MAGIC);
+        header.setVersion(ProtocolConstant.PROTOCOL_VERSION);
+        header.setSerializer((byte) ProtocolMessageSerializerEnum.JSON.getKey());
+        header.setType((byte) ProtocolMessageTypeEnum.RESPONSE.getKey());
+        header.setStatus((byte) ProtocolMessageStatusEnum.OK.getValue());
+        header.setRequestId(requestId);
+        return header;
+    }
+
+    private void write(NetSocket socket, ProtocolMessage.Header header, RpcResponse rpcResponse) {
+        if (rpcResponse != null) {
+            header.setType((byte) ProtocolMessageTypeEnum.RESPONSE.getKey());
+        }
+        try {
+            socket.write(ProtocolMessageEncoder.encode(new ProtocolMessage<>(header, rpcResponse)));
+        } catch (Exception e) {
+            log.error("发送消息失败", e);
+        }
+    }
+
+    /**
+     * 会话（每个连接一个）
+     */
+    private static class Session {
+        private final NetSocket socket;
+
+        /**
+         * 最后一次收到消息的时间（租约从该时间开始计算）
+         */
+        private long lastActiveTime = System.currentTimeMillis();
+
+        /**
+         * 会话注册的节点
+         */
+        private final Set<String> nodeKeySet = new HashSet<>();
+
+        /**
+         * 会话监听的服务：服务键名 => 监听请求的ID
+         */
+        private final Map<String, Long> watchMap = new HashMap<>();
+
+        private boolean closed;
+
+        private Session(NetSocket socket) {
+            this.socket = socket;
+        }
+    }
+
+    public static void main(String[] args) {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 2380;
+        new RegistryServer().start(port).join();
+    }
+}
@@ -0,0 +1,82 @@
+package com.han.rpc.server;
+
+import cn.hutool.core.thread.NamedThreadFactory;
+import com.han.rpc.RpcApplication;
+import com.han.rpc.config.ServerConfig;
+import com.han.rpc.model.RpcPriorityEnum;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求分发器（服务提供端）
+ * 服务方法在独立的工作线程池中执行，事件循环线程只负责网络读写；请求先进入队列，被取消的请求出队后不再执行。
+ * 每个优先级使用独立的线程池和队列，低优先级的批量请求排队时不影响高优先级请求
+ */
+public class RequestDispatcher {
+
+    private static volatile Map<RpcPriorityEnum, ThreadPoolExecutor> executorMap;
+
+    /**
+     * 分发请求
+     * @param task 请求处理任务
+     * @param priority 请求优先级
+     * @return 可用于取消请求（排队中的请求不再执行，执行中的请求中断线程）
+     * @throws java.util.concurrent.RejectedExecutionException 队列已满
+     */
+    public static Future<?> dispatch(Runnable task, RpcPriorityEnum priority) {
+        return getExecutorMap().get(priority).submit(task);
+    }
+
+    /**
+     * 取消请求：排队中的请求直接从队列中移除，执行中的请求中断执行线程
+     * @param future 分发请求时返回的 Future
+     */
+    public static void cancel(Future<?> future) {
+        future.cancel(true);
+        if (future instanceof Runnable) {
+            for (ThreadPoolExecutor executor : getExecutorMap().values()) {
+                if (executor.remove((Runnable) future)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * 获取当前排队中的请求数
+     * @param priority 请求优先级
+     * @return
+     */
+    public static int getQueueSize(RpcPriorityEnum priority) {
+        return getExecutorMap().get(priority).getQueue().size();
+    }
+
+    private static Map<RpcPriorityEnum, ThreadPoolExecutor> getExecutorMap() {
+        if (executorMap == null) {
+            synchronized (RequestDispatcher.class) {
+                if (executorMap == null) {
+                    ServerConfig serverConfig = RpcApplication.getRpcConfig().getServerConfig();
+                    if (serverConfig == null) {
+                        serverConfig = new ServerConfig();
+                    }
+                    Map<RpcPriorityEnum, ThreadPoolExecutor> map = new EnumMap<>(RpcPriorityEnum.class);
+                    map.put(RpcPriorityEnum.HIGH, createExecutor("high", serverConfig.getHighPriorityWorkerThreads(), serverConfig.getQueueCapacity()));
+                    map.put(RpcPriorityEnum.NORMAL, createExecutor("normal", serverConfig.getWorkerThreads(), serverConfig.getQueueCapacity()));
+                    map.put(RpcPriorityEnum.LOW, createExecutor("low", serverConfig.getLowPriorityWorkerThreads(), serverConfig.getQueueCapacity()));
+                    executorMap = map;
+                }
+            }
+        }
+        return executorMap;
+    }
+
+    private static ThreadPoolExecutor createExecutor(String name, int threads, int queueCapacity) {
+        return new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(queueCapacity),
+                new NamedThreadFactory("rpc-server-" + name + "-worker-", true));
+    }
+}
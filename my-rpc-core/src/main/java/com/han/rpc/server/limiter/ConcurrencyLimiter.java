@@ -0,0 +1,275 @@
+package com.han.rpc.server.limiter;
+
+import com.han.rpc.RpcApplication;
+import com.han.rpc.config.ConcurrencyLimitConfig;
+import com.han.rpc.config.ServerConfig;
+import com.han.rpc.model.RpcPriorityEnum;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 并发限制器（服务提供端，按服务、方法区分）
+ * 限制正在处理（包括排队中）的请求数，超过限制的请求直接拒绝，过载时让部分请求快速失败，而不是所有请求一起变慢。
+ * 自适应模式参考梯度算法（Gradient）：比较近期耗时和长期平均耗时，近期耗时明显升高说明请求开始排队，按比例降低限制；
+ * 耗时稳定时每次增加 sqrt(limit) 的余量，逐步探测更高的限制。
+ * 不同优先级的请求共用一个限制，但低优先级、普通优先级请求只能占用限制的一部分，为更高优先级的请求预留名额，
+ * 避免批量任务占满限制后交互请求被拒绝（优先级反转）
+ */
+public class ConcurrencyLimiter {
+
+    /**
+     * 每个服务、方法的并发限制器：服务名称 或 服务名称#方法名称 => 并发限制器
+     */
+    private static final Map<String, ConcurrencyLimiter> CONCURRENCY_LIMITER_MAP = new ConcurrentHashMap<>();
+
+    /**
+     * 近期耗时的统计窗口（请求数）
+     */
+    private static final int SHORT_WINDOW = 10;
+
+    /**
+     * 长期平均耗时的统计窗口（请求数）
+     */
+    private static final int LONG_WINDOW = 600;
+
+    private final ConcurrencyLimitConfig config;
+
+    /**
+     * 正在处理的请求数
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * 当前限制
+     */
+    private volatile int limit;
+
+    /**
+     * 估算的限制（自适应模式下平滑调整）
+     */
+    private double estimatedLimit;
+
+    /**
+     * 长期平均耗时（指数加权移动平均）
+     */
+    private double longRtt;
+
+    /**
+     * 近期耗时之和
+     */
+    private long shortRttSum;
+
+    /**
+     * 近期耗时样本数
+     */
+    private int shortRttCount;
+
+    public ConcurrencyLimiter(int initialLimit, ConcurrencyLimitConfig config) {
+        this.config = config;
+        this.limit = initialLimit;
+        this.estimatedLimit = initialLimit;
+    }
+
+    /**
+     * 获取并发限制器（使用全局配置创建）
+     * @param key 服务名称 或 服务名称#方法名称
+     * @param initialLimit 初始限制
+     * @return
+     */
+    public static ConcurrencyLimiter getInstance(String key, int initialLimit) {
+        return CONCURRENCY_LIMITER_MAP.computeIfAbsent(key, k -> new ConcurrencyLimiter(initialLimit, getConfig()));
+    }
+
+    /**
+     * 获取所有并发限制器（用于监控）
+     * @return
+     */
+    public static Map<String, ConcurrencyLimiter> getAll() {
+        return CONCURRENCY_LIMITER_MAP;
+    }
+
+    /**
+     * 为请求申请服务和方法的并发许可
+     * @param serviceName
+     * @param methodName
+     * @param priority 请求优先级，决定可以占用限制的比例
+     * @return 许可，超过限制时返回 null
+     */
+    public static Permit acquire(String serviceName, String methodName, RpcPriorityEnum priority) {
+        ConcurrencyLimitConfig config = getConfig();
+        if (!config.isEnabled()) {
+            return new Permit();
+        }
+        ConcurrencyLimiter serviceLimiter = getInstance(serviceName, config.getServiceLimit());
+        if (!serviceLimiter.tryAcquire(priority)) {
+            return null;
+        }
+        ConcurrencyLimiter methodLimiter = getInstance(serviceName + "#" + methodName, config.getMethodLimit());
+        if (!methodLimiter.tryAcquire(priority)) {
+            serviceLimiter.onDropped();
+            return null;
+        }
+        return new Permit(serviceLimiter, methodLimiter);
+    }
+
+    /**
+     * 尝试占用一个并发名额（可以使用全部名额）
+     * @return
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(RpcPriorityEnum.HIGH);
+    }
+
+    /**
+     * 按优先级尝试占用一个并发名额
+     * @param priority 请求优先级，低优先级、普通优先级只能使用限制的一部分
+     * @return
+     */
+    public boolean tryAcquire(RpcPriorityEnum priority) {
+        int priorityLimit = getPriorityLimit(priority);
+        while (true) {
+            int current = inFlight.get();
+            if (current >= priorityLimit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 请求处理完成，释放名额并记录耗时
+     * @param rttMillis 请求耗时（从收到请求到处理完成，包括排队时间）
+     */
+    public void onComplete(long rttMillis) {
+        int currentInFlight = inFlight.getAndDecrement();
+        if (config.isAdaptive()) {
+            updateLimit(rttMillis, currentInFlight);
+        }
+    }
+
+    /**
+     * 请求未处理（被取消或被拒绝），只释放名额，不记录耗时
+     */
+    public void onDropped() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * 获取该优先级可以占用的名额，至少为1
+     * @param priority
+     * @return
+     */
+    private int getPriorityLimit(RpcPriorityEnum priority) {
+        int currentLimit = limit;
+        Double ratio;
+        switch (priority) {
+            case LOW:
+                ratio = config.getLowPriorityLimitRatio();
+                break;
+            case NORMAL:
+                ratio = config.getNormalPriorityLimitRatio();
+                break;
+            case HIGH:
+            default:
+                return currentLimit;
+        }
+        if (ratio == null || ratio >= 1) {
+            return currentLimit;
+        }
+        return Math.max((int) (currentLimit * ratio), 1);
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * 根据耗时调整限制
+     * @param rttMillis
+     * @param currentInFlight 请求完成时正在处理的请求数
+     */
+    private synchronized void updateLimit(long rttMillis, int currentInFlight) {
+        shortRttSum += Math.max(rttMillis, 1);
+        shortRttCount++;
+        if (shortRttCount < SHORT_WINDOW) {
+            return;
+        }
+        double shortRtt = (double) shortRttSum / shortRttCount;
+        shortRttSum = 0;
+        shortRttCount = 0;
+
+        if (longRtt == 0) {
+            longRtt = shortRtt;
+        } else {
+            longRtt += (shortRtt - longRtt) * SHORT_WINDOW / LONG_WINDOW;
+        }
+        // 负载下降后长期平均耗时明显偏高，加快回落，避免一直以偏高的耗时作为基准
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        // 近期耗时相对长期耗时的梯度，最多降低一半
+        double gradient = Math.max(0.5, Math.min(1.0, config.getRttTolerance() * longRtt / shortRtt));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        // 并发数远低于限制时不提高限制，避免低负载时限制无限增长
+        if (newLimit > estimatedLimit && currentInFlight < estimatedLimit / 2) {
+            return;
+        }
+        newLimit = estimatedLimit * (1 - config.getSmoothing()) + newLimit * config.getSmoothing();
+        estimatedLimit = Math.max(config.getMinLimit(), Math.min(config.getMaxLimit(), newLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    private static ConcurrencyLimitConfig getConfig() {
+        ServerConfig serverConfig = RpcApplication.getRpcConfig().getServerConfig();
+        if (serverConfig == null || serverConfig.getConcurrencyLimitConfig() == null) {
+            return new ConcurrencyLimitConfig();
+        }
+        return serverConfig.getConcurrencyLimitConfig();
+    }
+
+    /**
+     * 并发许可（同时占用服务和方法的名额），只能释放一次
+     */
+    public static class Permit {
+        private final ConcurrencyLimiter[] limiters;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(ConcurrencyLimiter... limiters) {
+            this.limiters = limiters;
+        }
+
+        /**
+         * 请求处理完成，释放许可
+         * @param rttMillis 请求耗时
+         */
+        public void release(long rttMillis) {
+            if (released.compareAndSet(false, true)) {
+                for (ConcurrencyLimiter limiter : limiters) {
+                    limiter.onComplete(rttMillis);
+                }
+            }
+        }
+
+        /**
+         * 请求未处理，释放许可
+         */
+        public void releaseDropped() {
+            if (released.compareAndSet(false, true)) {
+                for (ConcurrencyLimiter limiter : limiters) {
+                    limiter.onDropped();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.han.rpc.server.limiter;
+
+/**
+ * 服务端过载异常（服务提供者超过并发限制，请求未被处理，可以立即发往其他节点）
+ */
+public class ServerOverloadException extends RuntimeException {
+
+    public ServerOverloadException(String serviceAddress) {
+        super("服务节点过载，请求被拒绝：" + serviceAddress);
+    }
+}
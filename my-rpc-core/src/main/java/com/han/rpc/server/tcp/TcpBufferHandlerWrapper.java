@@ -14,10 +14,17 @@ public class TcpBufferHandlerWrapper implements Handler<Buffer> {
     private final RecordParser recordParser;
 
     public TcpBufferHandlerWrapper(Handler<Buffer> bufferHandler) {
-        this.recordParser = initRecordParser(bufferHandler);
+        this((buffer, arrivalTime) -> bufferHandler.handle(buffer));
     }
 
-    private RecordParser initRecordParser(Handler<Buffer> bufferHandler) {
+    /**
+     * @param frameHandler 完整消息的处理器，同时传入消息的到达时间
+     */
+    public TcpBufferHandlerWrapper(FrameHandler frameHandler) {
+        this.recordParser = initRecordParser(frameHandler);
+    }
+
+    private RecordParser initRecordParser(FrameHandler frameHandler) {
         // 构造parser
         RecordParser parser = RecordParser.newFixed(ProtocolConstant.MESSAGE_HEADER_LENGTH);
 
@@ -25,12 +32,21 @@ public class TcpBufferHandlerWrapper implements Handler<Buffer> {
             // 初始化
             int size = -1;
             Buffer resultBuffer = Buffer.buffer();
+            // 消息头到达的时间
+            long arrivalTime;
 
             @Override
             public void handle(Buffer buffer) {
                 if (size == -1) {
+                    arrivalTime = System.currentTimeMillis();
                     // 读取消息体长度，设置下一次读取的数据长度
                     size = buffer.getInt(13);
+                    if (size == 0) {
+                        // 取消、心跳等消息没有消息体，消息头就是完整消息
+                        frameHandler.handle(buffer, arrivalTime);
+                        size = -1;
+                        return;
+                    }
                     parser.fixedSizeMode(size);
                     // 写入消息头
                     resultBuffer.appendBuffer(buffer);
@@ -38,7 +54,7 @@ public class TcpBufferHandlerWrapper implements Handler<Buffer> {
                     // 写入消息体
                     resultBuffer.appendBuffer(buffer);
                     // 已拼接为完整buffer，使用handler进行处理(未增强的原始处理逻辑)
-                    bufferHandler.handle(resultBuffer);
+                    frameHandler.handle(resultBuffer, arrivalTime);
                     // 重置，下一轮读取
                     size = -1;
                     resultBuffer = Buffer.buffer();
@@ -54,4 +70,17 @@ public class TcpBufferHandlerWrapper implements Handler<Buffer> {
     public void handle(Buffer buffer) {
         recordParser.handle(buffer);
     }
+
+    /**
+     * 完整消息处理器
+     */
+    @FunctionalInterface
+    public interface FrameHandler {
+        /**
+         * 处理完整消息
+         * @param buffer 完整消息（消息头 + 消息体）
+         * @param arrivalTime 消息到达时间（毫秒时间戳，收到消息头的时间）
+         */
+        void handle(Buffer buffer, long arrivalTime);
+    }
 }
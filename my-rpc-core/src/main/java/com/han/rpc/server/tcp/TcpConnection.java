@@ -0,0 +1,202 @@
+package com.han.rpc.server.tcp;
+
+import cn.hutool.core.util.IdUtil;
+import com.han.rpc.RpcApplication;
+import com.han.rpc.config.ClientConfig;
+import com.han.rpc.model.RpcRequest;
+import com.han.rpc.model.RpcResponse;
+import com.han.rpc.protocol.ProtocolConstant;
+import com.han.rpc.protocol.ProtocolMessage;
+import com.han.rpc.protocol.ProtocolMessageDecoder;
+import com.han.rpc.protocol.ProtocolMessageEncoder;
+import com.han.rpc.protocol.ProtocolMessageSerializerEnum;
+import com.han.rpc.protocol.ProtocolMessageStatusEnum;
+import com.han.rpc.protocol.ProtocolMessageTypeEnum;
+import com.han.rpc.server.limiter.ServerOverloadException;
+import io.vertx.core.Vertx;
+import io.vertx.core.net.NetSocket;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * TCP长连接（服务消费端，每个服务节点一个）
+ * 多个请求复用同一个连接，按请求ID匹配响应；连接空闲时发送心跳，长时间收不到任何数据时认为连接已失效（半开连接）并关闭
+ */
+@Slf4j
+public class TcpConnection {
+
+    private final String serviceAddress;
+
+    private final NetSocket socket;
+
+    private final Vertx vertx;
+
+    private final ClientConfig clientConfig;
+
+    /**
+     * 等待响应的请求：请求ID => 响应
+     */
+    private final Map<Long, CompletableFuture<RpcResponse>> pendingResponseMap = new ConcurrentHashMap<>();
+
+    /**
+     * 最后一次收到数据的时间
+     */
+    private volatile long lastReadTime = System.currentTimeMillis();
+
+    /**
+     * 最后一次发起请求的时间
+     */
+    private volatile long lastRequestTime = System.currentTimeMillis();
+
+    private volatile boolean closed;
+
+    /**
+     * 是否因空闲而关闭（空闲关闭的连接不再重连）
+     */
+    private volatile boolean idleClosed;
+
+    private long heartbeatTimerId;
+
+    /**
+     * @param serviceAddress 服务节点地址
+     * @param socket 已建立的连接
+     * @param vertx
+     * @param clientConfig
+     * @param closeHandler 连接关闭时回调
+     */
+    public TcpConnection(String serviceAddress, NetSocket socket, Vertx vertx, ClientConfig clientConfig,
+                         Consumer<TcpConnection> closeHandler) {
+        this.serviceAddress = serviceAddress;
+        this.socket = socket;
+        this.vertx = vertx;
+        this.clientConfig = clientConfig;
+        socket.handler(new TcpBufferHandlerWrapper(buffer -> {
+            lastReadTime = System.currentTimeMillis();
+            ProtocolMessage<?> protocolMessage;
+            try {
+                protocolMessage = ProtocolMessageDecoder.decode(buffer);
+            } catch (Exception e) {
+                log.error("协议消息解码错误 {}", serviceAddress, e);
+                return;
+            }
+            // 心跳响应只用于刷新最后收到数据的时间
+            if (protocolMessage.getHeader().getType() != ProtocolMessageTypeEnum.RESPONSE.getKey()) {
+                return;
+            }
+            CompletableFuture<RpcResponse> responseFuture = pendingResponseMap.remove(protocolMessage.getHeader().getRequestId());
+            if (responseFuture == null) {
+                return;
+            }
+            // 服务端过载，请求未被处理
+            if (protocolMessage.getHeader().getStatus() == ProtocolMessageStatusEnum.OVERLOAD.getValue()) {
+                responseFuture.completeExceptionally(new ServerOverloadException(serviceAddress));
+                return;
+            }
+            responseFuture.complete((RpcResponse) protocolMessage.getBody());
+        }));
+        socket.closeHandler(v -> {
+            closed = true;
+            vertx.cancelTimer(heartbeatTimerId);
+            // 连接断开，等待中的请求立即失败，不必等到超时
+            RuntimeException exception = new RuntimeException("连接已断开: " + serviceAddress);
+            pendingResponseMap.values().forEach(responseFuture -> responseFuture.completeExceptionally(exception));
+            pendingResponseMap.clear();
+            closeHandler.accept(this);
+        });
+        long checkInterval = Math.max(clientConfig.getHeartbeatInterval() / 2, 1);
+        this.heartbeatTimerId = vertx.setPeriodic(checkInterval, id -> checkHeartbeat());
+    }
+
+    /**
+     * 发送请求
+     * @param rpcRequest
+     * @param responseFuture 收到响应时完成；超时或被调用方取消时通知服务提供者取消该请求
+     */
+    public void send(RpcRequest rpcRequest, CompletableFuture<RpcResponse> responseFuture) {
+        if (closed) {
+            responseFuture.completeExceptionally(new RuntimeException("连接已断开: " + serviceAddress));
+            return;
+        }
+        lastRequestTime = System.currentTimeMillis();
+        // 生成全局请求ID
+        ProtocolMessage.Header header = buildHeader(ProtocolMessageTypeEnum.REQUEST, IdUtil.getSnowflakeNextId());
+        long requestId = header.getRequestId();
+        pendingResponseMap.put(requestId, responseFuture);
+        responseFuture.whenComplete((rpcResponse, throwable) -> {
+            if (pendingResponseMap.remove(requestId) != null && throwable != null && !closed) {
+                write(buildHeader(ProtocolMessageTypeEnum.CANCEL, requestId), null);
+            }
+        });
+        try {
+            socket.write(ProtocolMessageEncoder.encode(new ProtocolMessage<>(header, rpcRequest)));
+        } catch (Exception e) {
+            responseFuture.completeExceptionally(new RuntimeException("协议消息编码错误", e));
+        }
+    }
+
+    /**
+     * 关闭连接
+     */
+    public void close() {
+        socket.close();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public boolean isIdleClosed() {
+        return idleClosed;
+    }
+
+    public String getServiceAddress() {
+        return serviceAddress;
+    }
+
+    /**
+     * 心跳检查：长时间未收到数据时关闭连接，空闲时发送心跳，长时间没有请求时关闭连接
+     */
+    private void checkHeartbeat() {
+        if (closed) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastReadTime >= clientConfig.getHeartbeatTimeout()) {
+            log.warn("连接 {} 超过 {}ms 未收到数据，关闭连接", serviceAddress, now - lastReadTime);
+            close();
+            return;
+        }
+        if (pendingResponseMap.isEmpty() && now - lastRequestTime >= clientConfig.getIdleTimeout()) {
+            log.info("连接 {} 空闲，关闭连接", serviceAddress);
+            idleClosed = true;
+            close();
+            return;
+        }
+        if (now - lastReadTime >= clientConfig.getHeartbeatInterval()) {
+            write(buildHeader(ProtocolMessageTypeEnum.HEART_BEAT, IdUtil.getSnowflakeNextId()), null);
+        }
+    }
+
+    private void write(ProtocolMessage.Header header, Object body) {
+        try {
+            socket.write(ProtocolMessageEncoder.encode(new ProtocolMessage<>(header, body)));
+        } catch (Exception e) {
+            log.error("发送消息失败 {}", serviceAddress, e);
+        }
+    }
+
+    private ProtocolMessage.Header buildHeader(ProtocolMessageTypeEnum typeEnum, long requestId) {
+        ProtocolMessage.Header header = new ProtocolMessage.Header();
+        header.setMagic(ProtocolConstant.PROTOCOL_MAGIC);
+        header.setVersion(ProtocolConstant.PROTOCOL_VERSION);
+        header.setSerializer((byte) ProtocolMessageSerializerEnum.getEnumByValue(RpcApplication.getRpcConfig().getSerializer()).getKey());
+        header.setType((byte) typeEnum.getKey());
+        header.setStatus((byte) ProtocolMessageStatusEnum.OK.getValue());
+        header.setRequestId(requestId);
+        return header;
+    }
+}
@@ -0,0 +1,187 @@
+package com.han.rpc.server.tcp;
+
+import com.han.rpc.RpcApplication;
+import com.han.rpc.config.ClientConfig;
+import com.han.rpc.model.ServiceMetaInfo;
+import io.vertx.core.Vertx;
+import io.vertx.core.net.NetClient;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * TCP长连接管理器（服务消费端）
+ * 每个服务节点维护一个长连接，连接断开后按指数退避自动重连，长时间没有请求的节点不再重连；
+ * 连接失败后的退避期间请求直接失败，不会每个请求都去连接故障节点
+ */
+@Slf4j
+public class TcpConnectionManager {
+
+    private final Vertx vertx;
+
+    private final NetClient netClient;
+
+    /**
+     * 每个服务节点的连接：服务节点地址 => 连接状态
+     */
+    private final Map<String, ConnectionHolder> connectionHolderMap = new ConcurrentHashMap<>();
+
+    public TcpConnectionManager(Vertx vertx, NetClient netClient) {
+        this.vertx = vertx;
+        this.netClient = netClient;
+    }
+
+    /**
+     * 获取服务节点的连接，没有可用连接时建立新连接
+     * @param serviceMetaInfo
+     * @return
+     */
+    public CompletableFuture<TcpConnection> getConnection(ServiceMetaInfo serviceMetaInfo) {
+        ConnectionHolder holder = connectionHolderMap.computeIfAbsent(serviceMetaInfo.getServiceAddress(),
+                key -> new ConnectionHolder(serviceMetaInfo));
+        synchronized (holder) {
+            holder.lastUsedTime = System.currentTimeMillis();
+            CompletableFuture<TcpConnection> connectionFuture = holder.connectionFuture;
+            if (connectionFuture != null && !connectionFuture.isCompletedExceptionally()
+                    && !(connectionFuture.isDone() && connectionFuture.join().isClosed())) {
+                return connectionFuture;
+            }
+            // 处于重连退避期间，直接失败
+            long waitTime = holder.nextConnectTime - System.currentTimeMillis();
+            if (waitTime > 0) {
+                return CompletableFuture.failedFuture(new RuntimeException(
+                        String.format("连接服务节点 %s 失败，%dms 后重连", holder.serviceAddress, waitTime)));
+            }
+            return connect(holder);
+        }
+    }
+
+    /**
+     * 建立连接（调用方需持有 holder 的锁）
+     * @param holder
+     * @return
+     */
+    private CompletableFuture<TcpConnection> connect(ConnectionHolder holder) {
+        CompletableFuture<TcpConnection> connectionFuture = new CompletableFuture<>();
+        holder.connectionFuture = connectionFuture;
+        ServiceMetaInfo serviceMetaInfo = holder.serviceMetaInfo;
+        netClient.connect(serviceMetaInfo.getServicePort(), serviceMetaInfo.getServiceHost(), result -> {
+            synchronized (holder) {
+                if (!result.succeeded()) {
+                    holder.failureCount++;
+                    long backoff = getBackoff(holder.failureCount);
+                    holder.nextConnectTime = System.currentTimeMillis() + backoff;
+                    log.warn("连接服务节点 {} 失败（第 {} 次），{}ms 后重连", holder.serviceAddress, holder.failureCount, backoff);
+                    connectionFuture.completeExceptionally(result.cause());
+                    scheduleReconnect(holder, backoff);
+                    return;
+                }
+                holder.failureCount = 0;
+                holder.nextConnectTime = 0;
+                TcpConnection connection = new TcpConnection(holder.serviceAddress, result.result(), vertx,
+                        getClientConfig(), this::onConnectionClosed);
+                connectionFuture.complete(connection);
+            }
+        });
+        return connectionFuture;
+    }
+
+    /**
+     * 连接关闭后的处理：空闲关闭的连接直接移除，异常断开的连接自动重连
+     * @param connection
+     */
+    private void onConnectionClosed(TcpConnection connection) {
+        ConnectionHolder holder = connectionHolderMap.get(connection.getServiceAddress());
+        if (holder == null) {
+            return;
+        }
+        if (connection.isIdleClosed()) {
+            connectionHolderMap.remove(connection.getServiceAddress(), holder);
+            return;
+        }
+        log.warn("服务节点 {} 的连接已断开，准备重连", connection.getServiceAddress());
+        scheduleReconnect(holder, getClientConfig().getReconnectInitialBackoff());
+    }
+
+    /**
+     * 退避一段时间后在后台重连
+     * @param holder
+     * @param delay
+     */
+    private void scheduleReconnect(ConnectionHolder holder, long delay) {
+        vertx.setTimer(Math.max(delay, 1), id -> {
+            synchronized (holder) {
+                // 期间已有请求触发了重连，或服务节点已经被移除
+                if (connectionHolderMap.get(holder.serviceAddress) != holder) {
+                    return;
+                }
+                // 长时间没有请求（例如服务节点已下线），不再重连
+                if (System.currentTimeMillis() - holder.lastUsedTime >= getClientConfig().getIdleTimeout()) {
+                    connectionHolderMap.remove(holder.serviceAddress, holder);
+                    return;
+                }
+                CompletableFuture<TcpConnection> connectionFuture = holder.connectionFuture;
+                if (connectionFuture != null && !connectionFuture.isDone()) {
+                    return;
+                }
+                if (connectionFuture != null && !connectionFuture.isCompletedExceptionally()
+                        && !connectionFuture.join().isClosed()) {
+                    return;
+                }
+                connect(holder);
+            }
+        });
+    }
+
+    /**
+     * 计算重连退避时间（指数退避）
+     * @param failureCount 连续失败次数
+     * @return
+     */
+    private long getBackoff(int failureCount) {
+        ClientConfig clientConfig = getClientConfig();
+        long backoff = clientConfig.getReconnectInitialBackoff() << Math.min(failureCount - 1, 20);
+        return Math.min(backoff, clientConfig.getReconnectMaxBackoff());
+    }
+
+    private ClientConfig getClientConfig() {
+        ClientConfig clientConfig = RpcApplication.getRpcConfig().getClientConfig();
+        return clientConfig == null ? new ClientConfig() : clientConfig;
+    }
+
+    /**
+     * 服务节点的连接状态
+     */
+    private static class ConnectionHolder {
+        private final ServiceMetaInfo serviceMetaInfo;
+
+        private final String serviceAddress;
+
+        /**
+         * 当前连接（或正在建立的连接）
+         */
+        private CompletableFuture<TcpConnection> connectionFuture;
+
+        /**
+         * 连续连接失败次数
+         */
+        private int failureCount;
+
+        /**
+         * 下次允许连接的时间（毫秒时间戳）
+         */
+        private long nextConnectTime;
+
+        /**
+         * 最后一次获取连接的时间（毫秒时间戳）
+         */
+        private long lastUsedTime;
+
+        private ConnectionHolder(ServiceMetaInfo serviceMetaInfo) {
+            this.serviceMetaInfo = serviceMetaInfo;
+            this.serviceAddress = serviceMetaInfo.getServiceAddress();
+        }
+    }
+}
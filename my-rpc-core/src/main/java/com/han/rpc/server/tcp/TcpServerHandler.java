@@ -1,29 +1,48 @@
 package com.han.rpc.server.tcp;
 
+import com.han.rpc.RpcApplication;
+import com.han.rpc.RpcContext;
+import com.han.rpc.config.ServerConfig;
+import com.han.rpc.model.RpcPriorityEnum;
 import com.han.rpc.model.RpcRequest;
 import com.han.rpc.model.RpcResponse;
 import com.han.rpc.protocol.ProtocolConstant;
 import com.han.rpc.protocol.ProtocolMessage;
 import com.han.rpc.protocol.ProtocolMessageDecoder;
 import com.han.rpc.protocol.ProtocolMessageEncoder;
+import com.han.rpc.protocol.ProtocolMessageStatusEnum;
 import com.han.rpc.protocol.ProtocolMessageTypeEnum;
 import com.han.rpc.register.LocalRegistry;
+import com.han.rpc.server.RequestDispatcher;
+import com.han.rpc.server.limiter.ConcurrencyLimiter;
 import io.vertx.core.Handler;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.net.NetSocket;
+import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * TCP请求处理器（服务提供端）
+ * 事件循环线程只负责解码和分发，服务方法交给 RequestDispatcher 的工作线程执行，超过并发限制的请求直接返回过载状态；
+ * 收到消费者的取消消息或连接关闭时，取消该连接上尚未完成的请求；收到心跳时原样返回
  */
+@Slf4j
 public class TcpServerHandler implements Handler<NetSocket> {
 
     @Override
     public void handle(NetSocket socket) {
+        // 当前连接上尚未完成的请求：请求ID => 请求
+        Map<Long, InFlightRequest> inFlightRequestMap = new ConcurrentHashMap<>();
+
         // 使用装饰者模式解决半包粘包问题
-        TcpBufferHandlerWrapper bufferHandlerWrapper = new TcpBufferHandlerWrapper(buffer -> {
+        TcpBufferHandlerWrapper bufferHandlerWrapper = new TcpBufferHandlerWrapper((buffer, arrivalTime) -> {
             // 解决半包问题
             if (buffer == null || buffer.length() == 0) {
                 throw new RuntimeException("消息 buffer 为空");
@@ -38,37 +57,208 @@ public class TcpServerHandler implements Handler<NetSocket> {
             } catch (IOException e) {
                 throw new RuntimeException("协议消息解码错误");
             }
-            RpcRequest rpcRequest = protocolMessage.getBody();
+            ProtocolMessage.Header header = protocolMessage.getHeader();
+            long requestId = header.getRequestId();
 
-            // 2.处理请求
-            RpcResponse rpcResponse = new RpcResponse();
-            try {
-                // 反射调用服务方法
-                Class<?> implClass = LocalRegistry.get(rpcRequest.getServiceName());
-                Method method = implClass.getMethod(rpcRequest.getMethodName(), rpcRequest.getParameterTypes());
-                Object result = method.invoke(implClass.newInstance(), rpcRequest.getArgs());
-                // 封装返回结果
-                rpcResponse.setData(result);
-                rpcResponse.setDataType(method.getReturnType());
-                rpcResponse.setMessage("ok");
-            } catch (Exception e) {
-                e.printStackTrace();
-                rpcResponse.setMessage(e.getMessage());
-                rpcResponse.setException(e);
+            // 消费者取消请求（超时或主动取消），不再处理
+            if (header.getType() == ProtocolMessageTypeEnum.CANCEL.getKey()) {
+                InFlightRequest inFlightRequest = inFlightRequestMap.remove(requestId);
+                if (inFlightRequest != null) {
+                    log.info("请求 {} 已被消费者取消", requestId);
+                    inFlightRequest.cancel();
+                }
+                return;
             }
 
-            // 3.发送响应，编码
-            ProtocolMessage.Header header = protocolMessage.getHeader();
-            header.setType((byte) ProtocolMessageTypeEnum.RESPONSE.getKey());
-            ProtocolMessage<RpcResponse> responseProtocolMessage = new ProtocolMessage<>(header, rpcResponse);
+            // 心跳，原样返回（消费者据此判断连接是否存活）
+            if (header.getType() == ProtocolMessageTypeEnum.HEART_BEAT.getKey()) {
+                try {
+                    socket.write(ProtocolMessageEncoder.encode(new ProtocolMessage<>(header, null)));
+                } catch (IOException e) {
+                    throw new RuntimeException("协议消息编码错误");
+                }
+                return;
+            }
+
+            RpcRequest rpcRequest = protocolMessage.getBody();
+            // 根据请求携带的剩余时间计算截止时间
+            Long deadline = rpcRequest.getTimeout() == null ? null : arrivalTime + rpcRequest.getTimeout();
 
+            // 2.按优先级申请并发许可，超过限制时直接拒绝，让消费者立即转发到其他节点；低优先级请求不能占满为高优先级预留的名额
+            RpcPriorityEnum priority = RpcPriorityEnum.getEnumByValue(rpcRequest.getPriority());
+            ConcurrencyLimiter.Permit permit = ConcurrencyLimiter.acquire(rpcRequest.getServiceName(), rpcRequest.getMethodName(), priority);
+            if (permit == null) {
+                doOverloadResponse(socket, header, "服务端过载，超过并发限制");
+                return;
+            }
+
+            // 3.分发请求，按优先级在对应的工作线程池中处理
+            InFlightRequest inFlightRequest = new InFlightRequest(permit);
+            inFlightRequestMap.put(requestId, inFlightRequest);
             try {
-                Buffer encode = ProtocolMessageEncoder.encode(responseProtocolMessage);
-                socket.write(encode);
-            } catch (IOException e) {
-                throw new RuntimeException("协议消息编码错误");
+                inFlightRequest.future = RequestDispatcher.dispatch(() -> {
+                    // 已被取消
+                    if (!inFlightRequest.started.compareAndSet(false, true)) {
+                        return;
+                    }
+                    RpcResponse rpcResponse;
+                    try {
+                        // 排队时间过长或已超过截止时间的请求不再处理，避免流量高峰后把处理能力浪费在过期请求上
+                        String dropReason = getDropReason(arrivalTime, deadline);
+                        if (dropReason != null) {
+                            inFlightRequestMap.remove(requestId);
+                            doOverloadResponse(socket, header, dropReason);
+                            return;
+                        }
+                        rpcResponse = doInvoke(rpcRequest, deadline, inFlightRequest.cancelled);
+                    } finally {
+                        // 排队时间也计入耗时，排队变长时自适应并发限制会随之降低
+                        permit.release(System.currentTimeMillis() - arrivalTime);
+                    }
+                    // 已取消的请求，消费者不再读取响应
+                    if (inFlightRequestMap.remove(requestId) != null && !inFlightRequest.cancelled.get()) {
+                        doResponse(socket, header, rpcResponse);
+                    }
+                }, priority);
+            } catch (RejectedExecutionException e) {
+                inFlightRequestMap.remove(requestId);
+                permit.releaseDropped();
+                doOverloadResponse(socket, header, "服务端过载，请求队列已满");
             }
         });
         socket.handler(bufferHandlerWrapper);
+        // 连接关闭后，该连接上的请求都不再需要处理
+        socket.closeHandler(v -> {
+            inFlightRequestMap.values().forEach(InFlightRequest::cancel);
+            inFlightRequestMap.clear();
+        });
+    }
+
+    /**
+     * 判断请求是否需要丢弃
+     * @param arrivalTime 请求到达时间
+     * @param deadline 截止时间（毫秒时间戳），为空表示不限制
+     * @return 丢弃原因，不需要丢弃时返回 null
+     */
+    private String getDropReason(long arrivalTime, Long deadline) {
+        long now = System.currentTimeMillis();
+        // 消费者已经放弃的请求不再处理
+        if (deadline != null && now >= deadline) {
+            return "请求已超过截止时间，不再处理";
+        }
+        ServerConfig serverConfig = RpcApplication.getRpcConfig().getServerConfig();
+        Long maxQueueTime = serverConfig == null ? null : serverConfig.getMaxQueueTime();
+        if (maxQueueTime != null && maxQueueTime > 0 && now - arrivalTime > maxQueueTime) {
+            return String.format("请求排队 %dms，超过最大排队时间，不再处理", now - arrivalTime);
+        }
+        return null;
+    }
+
+    /**
+     * 调用服务方法
+     * @param rpcRequest
+     * @param deadline 截止时间（毫秒时间戳），为空表示不限制
+     * @param cancelled 取消标记
+     * @return
+     */
+    private RpcResponse doInvoke(RpcRequest rpcRequest, Long deadline, AtomicBoolean cancelled) {
+        RpcResponse rpcResponse = new RpcResponse();
+        try {
+            // 截止时间放入调用上下文，服务方法中发起的下游调用会自动使用剩余时间
+            if (deadline != null) {
+                RpcContext.setDeadline(deadline);
+            }
+            RpcContext.setCancelled(cancelled);
+            // 反射调用服务方法
+            Class<?> implClass = LocalRegistry.get(rpcRequest.getServiceName());
+            Method method = implClass.getMethod(rpcRequest.getMethodName(), rpcRequest.getParameterTypes());
+            Object result = method.invoke(implClass.newInstance(), rpcRequest.getArgs());
+            // 封装返回结果
+            rpcResponse.setData(result);
+            rpcResponse.setDataType(method.getReturnType());
+            rpcResponse.setMessage("ok");
+        } catch (Exception e) {
+            e.printStackTrace();
+            rpcResponse.setMessage(e.getMessage());
+            rpcResponse.setException(e);
+        } finally {
+            RpcContext.clear();
+        }
+        return rpcResponse;
+    }
+
+    /**
+     * 发送响应
+     * @param socket
+     * @param header 请求的消息头
+     * @param rpcResponse
+     */
+    private void doResponse(NetSocket socket, ProtocolMessage.Header header, RpcResponse rpcResponse) {
+        // 4.发送响应，编码
+        header.setType((byte) ProtocolMessageTypeEnum.RESPONSE.getKey());
+        ProtocolMessage<RpcResponse> responseProtocolMessage = new ProtocolMessage<>(header, rpcResponse);
+
+        try {
+            Buffer encode = ProtocolMessageEncoder.encode(responseProtocolMessage);
+            socket.write(encode);
+        } catch (IOException e) {
+            throw new RuntimeException("协议消息编码错误");
+        }
+    }
+
+    /**
+     * 发送过载响应（请求未被处理），消费者收到后可以立即将请求发往其他节点
+     * @param socket
+     * @param header 请求的消息头
+     * @param message
+     */
+    private void doOverloadResponse(NetSocket socket, ProtocolMessage.Header header, String message) {
+        RpcResponse rpcResponse = new RpcResponse();
+        rpcResponse.setMessage(message);
+        header.setStatus((byte) ProtocolMessageStatusEnum.OVERLOAD.getValue());
+        doResponse(socket, header, rpcResponse);
+    }
+
+    /**
+     * 尚未完成的请求
+     */
+    private static class InFlightRequest {
+        /**
+         * 取消标记，服务方法可通过 RpcContext.isCancelled() 查询
+         */
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        /**
+         * 是否已开始执行（或已被取消，不会再执行）
+         */
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        /**
+         * 并发许可
+         */
+        private final ConcurrencyLimiter.Permit permit;
+
+        /**
+         * 分发后返回的 Future
+         */
+        private volatile Future<?> future;
+
+        private InFlightRequest(ConcurrencyLimiter.Permit permit) {
+            this.permit = permit;
+        }
+
+        /**
+         * 取消请求：排队中的请求不再执行，执行中的请求设置取消标记并中断线程
+         */
+        private void cancel() {
+            cancelled.set(true);
+            // 尚未开始执行的请求不会再执行，由这里释放并发许可
+            if (started.compareAndSet(false, true)) {
+                permit.releaseDropped();
+            }
+            if (future != null) {
+                RequestDispatcher.cancel(future);
+            }
+        }
     }
 }
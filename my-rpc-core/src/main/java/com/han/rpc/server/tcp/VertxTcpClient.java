@@ -1,90 +1,110 @@
 package com.han.rpc.server.tcp;
 
-import cn.hutool.core.util.IdUtil;
-import com.han.rpc.RpcApplication;
 import com.han.rpc.model.RpcRequest;
 import com.han.rpc.model.RpcResponse;
 import com.han.rpc.model.ServiceMetaInfo;
-import com.han.rpc.protocol.ProtocolConstant;
-import com.han.rpc.protocol.ProtocolMessage;
-import com.han.rpc.protocol.ProtocolMessageDecoder;
-import com.han.rpc.protocol.ProtocolMessageEncoder;
-import com.han.rpc.protocol.ProtocolMessageSerializerEnum;
-import com.han.rpc.protocol.ProtocolMessageStatusEnum;
-import com.han.rpc.protocol.ProtocolMessageTypeEnum;
 import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.net.NetClient;
 import io.vertx.core.net.NetSocket;
 
-import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+/**
+ * TCP客户端（服务消费端）
+ */
 public class VertxTcpClient {
-    public static RpcResponse doRequest(RpcRequest rpcRequest, ServiceMetaInfo serviceMetaInfo, Long timeout, TimeUnit timeUnit) throws ExecutionException, InterruptedException {
-        // 发送TCP请求
-        Vertx vertx = Vertx.vertx();
-        NetClient netClient = vertx.createNetClient();
 
-        CompletableFuture<RpcResponse> responseFuture = new CompletableFuture<>();
-        netClient.connect(serviceMetaInfo.getServicePort(), serviceMetaInfo.getServiceHost(),
-                result -> {
-                    if (!result.succeeded()) {
-                        System.err.println("Failed to connect to TCP server");
-                        return;
-                    }
-                    System.out.println("Connected to TCP server");
-                    NetSocket socket = result.result();
-                    // 发送请求
-                    // 1.构造消息
-                    ProtocolMessage<RpcRequest> protocolMessage = new ProtocolMessage<>();
-                    ProtocolMessage.Header header = new ProtocolMessage.Header();
-                    header.setMagic(ProtocolConstant.PROTOCOL_MAGIC);
-                    header.setVersion(ProtocolConstant.PROTOCOL_VERSION);
-                    header.setSerializer((byte) ProtocolMessageSerializerEnum.getEnumByValue(RpcApplication.getRpcConfig().getSerializer()).getKey());
-                    header.setType((byte) ProtocolMessageTypeEnum.REQUEST.getKey());
-                    header.setStatus((byte) ProtocolMessageStatusEnum.OK.getValue());
-                    // 生成全局请求ID
-                    header.setRequestId(IdUtil.getSnowflakeNextId());
-                    protocolMessage.setHeader(header);
-                    protocolMessage.setBody(rpcRequest);
+    /**
+     * 全局共享的 Vert.x 实例，请求和重试定时器都在它的事件循环上执行，避免每次请求都创建新的线程池
+     */
+    private static final Vertx VERTX = Vertx.vertx();
 
-                    // 2.编码请求
-                    try {
-                        Buffer buffer = ProtocolMessageEncoder.encode(protocolMessage);
-                        socket.write(buffer);
-                    } catch (IOException e) {
-                        throw new RuntimeException("协议消息编码错误");
-                    }
-                    // 3.接收响应
-                    TcpBufferHandlerWrapper bufferHandlerWrapper = new TcpBufferHandlerWrapper(buffer -> {
-                        try {
-                            ProtocolMessage<RpcResponse> responseProtocolMessage =
-                                    (ProtocolMessage<RpcResponse>) ProtocolMessageDecoder.decode(buffer);
-                            // 由于 Vert.x 提供的请求处理器是异步、反应式的，我们为了更方便地获取结果，可以使用CompletableFuture转异步为同步
-                            responseFuture.complete(responseProtocolMessage.getBody());
-                        } catch (IOException e) {
-                            throw new RuntimeException("协议消息解码错误");
-                        }
-                    });
-                    socket.handler(bufferHandlerWrapper);
+    /**
+     * 全局共享的 TCP 客户端
+     */
+    private static final NetClient NET_CLIENT = VERTX.createNetClient();
 
-                });
+    /**
+     * 全局共享的长连接管理器
+     */
+    private static final TcpConnectionManager CONNECTION_MANAGER = new TcpConnectionManager(VERTX, NET_CLIENT);
 
-        // 阻塞，直到完成了响应，才会继续向下执行
-        RpcResponse rpcResponse = null;
+    /**
+     * 获取共享的 Vert.x 实例
+     * @return
+     */
+    public static Vertx getVertx() {
+        return VERTX;
+    }
+
+    /**
+     * 获取共享的 TCP 客户端
+     * @return
+     */
+    public static NetClient getNetClient() {
+        return NET_CLIENT;
+    }
+
+    /**
+     * 发送请求（同步，阻塞直到响应或超时）
+     * @param rpcRequest
+     * @param serviceMetaInfo
+     * @param timeout
+     * @param timeUnit
+     * @return
+     * @throws ExecutionException
+     * @throws InterruptedException
+     */
+    public static RpcResponse doRequest(RpcRequest rpcRequest, ServiceMetaInfo serviceMetaInfo, Long timeout, TimeUnit timeUnit) throws ExecutionException, InterruptedException {
         try {
-            rpcResponse = responseFuture.get(timeout, timeUnit);
-        } catch (TimeoutException e) {
-            throw new RuntimeException("执行超时");
-        } finally {
-            // 记得关闭连接
-            netClient.close();
+            // 阻塞，直到完成了响应，才会继续向下执行
+            return doRequestAsync(rpcRequest, serviceMetaInfo, timeout, timeUnit).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                throw new RuntimeException("执行超时", e.getCause());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 发送请求（异步，超时由事件循环定时器控制，超时或被取消时通知服务提供者取消该请求）
+     * @param rpcRequest
+     * @param serviceMetaInfo
+     * @param timeout
+     * @param timeUnit
+     * @return
+     */
+    public static CompletableFuture<RpcResponse> doRequestAsync(RpcRequest rpcRequest, ServiceMetaInfo serviceMetaInfo, long timeout, TimeUnit timeUnit) {
+        CompletableFuture<RpcResponse> responseFuture = new CompletableFuture<>();
+        long timeoutMillis = timeUnit.toMillis(timeout);
+        if (timeoutMillis <= 0) {
+            // 已经没有剩余时间，无需再发起请求
+            responseFuture.completeExceptionally(new TimeoutException("执行超时"));
+            return responseFuture;
         }
-        return rpcResponse;
+        long timerId = VERTX.setTimer(timeoutMillis,
+                id -> responseFuture.completeExceptionally(new TimeoutException("执行超时")));
+        responseFuture.whenComplete((response, throwable) -> VERTX.cancelTimer(timerId));
+
+        // 通过长连接发送TCP请求，多个请求复用同一个连接
+        CONNECTION_MANAGER.getConnection(serviceMetaInfo).whenComplete((connection, throwable) -> {
+            if (throwable != null) {
+                // 连接失败立即结束调用，不必等到超时
+                responseFuture.completeExceptionally(throwable);
+                return;
+            }
+            if (responseFuture.isDone()) {
+                // 已超时或被取消
+                return;
+            }
+            connection.send(rpcRequest, responseFuture);
+        });
+        return responseFuture;
     }
 
     public void start() {
@@ -1,17 +1,37 @@
 package com.han.rpc.server.tcp;
 
+import com.han.rpc.RpcApplication;
+import com.han.rpc.config.ServerConfig;
 import com.han.rpc.server.HttpServer;
 import io.vertx.core.Vertx;
 import io.vertx.core.net.NetServer;
+import io.vertx.core.net.NetServerOptions;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 public class VertxTcpServer implements HttpServer {
 
     @Override
     public void doStart(int port) {
+        start(port);
+    }
+
+    /**
+     * 启动服务器
+     * @param port
+     * @return 开始监听后完成，服务节点应在此之后再注册到注册中心，避免消费者发现节点时还无法建立连接
+     */
+    public CompletableFuture<Void> start(int port) {
+        CompletableFuture<Void> startFuture = new CompletableFuture<>();
         // 创建vertx实例
         Vertx vertx = Vertx.vertx();
-        // 创建TCP服务器
-        NetServer server = vertx.createNetServer();
+        // 创建TCP服务器，长时间收不到数据（包括消费者的心跳）的连接自动关闭，及时清理半开连接
+        ServerConfig serverConfig = RpcApplication.getRpcConfig().getServerConfig();
+        NetServerOptions netServerOptions = new NetServerOptions()
+                .setIdleTimeout(serverConfig == null ? new ServerConfig().getIdleTimeout().intValue() : serverConfig.getIdleTimeout().intValue())
+                .setIdleTimeoutUnit(TimeUnit.MILLISECONDS);
+        NetServer server = vertx.createNetServer(netServerOptions);
 
         // 处理请求
         server.connectHandler(new TcpServerHandler());
@@ -20,10 +40,13 @@ public class VertxTcpServer implements HttpServer {
         server.listen(port, result -> {
             if (result.succeeded()) {
                 System.out.println("TCP Server starts successfully on port " + port);
+                startFuture.complete(null);
             } else {
                 System.err.println("Failed to start TCP server: " + result.cause());
+                startFuture.completeExceptionally(result.cause());
             }
         });
+        return startFuture;
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,110 @@
+package com.han.rpc.fault.circuitbreaker;
+
+import com.han.rpc.config.CircuitBreakerConfig;
+import com.han.rpc.model.RpcResponse;
+import com.han.rpc.server.limiter.ServerOverloadException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 熔断器测试
+ */
+public class CircuitBreakerTest {
+
+    @Test
+    public void testCircuitBreaker() throws InterruptedException {
+        CircuitBreakerConfig config = new CircuitBreakerConfig();
+        config.setSlidingWindowSize(10);
+        config.setMinimumCalls(4);
+        config.setFailureRateThreshold(0.5);
+        config.setOpenDuration(100L);
+        config.setHalfOpenProbeCalls(2);
+        CircuitBreaker circuitBreaker = new CircuitBreaker("http://localhost:1234", config);
+
+        // 失败率达到50%后熔断
+        circuitBreaker.onSuccess(10);
+        circuitBreaker.onSuccess(10);
+        circuitBreaker.onError(10);
+        Assertions.assertEquals(CircuitBreakerStateEnum.CLOSED, circuitBreaker.getState());
+        circuitBreaker.onError(10);
+        Assertions.assertEquals(CircuitBreakerStateEnum.OPEN, circuitBreaker.getState());
+        Assertions.assertFalse(circuitBreaker.isAvailable());
+        Assertions.assertFalse(circuitBreaker.tryAcquirePermission());
+
+        // 熔断时间过后进入半开状态，只放行2个探测请求
+        Thread.sleep(150);
+        Assertions.assertTrue(circuitBreaker.isAvailable());
+        Assertions.assertTrue(circuitBreaker.tryAcquirePermission());
+        Assertions.assertTrue(circuitBreaker.tryAcquirePermission());
+        Assertions.assertFalse(circuitBreaker.tryAcquirePermission());
+        Assertions.assertEquals(CircuitBreakerStateEnum.HALF_OPEN, circuitBreaker.getState());
+
+        // 探测请求全部成功后恢复
+        circuitBreaker.onSuccess(10);
+        circuitBreaker.onSuccess(10);
+        Assertions.assertEquals(CircuitBreakerStateEnum.CLOSED, circuitBreaker.getState());
+        Assertions.assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    public void testSlowCall() {
+        CircuitBreakerConfig config = new CircuitBreakerConfig();
+        config.setMinimumCalls(4);
+        config.setSlowCallDurationThreshold(100L);
+        config.setSlowCallRateThreshold(0.75);
+        CircuitBreaker circuitBreaker = new CircuitBreaker("http://localhost:1234", config);
+
+        // 调用虽然成功，但慢调用率过高也会熔断
+        circuitBreaker.onSuccess(10);
+        circuitBreaker.onSuccess(500);
+        circuitBreaker.onSuccess(500);
+        circuitBreaker.onSuccess(500);
+        Assertions.assertEquals(CircuitBreakerStateEnum.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    public void testServerOverload() {
+        CircuitBreakerConfig config = new CircuitBreakerConfig();
+        config.setMinimumCalls(4);
+        CircuitBreaker circuitBreaker = new CircuitBreaker("http://localhost:1234", config);
+
+        // 过载异常经过 whenComplete 阶段后被包装为 CompletionException，仍不计为失败
+        for (int i = 0; i < 10; i++) {
+            circuitBreaker.executeAsync(() -> CompletableFuture.<RpcResponse>failedFuture(
+                    new ServerOverloadException("http://localhost:1234")).whenComplete((rpcResponse, throwable) -> {
+            }));
+        }
+        Assertions.assertEquals(CircuitBreakerStateEnum.CLOSED, circuitBreaker.getState());
+
+        // 其他异常计为失败
+        for (int i = 0; i < 10; i++) {
+            circuitBreaker.executeAsync(() -> CompletableFuture.<RpcResponse>failedFuture(
+                    new RuntimeException("服务报错")).whenComplete((rpcResponse, throwable) -> {
+            }));
+        }
+        Assertions.assertEquals(CircuitBreakerStateEnum.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        CircuitBreakerConfig config = new CircuitBreakerConfig();
+        config.setMinimumCalls(1);
+        config.setOpenDuration(100L);
+        config.setHalfOpenProbeCalls(1);
+        CircuitBreaker circuitBreaker = new CircuitBreaker("http://localhost:1234", config);
+        circuitBreaker.onError(10);
+        Thread.sleep(150);
+
+        // 返回的是请求本身的 future，取消后不计为失败，并归还半开状态的探测名额
+        CompletableFuture<RpcResponse> requestFuture = new CompletableFuture<>();
+        CompletableFuture<RpcResponse> future = circuitBreaker.executeAsync(() -> requestFuture);
+        Assertions.assertEquals(CircuitBreakerStateEnum.HALF_OPEN, circuitBreaker.getState());
+        Assertions.assertFalse(circuitBreaker.isAvailable());
+        future.cancel(false);
+        Assertions.assertTrue(requestFuture.isCancelled());
+        Assertions.assertEquals(CircuitBreakerStateEnum.HALF_OPEN, circuitBreaker.getState());
+        Assertions.assertTrue(circuitBreaker.isAvailable());
+    }
+}
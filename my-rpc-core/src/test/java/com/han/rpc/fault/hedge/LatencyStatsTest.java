@@ -0,0 +1,30 @@
+package com.han.rpc.fault.hedge;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 调用耗时统计测试
+ */
+public class LatencyStatsTest {
+
+    @Test
+    public void testPercentile() {
+        LatencyStats latencyStats = new LatencyStats();
+        Assertions.assertEquals(-1, latencyStats.getPercentile(0.95));
+        for (int i = 1; i <= 100; i++) {
+            latencyStats.record(i);
+        }
+        Assertions.assertEquals(100, latencyStats.getSampleCount());
+        Assertions.assertEquals(95, latencyStats.getPercentile(0.95));
+        Assertions.assertEquals(50, latencyStats.getPercentile(0.5));
+        Assertions.assertEquals(100, latencyStats.getPercentile(1));
+
+        // 样本满后覆盖最早的记录
+        for (int i = 0; i < 200; i++) {
+            latencyStats.record(1000);
+        }
+        Assertions.assertEquals(128, latencyStats.getSampleCount());
+        Assertions.assertEquals(1000, latencyStats.getPercentile(0.5));
+    }
+}
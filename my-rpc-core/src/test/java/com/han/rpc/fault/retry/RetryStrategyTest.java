@@ -1,8 +1,14 @@
 package com.han.rpc.fault.retry;
 
 import com.han.rpc.model.RpcResponse;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class RetryStrategyTest {
 
     RetryStrategy strategy = new FixedIntervalRetryStrategy();
@@ -20,4 +26,64 @@ public class RetryStrategyTest {
             System.out.println("重试多次失败，停止重试...");
         }
     }
+
+    @Test
+    public void testAsyncRetry() throws Exception {
+        // 每次间隔10毫秒，最多尝试3次
+        AsyncRetryer asyncRetryer = new AsyncRetryer(3, attemptNumber -> 10L, 0.5);
+        AtomicInteger attemptCount = new AtomicInteger();
+        CompletableFuture<RpcResponse> future = asyncRetryer.call(() -> {
+            attemptCount.incrementAndGet();
+            return CompletableFuture.failedFuture(new RuntimeException("模拟重试失败"));
+        });
+        Assertions.assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(3, attemptCount.get());
+
+        // 第二次尝试成功后不再重试
+        AtomicInteger successAttemptCount = new AtomicInteger();
+        RpcResponse rpcResponse = asyncRetryer.call(() -> {
+            if (successAttemptCount.incrementAndGet() < 2) {
+                return CompletableFuture.failedFuture(new RuntimeException("模拟重试失败"));
+            }
+            return CompletableFuture.completedFuture(new RpcResponse());
+        }).get(5, TimeUnit.SECONDS);
+        Assertions.assertNotNull(rpcResponse);
+        Assertions.assertEquals(2, successAttemptCount.get());
+    }
+
+    @Test
+    public void testAsyncRetryCancel() {
+        // 调用方取消时，正在进行的尝试也被取消（底层请求据此通知服务提供者）
+        AsyncRetryer asyncRetryer = new AsyncRetryer(3, attemptNumber -> 10L, 0);
+        CompletableFuture<RpcResponse> attemptFuture = new CompletableFuture<>();
+        CompletableFuture<RpcResponse> future = asyncRetryer.call(() -> attemptFuture, new RetryBudget(0.1, 2));
+        future.cancel(false);
+        Assertions.assertTrue(attemptFuture.isCancelled());
+    }
+
+    @Test
+    public void testRetryBudget() throws Exception {
+        // 重试次数不超过成功次数的10%，最多突发2次重试
+        RetryBudget retryBudget = new RetryBudget(0.1, 2);
+        AsyncRetryer asyncRetryer = new AsyncRetryer(3, attemptNumber -> 1L, 0);
+        AtomicInteger attemptCount = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            CompletableFuture<RpcResponse> future = asyncRetryer.call(() -> {
+                attemptCount.incrementAndGet();
+                return CompletableFuture.failedFuture(new RuntimeException("模拟重试失败"));
+            }, retryBudget);
+            Assertions.assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        }
+        // 3次调用只允许2次重试
+        Assertions.assertEquals(5, attemptCount.get());
+        Assertions.assertEquals(2, retryBudget.getRetryCount());
+        Assertions.assertTrue(retryBudget.getRejectedRetryCount() > 0);
+
+        // 成功10次后恢复1次重试
+        for (int i = 0; i < 10; i++) {
+            retryBudget.deposit();
+        }
+        Assertions.assertTrue(retryBudget.tryWithdraw());
+        Assertions.assertFalse(retryBudget.tryWithdraw());
+    }
 }
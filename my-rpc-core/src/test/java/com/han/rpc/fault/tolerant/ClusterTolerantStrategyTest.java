@@ -0,0 +1,133 @@
+package com.han.rpc.fault.tolerant;
+
+import com.han.rpc.loadbalancer.RoundRobinLoadBalancer;
+import com.han.rpc.model.RpcRequest;
+import com.han.rpc.model.RpcResponse;
+import com.han.rpc.model.ServiceMetaInfo;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 集群调用容错策略测试（并行调用、广播调用）
+ */
+public class ClusterTolerantStrategyTest {
+
+    @Test
+    public void testForking() throws Exception {
+        List<ServiceMetaInfo> serviceMetaInfoList = buildServiceMetaInfoList(3);
+        // 首个节点一直不响应，第二个节点成功
+        Map<String, CompletableFuture<RpcResponse>> futureMap = new HashMap<>();
+        futureMap.put("http://localhost:8000", new CompletableFuture<>());
+        futureMap.put("http://localhost:8001", CompletableFuture.completedFuture(RpcResponse.builder().data("8001").build()));
+        futureMap.put("http://localhost:8002", CompletableFuture.completedFuture(RpcResponse.builder().data("8002").build()));
+        ForkingTolerantStrategy strategy = new ForkingTolerantStrategy() {
+            @Override
+            protected int getForks() {
+                return 2;
+            }
+
+            @Override
+            protected CompletableFuture<RpcResponse> invokeAsync(RpcRequest rpcRequest, ServiceMetaInfo serviceMetaInfo, long deadline) {
+                return futureMap.get(serviceMetaInfo.getServiceAddress());
+            }
+        };
+        RpcResponse rpcResponse = strategy.doInvokeAsync(buildContext(serviceMetaInfoList)).get(1, TimeUnit.SECONDS);
+        Assertions.assertEquals("8001", rpcResponse.getData());
+        // 采用最先成功的响应后，取消仍未完成的请求
+        Assertions.assertTrue(futureMap.get("http://localhost:8000").isCancelled());
+
+        // 所有节点都失败时才失败
+        ForkingTolerantStrategy failedStrategy = new ForkingTolerantStrategy() {
+            @Override
+            protected int getForks() {
+                return 3;
+            }
+
+            @Override
+            protected CompletableFuture<RpcResponse> invokeAsync(RpcRequest rpcRequest, ServiceMetaInfo serviceMetaInfo, long deadline) {
+                return CompletableFuture.failedFuture(new RuntimeException("服务报错"));
+            }
+        };
+        CompletableFuture<RpcResponse> failedFuture = failedStrategy.doInvokeAsync(buildContext(serviceMetaInfoList));
+        Assertions.assertThrows(ExecutionException.class, () -> failedFuture.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testBroadcast() throws Exception {
+        List<ServiceMetaInfo> serviceMetaInfoList = buildServiceMetaInfoList(3);
+        BroadcastTolerantStrategy strategy = new BroadcastTolerantStrategy() {
+            @Override
+            protected CompletableFuture<RpcResponse> invokeAsync(RpcRequest rpcRequest, ServiceMetaInfo serviceMetaInfo, long deadline) {
+                return CompletableFuture.completedFuture(RpcResponse.builder().data(serviceMetaInfo.getServicePort()).build());
+            }
+        };
+        Map<String, Object> context = buildContext(serviceMetaInfoList);
+        RpcResponse rpcResponse = strategy.doInvokeAsync(context).get(1, TimeUnit.SECONDS);
+        // 返回第一个节点的响应，每个节点的返回值写入上下文
+        Assertions.assertEquals(8000, rpcResponse.getData());
+        Map<String, Object> broadcastResults = (Map<String, Object>) context.get(TolerantContextKeys.BROADCAST_RESULTS);
+        Assertions.assertEquals(3, broadcastResults.size());
+        Assertions.assertEquals(8002, broadcastResults.get("http://localhost:8002"));
+    }
+
+    @Test
+    public void testBroadcastFailure() {
+        List<ServiceMetaInfo> serviceMetaInfoList = buildServiceMetaInfoList(3);
+        RuntimeException exception = new RuntimeException("服务报错");
+        BroadcastTolerantStrategy strategy = new BroadcastTolerantStrategy() {
+            @Override
+            protected CompletableFuture<RpcResponse> invokeAsync(RpcRequest rpcRequest, ServiceMetaInfo serviceMetaInfo, long deadline) {
+                if (serviceMetaInfo.getServicePort() == 8001) {
+                    return CompletableFuture.failedFuture(exception);
+                }
+                return CompletableFuture.completedFuture(RpcResponse.builder().data(serviceMetaInfo.getServicePort()).build());
+            }
+        };
+        Map<String, Object> context = buildContext(serviceMetaInfoList);
+        CompletableFuture<RpcResponse> future = strategy.doInvokeAsync(context);
+        ExecutionException executionException = Assertions.assertThrows(ExecutionException.class,
+                () -> future.get(1, TimeUnit.SECONDS));
+        Assertions.assertTrue(executionException.getCause() instanceof BroadcastException);
+
+        // 失败时仍保留成功节点的返回值，失败节点对应其异常
+        Map<String, Object> broadcastResults = ((BroadcastException) executionException.getCause()).getBroadcastResults();
+        Assertions.assertEquals(3, broadcastResults.size());
+        Assertions.assertEquals(8000, broadcastResults.get("http://localhost:8000"));
+        Assertions.assertSame(exception, broadcastResults.get("http://localhost:8001"));
+        Assertions.assertEquals(8002, broadcastResults.get("http://localhost:8002"));
+        Assertions.assertSame(broadcastResults, context.get(TolerantContextKeys.BROADCAST_RESULTS));
+    }
+
+    private List<ServiceMetaInfo> buildServiceMetaInfoList(int size) {
+        List<ServiceMetaInfo> serviceMetaInfoList = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            ServiceMetaInfo serviceMetaInfo = new ServiceMetaInfo();
+            serviceMetaInfo.setServiceName("myService");
+            serviceMetaInfo.setServiceVersion("1.0");
+            serviceMetaInfo.setServiceHost("localhost");
+            serviceMetaInfo.setServicePort(8000 + i);
+            serviceMetaInfoList.add(serviceMetaInfo);
+        }
+        return serviceMetaInfoList;
+    }
+
+    private Map<String, Object> buildContext(List<ServiceMetaInfo> serviceMetaInfoList) {
+        Map<String, Object> context = new HashMap<>();
+        context.put(TolerantContextKeys.RPC_REQUEST, RpcRequest.builder().serviceName("myService").methodName("test").build());
+        context.put(TolerantContextKeys.DISCOVERED_SERVICE_META_INFO_LIST, serviceMetaInfoList);
+        context.put(TolerantContextKeys.SERVICE_META_INFO_LIST, serviceMetaInfoList);
+        context.put(TolerantContextKeys.SELECTED_SERVICE_META_INFO, serviceMetaInfoList.get(0));
+        context.put(TolerantContextKeys.LOAD_BALANCER, new RoundRobinLoadBalancer());
+        context.put(TolerantContextKeys.REQUEST_PARAMS, new HashMap<String, Object>());
+        context.put(TolerantContextKeys.DEADLINE, System.currentTimeMillis() + 1000);
+        return context;
+    }
+}
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -50,4 +51,74 @@ public class LoadBalancerTest {
         System.out.println(metaInfo4);
         Assertions.assertNotNull(metaInfo4);
     }
+
+    @Test
+    public void testWeightedRoundRobinLoadBalancer() {
+        LoadBalancer weightedLoadBalancer = new WeightedRoundRobinLoadBalancer();
+        Map<String, Object> requestParams = new HashMap<>();
+        requestParams.put("methodName", "getName");
+        // 权重 5:1:1
+        List<ServiceMetaInfo> serviceMetaInfos = new ArrayList<>();
+        int[] weights = {5, 1, 1};
+        for (int i = 0; i < weights.length; i++) {
+            ServiceMetaInfo serviceMetaInfo = new ServiceMetaInfo();
+            serviceMetaInfo.setServiceName("myService");
+            serviceMetaInfo.setServiceHost("localhost");
+            serviceMetaInfo.setServiceVersion("1.0");
+            serviceMetaInfo.setServicePort(1234 + i);
+            serviceMetaInfo.setWeight(weights[i]);
+            serviceMetaInfos.add(serviceMetaInfo);
+        }
+
+        // 平滑加权轮询的选择序列为 a a b a c a a
+        int[] expectedPorts = {1234, 1234, 1235, 1234, 1236, 1234, 1234};
+        for (int expectedPort : expectedPorts) {
+            ServiceMetaInfo selected = weightedLoadBalancer.select(requestParams, serviceMetaInfos);
+            Assertions.assertEquals(expectedPort, selected.getServicePort());
+        }
+    }
+
+    @Test
+    public void testRoundRobinWarmup() {
+        LoadBalancer roundRobinLoadBalancer = new RoundRobinLoadBalancer();
+        Map<String, Object> requestParams = new HashMap<>();
+        List<ServiceMetaInfo> serviceMetaInfos = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            ServiceMetaInfo serviceMetaInfo = new ServiceMetaInfo();
+            serviceMetaInfo.setServiceName("myService");
+            serviceMetaInfo.setServiceHost("localhost");
+            serviceMetaInfo.setServiceVersion("1.0");
+            serviceMetaInfo.setServicePort(1234 + i);
+            serviceMetaInfo.setWeight(100);
+            serviceMetaInfo.setWarmup(60 * 1000L);
+            serviceMetaInfo.setRegisterTime(System.currentTimeMillis() - 2 * 60 * 1000L);
+            serviceMetaInfos.add(serviceMetaInfo);
+        }
+        // 第二个节点刚注册，仍在预热，只承接少量请求
+        serviceMetaInfos.get(1).setRegisterTime(System.currentTimeMillis());
+        int warmingCount = 0;
+        for (int i = 0; i < 100; i++) {
+            if (roundRobinLoadBalancer.select(requestParams, serviceMetaInfos).getServicePort() == 1235) {
+                warmingCount++;
+            }
+        }
+        Assertions.assertTrue(warmingCount <= 5);
+    }
+
+    @Test
+    public void testWarmupWeight() {
+        ServiceMetaInfo serviceMetaInfo = new ServiceMetaInfo();
+        serviceMetaInfo.setWeight(100);
+        serviceMetaInfo.setWarmup(60 * 1000L);
+        // 刚注册的节点，权重很小
+        serviceMetaInfo.setRegisterTime(System.currentTimeMillis());
+        Assertions.assertTrue(loadBalancer.getWeight(serviceMetaInfo) <= 2);
+        // 预热到一半，权重约为一半
+        serviceMetaInfo.setRegisterTime(System.currentTimeMillis() - 30 * 1000L);
+        int halfWeight = loadBalancer.getWeight(serviceMetaInfo);
+        Assertions.assertTrue(halfWeight >= 45 && halfWeight <= 55);
+        // 预热结束，恢复完整权重
+        serviceMetaInfo.setRegisterTime(System.currentTimeMillis() - 2 * 60 * 1000L);
+        Assertions.assertEquals(100, loadBalancer.getWeight(serviceMetaInfo));
+    }
 }
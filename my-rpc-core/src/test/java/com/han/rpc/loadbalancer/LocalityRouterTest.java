@@ -0,0 +1,84 @@
+package com.han.rpc.loadbalancer;
+
+import com.han.rpc.config.RpcConfig;
+import com.han.rpc.model.ServiceMetaInfo;
+import com.han.rpc.registry.ServiceSnapshot;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 就近路由测试
+ */
+public class LocalityRouterTest {
+
+    @Test
+    public void testRoute() {
+        RpcConfig rpcConfig = buildRpcConfig();
+        List<ServiceMetaInfo> serviceMetaInfoList = ServiceSnapshot.of(Arrays.asList(
+                build(1, "host-a", "zone-1"),
+                build(2, "host-b", "zone-1"),
+                build(3, "host-c", "zone-1"),
+                build(4, "host-d", "zone-1"),
+                build(5, "host-e", "zone-2"),
+                build(6, "host-f", "zone-2")));
+        // 优先同主机
+        Assertions.assertEquals(Arrays.asList(1), getPorts(LocalityRouter.route(serviceMetaInfoList, serviceMetaInfoList, rpcConfig)));
+
+        // 同主机的节点不可用，使用同可用区的节点
+        List<ServiceMetaInfo> availableList = new ArrayList<>(serviceMetaInfoList.subList(1, 6));
+        Assertions.assertEquals(Arrays.asList(2, 3, 4), getPorts(LocalityRouter.route(serviceMetaInfoList, availableList, rpcConfig)));
+
+        // 同可用区的可用节点比例低于最小健康比例，溢出到其他可用区
+        availableList = new ArrayList<>(serviceMetaInfoList.subList(2, 6));
+        Assertions.assertEquals(Arrays.asList(3, 4, 5, 6), getPorts(LocalityRouter.route(serviceMetaInfoList, availableList, rpcConfig)));
+
+        // 未配置本机位置时不做处理
+        Assertions.assertSame(availableList, LocalityRouter.route(serviceMetaInfoList, availableList, new RpcConfig()));
+    }
+
+    @Test
+    public void testOverloadSpillover() {
+        RpcConfig rpcConfig = buildRpcConfig();
+        rpcConfig.setHostName(null);
+        rpcConfig.setZone("zone-3");
+        List<ServiceMetaInfo> serviceMetaInfoList = Arrays.asList(
+                build(11, "host-a", "zone-3"),
+                build(12, "host-b", "zone-3"),
+                build(13, "host-c", "zone-4"));
+        Assertions.assertEquals(Arrays.asList(11, 12), getPorts(LocalityRouter.route(serviceMetaInfoList, serviceMetaInfoList, rpcConfig)));
+        // 同可用区的节点过载，溢出到其他可用区并避开过载节点
+        LocalityRouter.markOverloaded(serviceMetaInfoList.get(0).getServiceAddress(), 60000);
+        Assertions.assertEquals(Arrays.asList(12, 13), getPorts(LocalityRouter.route(serviceMetaInfoList, serviceMetaInfoList, rpcConfig)));
+        // 过载状态结束后恢复
+        LocalityRouter.markOverloaded(serviceMetaInfoList.get(0).getServiceAddress(), 0);
+        Assertions.assertEquals(Arrays.asList(11, 12), getPorts(LocalityRouter.route(serviceMetaInfoList, serviceMetaInfoList, rpcConfig)));
+    }
+
+    private RpcConfig buildRpcConfig() {
+        RpcConfig rpcConfig = new RpcConfig();
+        rpcConfig.setRegion("region-1");
+        rpcConfig.setZone("zone-1");
+        rpcConfig.setHostName("host-a");
+        return rpcConfig;
+    }
+
+    private ServiceMetaInfo build(int port, String hostName, String zone) {
+        ServiceMetaInfo serviceMetaInfo = new ServiceMetaInfo();
+        serviceMetaInfo.setServiceName("myService");
+        serviceMetaInfo.setServiceHost("localhost");
+        serviceMetaInfo.setServicePort(port);
+        serviceMetaInfo.setRegion("region-1");
+        serviceMetaInfo.setZone(zone);
+        serviceMetaInfo.setHostName(hostName);
+        return serviceMetaInfo;
+    }
+
+    private List<Integer> getPorts(List<ServiceMetaInfo> serviceMetaInfoList) {
+        return serviceMetaInfoList.stream().map(ServiceMetaInfo::getServicePort).sorted().collect(Collectors.toList());
+    }
+}
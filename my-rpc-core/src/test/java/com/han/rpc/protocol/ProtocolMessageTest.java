@@ -38,4 +38,22 @@ public class ProtocolMessageTest {
         ProtocolMessage<?> protocolMessage = ProtocolMessageDecoder.decode(encodeBuffer);
         Assert.notNull(protocolMessage);
     }
+
+    @Test
+    public void testEncodeAndDecodeCancel() throws IOException {
+        // 取消消息没有消息体
+        ProtocolMessage.Header header = new ProtocolMessage.Header();
+        header.setMagic(ProtocolConstant.PROTOCOL_MAGIC);
+        header.setVersion(ProtocolConstant.PROTOCOL_VERSION);
+        header.setSerializer((byte) ProtocolMessageSerializerEnum.JDK.getKey());
+        header.setType((byte) ProtocolMessageTypeEnum.CANCEL.getKey());
+        header.setStatus((byte) ProtocolMessageStatusEnum.OK.getValue());
+        header.setRequestId(IdUtil.getSnowflakeNextId());
+
+        Buffer encodeBuffer = ProtocolMessageEncoder.encode(new ProtocolMessage<>(header, null));
+        Assert.isTrue(encodeBuffer.length() == ProtocolConstant.MESSAGE_HEADER_LENGTH);
+        ProtocolMessage<?> protocolMessage = ProtocolMessageDecoder.decode(encodeBuffer);
+        Assert.isNull(protocolMessage.getBody());
+        Assert.isTrue(protocolMessage.getHeader().getRequestId() == header.getRequestId());
+    }
 }
@@ -0,0 +1,53 @@
+package com.han.rpc.ratelimit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 限流器测试
+ */
+public class RateLimiterTest {
+
+    @Test
+    public void testTryAcquire() {
+        // 每秒 10 个许可，最多突发 5 个
+        RateLimiter rateLimiter = new RateLimiter(10, 5);
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertTrue(rateLimiter.tryAcquire());
+        }
+        Assertions.assertFalse(rateLimiter.tryAcquire());
+    }
+
+    @Test
+    public void testTryAcquireWithTimeout() throws InterruptedException {
+        RateLimiter rateLimiter = new RateLimiter(10, 1);
+        Assertions.assertTrue(rateLimiter.tryAcquire());
+        // 下一个许可约 100ms 后可用，等待时间不够时立即失败
+        Assertions.assertFalse(rateLimiter.tryAcquire(10, TimeUnit.MILLISECONDS));
+        long start = System.nanoTime();
+        Assertions.assertTrue(rateLimiter.tryAcquire(500, TimeUnit.MILLISECONDS));
+        Assertions.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+    }
+
+    @Test
+    public void testRelease() {
+        RateLimiter rateLimiter = new RateLimiter(10, 2);
+        Assertions.assertTrue(rateLimiter.tryAcquire());
+        Assertions.assertTrue(rateLimiter.tryAcquire());
+        Assertions.assertFalse(rateLimiter.tryAcquire());
+        // 归还的许可可以再次获取
+        rateLimiter.release();
+        Assertions.assertTrue(rateLimiter.tryAcquire());
+        Assertions.assertFalse(rateLimiter.tryAcquire());
+    }
+
+    @Test
+    public void testAcquireMode() throws InterruptedException {
+        RateLimiter rateLimiter = new RateLimiter(10, 1);
+        Assertions.assertTrue(rateLimiter.acquire(RateLimitModeKeys.FAIL_FAST, 0));
+        Assertions.assertFalse(rateLimiter.acquire(RateLimitModeKeys.FAIL_FAST, 0));
+        Assertions.assertTrue(rateLimiter.acquire(RateLimitModeKeys.BLOCK, 0));
+    }
+}
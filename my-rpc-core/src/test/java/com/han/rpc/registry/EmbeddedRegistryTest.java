@@ -0,0 +1,73 @@
+package com.han.rpc.registry;
+
+import com.han.rpc.config.RegistryConfig;
+import com.han.rpc.model.ServiceMetaInfo;
+import com.han.rpc.registry.server.RegistryServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+/**
+ * 内置注册中心测试（进程内启动注册中心服务器）
+ */
+public class EmbeddedRegistryTest {
+
+    private static final int PORT = 23800;
+
+    private static RegistryServer registryServer;
+
+    private static Registry registry;
+
+    @BeforeAll
+    public static void init() {
+        registryServer = new RegistryServer();
+        registryServer.start(PORT).join();
+        RegistryConfig registryConfig = new RegistryConfig();
+        registryConfig.setRegistry(RegistryKeys.EMBEDDED);
+        registryConfig.setAddress("localhost:" + PORT);
+        registryConfig.setSnapshotFile(null);
+        registry = new EmbeddedRegistry();
+        registry.init(registryConfig);
+    }
+
+    @AfterAll
+    public static void destroy() {
+        registry.destroy();
+        registryServer.stop();
+    }
+
+    @Test
+    public void testRegisterAndWatch() throws Exception {
+        ServiceMetaInfo serviceMetaInfo = buildServiceMetaInfo(1234);
+        registry.register(serviceMetaInfo);
+        List<ServiceMetaInfo> serviceMetaInfoList = registry.serviceDiscovery(serviceMetaInfo.getServiceKey());
+        Assertions.assertEquals(1, serviceMetaInfoList.size());
+
+        // 新节点通过推送事件更新到缓存
+        registry.register(buildServiceMetaInfo(1235));
+        waitForSize(serviceMetaInfo.getServiceKey(), 2);
+
+        registry.unRegister(serviceMetaInfo);
+        waitForSize(serviceMetaInfo.getServiceKey(), 1);
+        Assertions.assertEquals(1235, registry.serviceDiscovery(serviceMetaInfo.getServiceKey()).get(0).getServicePort());
+    }
+
+    private void waitForSize(String serviceKey, int size) throws InterruptedException {
+        for (int i = 0; i < 50 && registry.serviceDiscovery(serviceKey).size() != size; i++) {
+            Thread.sleep(100);
+        }
+        Assertions.assertEquals(size, registry.serviceDiscovery(serviceKey).size());
+    }
+
+    private ServiceMetaInfo buildServiceMetaInfo(int port) {
+        ServiceMetaInfo serviceMetaInfo = new ServiceMetaInfo();
+        serviceMetaInfo.setServiceName("embeddedService");
+        serviceMetaInfo.setServiceVersion("1.0");
+        serviceMetaInfo.setServiceHost("localhost");
+        serviceMetaInfo.setServicePort(port);
+        return serviceMetaInfo;
+    }
+}
@@ -0,0 +1,62 @@
+package com.han.rpc.registry;
+
+import com.han.rpc.model.ServiceMetaInfo;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+/**
+ * 注册中心服务本地缓存测试
+ */
+public class RegistryServiceCacheTest {
+
+    @Test
+    public void testIncrementalUpdate() {
+        RegistryServiceCache serviceCache = new RegistryServiceCache();
+        ServiceMetaInfo node1 = buildServiceMetaInfo(1234);
+        ServiceMetaInfo node2 = buildServiceMetaInfo(1235);
+        String serviceKey = node1.getServiceKey();
+
+        // 未缓存的服务不接受增量更新
+        serviceCache.putNode(serviceKey, node1);
+        Assertions.assertNull(serviceCache.readCache(serviceKey));
+
+        serviceCache.writeCache(serviceKey, Arrays.asList(node1));
+        ServiceSnapshot snapshot = serviceCache.readCache(serviceKey);
+        Assertions.assertEquals(1, snapshot.size());
+
+        // 新增节点生成新的快照，已读取的快照不变
+        serviceCache.putNode(serviceKey, node2);
+        ServiceSnapshot newSnapshot = serviceCache.readCache(serviceKey);
+        Assertions.assertEquals(1, snapshot.size());
+        Assertions.assertEquals(2, newSnapshot.size());
+        Assertions.assertTrue(newSnapshot.getVersion() > snapshot.getVersion());
+
+        // 更新已有节点不增加节点数
+        ServiceMetaInfo updatedNode1 = buildServiceMetaInfo(1234);
+        updatedNode1.setWeight(200);
+        serviceCache.putNode(serviceKey, updatedNode1);
+        Assertions.assertEquals(2, serviceCache.readCache(serviceKey).size());
+        Assertions.assertEquals(200, serviceCache.readCache(serviceKey).getNode(node1.getServiceNodeKey()).getWeight());
+
+        // 删除节点
+        serviceCache.removeNode(serviceKey, node1.getServiceNodeKey());
+        Assertions.assertEquals(1, serviceCache.readCache(serviceKey).size());
+        Assertions.assertEquals(1235, serviceCache.readCache(serviceKey).get(0).getServicePort());
+
+        // 删除不存在的节点，版本号不变
+        long version = serviceCache.readCache(serviceKey).getVersion();
+        serviceCache.removeNode(serviceKey, node1.getServiceNodeKey());
+        Assertions.assertEquals(version, serviceCache.readCache(serviceKey).getVersion());
+    }
+
+    private ServiceMetaInfo buildServiceMetaInfo(int port) {
+        ServiceMetaInfo serviceMetaInfo = new ServiceMetaInfo();
+        serviceMetaInfo.setServiceName("myService");
+        serviceMetaInfo.setServiceVersion("1.0");
+        serviceMetaInfo.setServiceHost("localhost");
+        serviceMetaInfo.setServicePort(port);
+        return serviceMetaInfo;
+    }
+}
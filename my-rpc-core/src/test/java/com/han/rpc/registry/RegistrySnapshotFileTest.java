@@ -0,0 +1,50 @@
+package com.han.rpc.registry;
+
+import com.han.rpc.model.ServiceMetaInfo;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 服务发现快照文件测试
+ */
+public class RegistrySnapshotFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testWriteAndLoad() throws Exception {
+        RegistrySnapshotFile snapshotFile = new RegistrySnapshotFile(tempDir.resolve("snapshot.dat").toString(), 1000);
+        // 文件不存在时返回空
+        Assertions.assertTrue(snapshotFile.load().isEmpty());
+
+        ServiceMetaInfo serviceMetaInfo = new ServiceMetaInfo();
+        serviceMetaInfo.setServiceName("myService");
+        serviceMetaInfo.setServiceHost("localhost");
+        serviceMetaInfo.setServicePort(1234);
+        serviceMetaInfo.setWeight(50);
+        serviceMetaInfo.setRegisterTime(System.currentTimeMillis());
+        Map<String, List<ServiceMetaInfo>> serviceMap = new HashMap<>();
+        serviceMap.put(serviceMetaInfo.getServiceKey(), Arrays.asList(serviceMetaInfo));
+        serviceMap.put("emptyService:1.0", Collections.emptyList());
+        snapshotFile.write(serviceMap);
+
+        Map<String, List<ServiceMetaInfo>> loadedServiceMap = snapshotFile.load();
+        Assertions.assertEquals(serviceMap, loadedServiceMap);
+
+        // 加载到缓存后标记为过期
+        RegistryServiceCache serviceCache = new RegistryServiceCache();
+        serviceCache.loadSnapshotFile(snapshotFile);
+        ServiceSnapshot snapshot = serviceCache.readCache(serviceMetaInfo.getServiceKey());
+        Assertions.assertTrue(snapshot.isStale());
+        Assertions.assertEquals(serviceMetaInfo, snapshot.get(0));
+    }
+}
@@ -0,0 +1,60 @@
+package com.han.rpc.registry;
+
+import cn.hutool.json.JSONUtil;
+import com.han.rpc.model.ServiceMetaInfo;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 服务节点信息编解码测试
+ */
+public class ServiceMetaInfoCodecTest {
+
+    @Test
+    public void testBinary() {
+        ServiceMetaInfo serviceMetaInfo = buildServiceMetaInfo();
+        byte[] data = ServiceMetaInfoCodec.encode(serviceMetaInfo, RegistryEncodingKeys.BINARY);
+        Assertions.assertTrue(ServiceMetaInfoCodec.isBinary(data));
+        Assertions.assertTrue(data.length < JSONUtil.toJsonStr(serviceMetaInfo).length());
+        Assertions.assertEquals(serviceMetaInfo, ServiceMetaInfoCodec.decode(data));
+
+        // 为空的字段
+        serviceMetaInfo.setServiceGroup(null);
+        serviceMetaInfo.setWeight(-1);
+        Assertions.assertEquals(serviceMetaInfo, ServiceMetaInfoCodec.decode(ServiceMetaInfoCodec.encode(serviceMetaInfo, RegistryEncodingKeys.BINARY)));
+
+        // 新版本追加的字段被忽略
+        byte[] newVersionData = Arrays.copyOf(data, data.length + 3);
+        Assertions.assertEquals(ServiceMetaInfoCodec.decode(data), ServiceMetaInfoCodec.decode(newVersionData));
+
+        // 数据不完整
+        Assertions.assertThrows(RuntimeException.class, () -> ServiceMetaInfoCodec.decode(Arrays.copyOf(data, 10)));
+    }
+
+    @Test
+    public void testJson() {
+        ServiceMetaInfo serviceMetaInfo = buildServiceMetaInfo();
+        byte[] data = ServiceMetaInfoCodec.encode(serviceMetaInfo, RegistryEncodingKeys.JSON);
+        Assertions.assertFalse(ServiceMetaInfoCodec.isBinary(data));
+        Assertions.assertEquals(serviceMetaInfo, ServiceMetaInfoCodec.decode(data));
+        // 旧版本写入的 JSON
+        byte[] oldData = JSONUtil.toJsonStr(serviceMetaInfo).getBytes(StandardCharsets.UTF_8);
+        Assertions.assertEquals(serviceMetaInfo, ServiceMetaInfoCodec.decode(oldData));
+    }
+
+    private ServiceMetaInfo buildServiceMetaInfo() {
+        ServiceMetaInfo serviceMetaInfo = new ServiceMetaInfo();
+        serviceMetaInfo.setServiceName("com.han.example.common.service.UserService");
+        serviceMetaInfo.setServiceHost("192.168.1.10");
+        serviceMetaInfo.setServicePort(8080);
+        serviceMetaInfo.setWeight(50);
+        serviceMetaInfo.setRegisterTime(System.currentTimeMillis());
+        serviceMetaInfo.setWarmup(60000);
+        serviceMetaInfo.setRegion("cn-east");
+        serviceMetaInfo.setZone("cn-east-1a");
+        return serviceMetaInfo;
+    }
+}
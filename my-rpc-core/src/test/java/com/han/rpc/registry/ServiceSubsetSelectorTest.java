@@ -0,0 +1,144 @@
+package com.han.rpc.registry;
+
+import com.han.rpc.model.ServiceMetaInfo;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 服务节点子集选择测试
+ */
+public class ServiceSubsetSelectorTest {
+
+    private static final int NODE_NUM = 100;
+
+    private static final int SUBSET_SIZE = 10;
+
+    @Test
+    public void testStable() {
+        List<ServiceMetaInfo> serviceMetaInfoList = buildServiceMetaInfoList();
+        Set<String> subset = select(serviceMetaInfoList, "consumer-1");
+        Assertions.assertEquals(SUBSET_SIZE, subset.size());
+        // 同一消费者的子集是确定的
+        Assertions.assertEquals(subset, select(new ArrayList<>(serviceMetaInfoList), "consumer-1"));
+        // 不同消费者的子集不同
+        Assertions.assertNotEquals(subset, select(serviceMetaInfoList, "consumer-2"));
+        // 节点数不超过子集大小时使用全部节点
+        Assertions.assertSame(serviceMetaInfoList, ServiceSubsetSelector.select(serviceMetaInfoList, NODE_NUM, "consumer-1"));
+        Assertions.assertSame(serviceMetaInfoList, ServiceSubsetSelector.select(serviceMetaInfoList, 0, "consumer-1"));
+    }
+
+    @Test
+    public void testMinimalChurn() {
+        List<ServiceMetaInfo> serviceMetaInfoList = buildServiceMetaInfoList();
+        Set<String> subset = select(serviceMetaInfoList, "consumer-1");
+
+        // 子集外的节点下线，子集不变
+        List<ServiceMetaInfo> remainList = new ArrayList<>(serviceMetaInfoList);
+        remainList.remove(findOutside(serviceMetaInfoList, subset));
+        Assertions.assertEquals(subset, select(remainList, "consumer-1"));
+
+        // 子集内的节点下线，只替换该节点
+        String removedNodeKey = subset.iterator().next();
+        remainList = new ArrayList<>(serviceMetaInfoList);
+        remainList.removeIf(serviceMetaInfo -> serviceMetaInfo.getServiceNodeKey().equals(removedNodeKey));
+        Set<String> newSubset = select(remainList, "consumer-1");
+        Assertions.assertFalse(newSubset.contains(removedNodeKey));
+        newSubset.retainAll(subset);
+        Assertions.assertEquals(SUBSET_SIZE - 1, newSubset.size());
+    }
+
+    @Test
+    public void testEvenDistribution() {
+        List<ServiceMetaInfo> serviceMetaInfoList = buildServiceMetaInfoList();
+        int consumerNum = 1000;
+        Map<String, Integer> countMap = new HashMap<>();
+        for (int i = 0; i < consumerNum; i++) {
+            for (String serviceNodeKey : select(serviceMetaInfoList, "consumer-" + i)) {
+                countMap.merge(serviceNodeKey, 1, Integer::sum);
+            }
+        }
+        // 每个节点平均被 100 个消费者选中
+        int expected = consumerNum * SUBSET_SIZE / NODE_NUM;
+        Assertions.assertEquals(NODE_NUM, countMap.size());
+        for (int count : countMap.values()) {
+            Assertions.assertTrue(count > expected / 2 && count < expected * 2, "节点被选中次数不均匀：" + count);
+        }
+    }
+
+    @Test
+    public void testUnavailableNodes() {
+        ServiceSnapshot snapshot = ServiceSnapshot.of(buildServiceMetaInfoList());
+        List<ServiceMetaInfo> subset = ServiceSubsetSelector.select(snapshot, SUBSET_SIZE, "consumer-1");
+        Set<String> unavailableSet = new HashSet<>();
+        for (ServiceMetaInfo serviceMetaInfo : subset) {
+            unavailableSet.add(serviceMetaInfo.getServiceNodeKey());
+        }
+
+        // 子集内的节点全部熔断时，按排名选出其他可用节点补足，而不是没有可用节点
+        List<ServiceMetaInfo> availableSubset = ServiceSubsetSelector.select(snapshot, SUBSET_SIZE, "consumer-1",
+                serviceMetaInfo -> !unavailableSet.contains(serviceMetaInfo.getServiceNodeKey()));
+        Assertions.assertEquals(SUBSET_SIZE, availableSubset.size());
+        for (ServiceMetaInfo serviceMetaInfo : availableSubset) {
+            Assertions.assertFalse(unavailableSet.contains(serviceMetaInfo.getServiceNodeKey()));
+        }
+        // 替补节点也是确定的
+        Assertions.assertEquals(availableSubset, ServiceSubsetSelector.select(snapshot, SUBSET_SIZE, "consumer-1",
+                serviceMetaInfo -> !unavailableSet.contains(serviceMetaInfo.getServiceNodeKey())));
+
+        // 只有一个节点熔断时，其余节点不变，只替换该节点
+        String unavailableNodeKey = subset.get(0).getServiceNodeKey();
+        List<ServiceMetaInfo> partialSubset = ServiceSubsetSelector.select(snapshot, SUBSET_SIZE, "consumer-1",
+                serviceMetaInfo -> !serviceMetaInfo.getServiceNodeKey().equals(unavailableNodeKey));
+        Assertions.assertEquals(SUBSET_SIZE, partialSubset.size());
+        Assertions.assertTrue(partialSubset.containsAll(subset.subList(1, SUBSET_SIZE)));
+        Assertions.assertFalse(partialSubset.contains(subset.get(0)));
+
+        // 节点都可用时返回缓存的子集快照
+        Assertions.assertSame(subset, ServiceSubsetSelector.select(snapshot, SUBSET_SIZE, "consumer-1", serviceMetaInfo -> true));
+    }
+
+    @Test
+    public void testSnapshotCache() {
+        ServiceSnapshot snapshot = ServiceSnapshot.of(buildServiceMetaInfoList());
+        List<ServiceMetaInfo> subset = ServiceSubsetSelector.select(snapshot, SUBSET_SIZE, "consumer-1");
+        Assertions.assertTrue(subset instanceof ServiceSnapshot);
+        // 快照版本不变时复用已计算的子集
+        Assertions.assertSame(subset, ServiceSubsetSelector.select(snapshot, SUBSET_SIZE, "consumer-1"));
+        ServiceSnapshot newSnapshot = snapshot.remove(snapshot.get(0).getServiceNodeKey());
+        Assertions.assertNotSame(subset, ServiceSubsetSelector.select(newSnapshot, SUBSET_SIZE, "consumer-1"));
+    }
+
+    private Set<String> select(List<ServiceMetaInfo> serviceMetaInfoList, String consumerId) {
+        Set<String> subset = new HashSet<>();
+        for (ServiceMetaInfo serviceMetaInfo : ServiceSubsetSelector.select(serviceMetaInfoList, SUBSET_SIZE, consumerId)) {
+            subset.add(serviceMetaInfo.getServiceNodeKey());
+        }
+        return subset;
+    }
+
+    private ServiceMetaInfo findOutside(List<ServiceMetaInfo> serviceMetaInfoList, Set<String> subset) {
+        return serviceMetaInfoList.stream()
+                .filter(serviceMetaInfo -> !subset.contains(serviceMetaInfo.getServiceNodeKey()))
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+    }
+
+    private List<ServiceMetaInfo> buildServiceMetaInfoList() {
+        List<ServiceMetaInfo> serviceMetaInfoList = new ArrayList<>();
+        for (int i = 0; i < NODE_NUM; i++) {
+            ServiceMetaInfo serviceMetaInfo = new ServiceMetaInfo();
+            serviceMetaInfo.setServiceName("myService");
+            serviceMetaInfo.setServiceHost("10.0.0." + i);
+            serviceMetaInfo.setServicePort(8080);
+            serviceMetaInfoList.add(serviceMetaInfo);
+        }
+        return serviceMetaInfoList;
+    }
+}
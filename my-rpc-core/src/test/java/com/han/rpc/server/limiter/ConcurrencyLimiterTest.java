@@ -0,0 +1,90 @@
+package com.han.rpc.server.limiter;
+
+import com.han.rpc.config.ConcurrencyLimitConfig;
+import com.han.rpc.model.RpcPriorityEnum;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 并发限制器测试
+ */
+public class ConcurrencyLimiterTest {
+
+    @Test
+    public void testFixedLimit() {
+        ConcurrencyLimitConfig config = new ConcurrencyLimitConfig();
+        config.setAdaptive(false);
+        ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(2, config);
+        Assertions.assertTrue(concurrencyLimiter.tryAcquire());
+        Assertions.assertTrue(concurrencyLimiter.tryAcquire());
+        // 超过限制直接拒绝
+        Assertions.assertFalse(concurrencyLimiter.tryAcquire());
+        concurrencyLimiter.onComplete(10);
+        Assertions.assertTrue(concurrencyLimiter.tryAcquire());
+        concurrencyLimiter.onDropped();
+        concurrencyLimiter.onDropped();
+        Assertions.assertEquals(0, concurrencyLimiter.getInFlight());
+        Assertions.assertEquals(2, concurrencyLimiter.getLimit());
+    }
+
+    @Test
+    public void testPriorityHeadroom() {
+        ConcurrencyLimitConfig config = new ConcurrencyLimitConfig();
+        config.setAdaptive(false);
+        config.setNormalPriorityLimitRatio(0.8);
+        config.setLowPriorityLimitRatio(0.5);
+        ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(10, config);
+        // 低优先级请求占满自己的份额后被拒绝
+        int lowCount = 0;
+        while (concurrencyLimiter.tryAcquire(RpcPriorityEnum.LOW)) {
+            lowCount++;
+        }
+        Assertions.assertEquals(5, lowCount);
+        // 普通和高优先级请求仍然可以进入
+        Assertions.assertTrue(concurrencyLimiter.tryAcquire(RpcPriorityEnum.NORMAL));
+        Assertions.assertTrue(concurrencyLimiter.tryAcquire(RpcPriorityEnum.HIGH));
+        // 普通优先级最多占用 8 个名额，剩余名额只留给高优先级请求
+        while (concurrencyLimiter.tryAcquire(RpcPriorityEnum.NORMAL)) {
+        }
+        Assertions.assertEquals(8, concurrencyLimiter.getInFlight());
+        Assertions.assertTrue(concurrencyLimiter.tryAcquire(RpcPriorityEnum.HIGH));
+        Assertions.assertTrue(concurrencyLimiter.tryAcquire(RpcPriorityEnum.HIGH));
+        Assertions.assertFalse(concurrencyLimiter.tryAcquire(RpcPriorityEnum.HIGH));
+    }
+
+    @Test
+    public void testAdaptiveLimit() {
+        ConcurrencyLimitConfig config = new ConcurrencyLimitConfig();
+        config.setMinLimit(10);
+        config.setMaxLimit(1000);
+        ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(100, config);
+        // 满负载且耗时稳定，逐步提高限制
+        for (int i = 0; i < 200; i++) {
+            fill(concurrencyLimiter);
+            concurrencyLimiter.onComplete(10);
+            release(concurrencyLimiter);
+        }
+        int stableLimit = concurrencyLimiter.getLimit();
+        Assertions.assertTrue(stableLimit > 100);
+
+        // 耗时明显升高（开始排队），降低限制
+        for (int i = 0; i < 200; i++) {
+            fill(concurrencyLimiter);
+            concurrencyLimiter.onComplete(100);
+            release(concurrencyLimiter);
+        }
+        Assertions.assertTrue(concurrencyLimiter.getLimit() < stableLimit);
+        Assertions.assertTrue(concurrencyLimiter.getLimit() >= 10);
+    }
+
+    private void fill(ConcurrencyLimiter concurrencyLimiter) {
+        while (concurrencyLimiter.tryAcquire()) {
+        }
+    }
+
+    private void release(ConcurrencyLimiter concurrencyLimiter) {
+        while (concurrencyLimiter.getInFlight() > 0) {
+            concurrencyLimiter.onDropped();
+        }
+    }
+}
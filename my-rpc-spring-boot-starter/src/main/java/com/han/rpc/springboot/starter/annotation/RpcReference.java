@@ -4,6 +4,8 @@ import com.han.rpc.constant.RpcConstant;
 import com.han.rpc.fault.retry.RetryStrategyKeys;
 import com.han.rpc.fault.tolerant.TolerantStrategyKeys;
 import com.han.rpc.loadbalancer.LoadBalancerKeys;
+import com.han.rpc.model.RpcPriorityEnum;
+import com.han.rpc.ratelimit.RateLimitModeKeys;
 
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
@@ -46,6 +48,54 @@ public @interface RpcReference {
      */
     String tolerantStrategy() default TolerantStrategyKeys.FAIL_FAST;
 
+    /**
+     * 开启对冲请求的方法名（首个节点响应慢时向其他节点再发一份请求），只应填写幂等的读方法
+     * @return
+     */
+    String[] hedgingMethods() default {};
+
+    /**
+     * 使用并行调用的方法名（同时调用 forks 个节点，取最先成功的响应），覆盖全局的容错策略，只应填写幂等的读方法
+     * @return
+     */
+    String[] forkingMethods() default {};
+
+    /**
+     * 使用广播调用的方法名（调用所有节点，任一节点失败则失败），覆盖全局的容错策略
+     * @return
+     */
+    String[] broadcastMethods() default {};
+
+    /**
+     * 请求优先级，服务提供者优先处理高优先级的请求
+     * @return
+     */
+    RpcPriorityEnum priority() default RpcPriorityEnum.NORMAL;
+
+    /**
+     * 服务级别的调用速率限制（每秒请求数），0 表示不限制
+     * @return
+     */
+    double rateLimit() default 0;
+
+    /**
+     * 方法级别的调用速率限制，格式为 "方法名:每秒请求数"，例如 "listUsers:50"
+     * @return
+     */
+    String[] methodRateLimits() default {};
+
+    /**
+     * 超过速率限制时的处理方式：阻塞等待、排队等待（最多等待 rateLimitTimeout）、快速失败
+     * @return
+     */
+    String rateLimitMode() default RateLimitModeKeys.FAIL_FAST;
+
+    /**
+     * 排队模式下的最大等待时间（毫秒）
+     * @return
+     */
+    long rateLimitTimeout() default 1000L;
+
     /**
      * 模拟调用
      * @return
@@ -1,11 +1,16 @@
 package com.han.rpc.springboot.starter.bootstrap;
 
+import com.han.rpc.config.ReferenceConfig;
 import com.han.rpc.proxy.ServiceProxyFactory;
 import com.han.rpc.springboot.starter.annotation.RpcReference;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 
 import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 
 /**
  * Rpc服务消费者启动
@@ -32,7 +37,16 @@ public class RpcConsumerBootstrap implements BeanPostProcessor {
                 if (interfaceClass == void.class) {
                     interfaceClass = field.getType();
                 }
-                Object proxy = ServiceProxyFactory.getProxy(interfaceClass);
+                ReferenceConfig referenceConfig = new ReferenceConfig();
+                referenceConfig.setHedgingMethods(new HashSet<>(Arrays.asList(rpcReference.hedgingMethods())));
+                referenceConfig.setForkingMethods(new HashSet<>(Arrays.asList(rpcReference.forkingMethods())));
+                referenceConfig.setBroadcastMethods(new HashSet<>(Arrays.asList(rpcReference.broadcastMethods())));
+                referenceConfig.setPriority(rpcReference.priority());
+                referenceConfig.setRateLimit(rpcReference.rateLimit());
+                referenceConfig.setMethodRateLimits(parseMethodRateLimits(rpcReference.methodRateLimits()));
+                referenceConfig.setRateLimitMode(rpcReference.rateLimitMode());
+                referenceConfig.setRateLimitTimeout(rpcReference.rateLimitTimeout());
+                Object proxy = ServiceProxyFactory.getProxy(interfaceClass, referenceConfig);
                 try {
                     field.setAccessible(true);
                     field.set(bean, proxy);
@@ -44,4 +58,25 @@ public class RpcConsumerBootstrap implements BeanPostProcessor {
         }
         return BeanPostProcessor.super.postProcessAfterInitialization(bean, beanName);
     }
+
+    /**
+     * 解析方法级别的速率限制
+     * @param methodRateLimits 格式为 "方法名:每秒请求数"
+     * @return 方法名 => 每秒请求数
+     */
+    private Map<String, Double> parseMethodRateLimits(String[] methodRateLimits) {
+        Map<String, Double> methodRateLimitMap = new HashMap<>();
+        for (String methodRateLimit : methodRateLimits) {
+            String[] parts = methodRateLimit.split(":");
+            if (parts.length != 2) {
+                throw new RuntimeException("方法限流配置格式错误，应为 方法名:每秒请求数，实际为 " + methodRateLimit);
+            }
+            try {
+                methodRateLimitMap.put(parts[0].trim(), Double.parseDouble(parts[1].trim()));
+            } catch (NumberFormatException e) {
+                throw new RuntimeException("方法限流配置格式错误，应为 方法名:每秒请求数，实际为 " + methodRateLimit, e);
+            }
+        }
+        return methodRateLimitMap;
+    }
 }
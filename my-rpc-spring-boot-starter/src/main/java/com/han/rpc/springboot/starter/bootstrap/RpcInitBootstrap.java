@@ -9,6 +9,8 @@ import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.context.annotation.ImportBeanDefinitionRegistrar;
 import org.springframework.core.type.AnnotationMetadata;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * RPC 框架启动
  * 获取 @EnableRpc 注解的属性，初始化 RPC 框架
@@ -16,6 +18,11 @@ import org.springframework.core.type.AnnotationMetadata;
 @Slf4j
 public class RpcInitBootstrap implements ImportBeanDefinitionRegistrar {
 
+    /**
+     * 服务器开始监听后完成，不启动服务器时为空
+     */
+    private static volatile CompletableFuture<Void> serverStartFuture;
+
     /**
      * Spring初始化时执行
      * @param importingClassMetadata
@@ -35,9 +42,17 @@ public class RpcInitBootstrap implements ImportBeanDefinitionRegistrar {
         if (needServer) {
             // 启动服务器
             VertxTcpServer tcpServer = new VertxTcpServer();
-            tcpServer.doStart(RpcApplication.getRpcConfig().getServerPort());
+            serverStartFuture = tcpServer.start(RpcApplication.getRpcConfig().getServerPort());
         } else {
             log.info("不启动server");
         }
     }
+
+    /**
+     * 获取服务器启动结果
+     * @return 服务器开始监听后完成，不启动服务器时为空
+     */
+    public static CompletableFuture<Void> getServerStartFuture() {
+        return serverStartFuture;
+    }
 }
@@ -9,11 +9,23 @@ import com.han.rpc.registry.RegistryFactory;
 import com.han.rpc.springboot.starter.annotation.RpcService;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Rpc服务提供者启动
+ * bean 初始化时只做本地注册，容器刷新完成且服务器开始监听后，再把所有服务批量注册到注册中心
  */
-public class RpcProviderBootstrap implements BeanPostProcessor {
+public class RpcProviderBootstrap implements BeanPostProcessor, ApplicationListener<ContextRefreshedEvent> {
+
+    /**
+     * 等待注册到注册中心的服务
+     */
+    private final List<ServiceMetaInfo> pendingRegisterList = new ArrayList<>();
 
     /**
      * bean初始化后执行，获取到所有包含@RpcService的类，注册服务
@@ -43,21 +55,55 @@ public class RpcProviderBootstrap implements BeanPostProcessor {
             //   本地注册
             LocalRegistry.register(serviceName, beanClass);
 
-            //   注册到注册中心
+            //   等待注册到注册中心
             RpcConfig rpcConfig = RpcApplication.getRpcConfig();
-            Registry registry = RegistryFactory.getInstance(rpcConfig.getRegistryConfig().getRegistry());
             ServiceMetaInfo serviceMetaInfo = new ServiceMetaInfo();
             serviceMetaInfo.setServiceName(serviceName);
             serviceMetaInfo.setServiceVersion(serviceVersion);
             serviceMetaInfo.setServiceHost(rpcConfig.getServerHost());
             serviceMetaInfo.setServicePort(rpcConfig.getServerPort());
-            try {
-                registry.register(serviceMetaInfo);
-            } catch (Exception e) {
-                throw new RuntimeException(serviceName + "注册失败", e);
+            serviceMetaInfo.setWeight(rpcConfig.getWeight());
+            serviceMetaInfo.setWarmup(rpcConfig.getWarmup());
+            serviceMetaInfo.setRegion(rpcConfig.getRegion());
+            serviceMetaInfo.setZone(rpcConfig.getZone());
+            serviceMetaInfo.setHostName(rpcConfig.getHostName());
+            synchronized (pendingRegisterList) {
+                pendingRegisterList.add(serviceMetaInfo);
             }
         }
 
         return BeanPostProcessor.super.postProcessAfterInitialization(bean, beanName);
     }
+
+    /**
+     * 容器刷新完成后执行，等待服务器开始监听，批量注册服务
+     * @param event
+     */
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        List<ServiceMetaInfo> registerList;
+        synchronized (pendingRegisterList) {
+            if (pendingRegisterList.isEmpty()) {
+                return;
+            }
+            registerList = new ArrayList<>(pendingRegisterList);
+            pendingRegisterList.clear();
+        }
+        // 消费者发现节点时一定可以建立连接
+        CompletableFuture<Void> serverStartFuture = RpcInitBootstrap.getServerStartFuture();
+        if (serverStartFuture != null) {
+            serverStartFuture.join();
+        }
+
+        RpcConfig rpcConfig = RpcApplication.getRpcConfig();
+        Registry registry = RegistryFactory.getInstance(rpcConfig.getRegistryConfig().getRegistry());
+        // 预热从开始接收流量时计算
+        long registerTime = System.currentTimeMillis();
+        registerList.forEach(serviceMetaInfo -> serviceMetaInfo.setRegisterTime(registerTime));
+        try {
+            registry.registerBatch(registerList);
+        } catch (Exception e) {
+            throw new RuntimeException("服务注册失败", e);
+        }
+    }
 }